@@ -0,0 +1,63 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import com.alfahackathon.clientmodelservice.SyntheticRows;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.service.ClientRowParser;
+import com.alfahackathon.clientmodelservice.util.FeaturePayloadWriter;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The single-client response path after the entity is loaded: writing the ML request payload,
+ * building the feature map returned to the UI, mapping to {@link ClientDto} and writing the JSON.
+ */
+@State(Scope.Benchmark)
+public class ClientMapperBenchmark {
+
+    @Param({"250"})
+    int featureColumns;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FeatureDictionary dictionary;
+    private Client client;
+    private Map<String, Object> features;
+
+    @Setup
+    public void setUp() {
+        SyntheticRows synthetic = new SyntheticRows(featureColumns, 42);
+        List<String[]> rows = synthetic.rows(1, 64);
+        dictionary = FeatureDictionary.empty();
+        client = ClientRowParser.infer(synthetic.header(), rows, dictionary).parse(rows.getFirst());
+        features = FeatureVectorCodec.decode(client.getFeatureVector()).toMap(dictionary);
+    }
+
+    @Benchmark
+    public FeaturePayload mlPayload() {
+        return FeaturePayloadWriter.write(client, FeatureVectorCodec.decode(client.getFeatureVector()), dictionary);
+    }
+
+    @Benchmark
+    public Map<String, Object> featureMap() {
+        return FeatureVectorCodec.decode(client.getFeatureVector()).toMap(dictionary);
+    }
+
+    @Benchmark
+    public ClientDto toDto() {
+        return ClientMapper.toDto(client, features);
+    }
+
+    @Benchmark
+    public byte[] toDtoJson() {
+        return objectMapper.writeValueAsBytes(ClientMapper.toDto(client, features));
+    }
+}
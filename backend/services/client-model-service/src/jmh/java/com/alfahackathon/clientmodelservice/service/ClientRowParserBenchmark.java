@@ -0,0 +1,69 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.SyntheticRows;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * CSV ingest parsing: whole rows into {@link Client}s with encoded feature vectors, and the
+ * per-cell classification and number normalization underneath it.
+ */
+@State(Scope.Benchmark)
+public class ClientRowParserBenchmark {
+
+    private static final int ROWS = 512;
+
+    @Param({"250"})
+    int featureColumns;
+
+    private List<String[]> rows;
+    private ClientRowParser parser;
+    private String[] cells;
+
+    @Setup
+    public void setUp() {
+        SyntheticRows synthetic = new SyntheticRows(featureColumns, 42);
+        rows = synthetic.rows(1, ROWS);
+        parser = ClientRowParser.infer(synthetic.header(), rows, FeatureDictionary.empty());
+        cells = rows.stream()
+                .flatMap(row -> List.of(row).subList(8, row.length).stream())
+                .filter(cell -> !cell.isBlank())
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Client> parseRows() {
+        return parser.parseAll(rows);
+    }
+
+    @Benchmark
+    public void classifyCells(Blackhole bh) {
+        for (String cell : cells) {
+            bh.consume(ClientRowParser.classify(cell));
+        }
+    }
+
+    @Benchmark
+    public void parseGenericCells(Blackhole bh) {
+        for (String cell : cells) {
+            bh.consume(ClientRowParser.parseGeneric(cell));
+        }
+    }
+
+    @Benchmark
+    public void normalizeNumbers(Blackhole bh) {
+        for (String cell : cells) {
+            bh.consume(ClientRowParser.normalizeNumber(cell));
+        }
+    }
+}
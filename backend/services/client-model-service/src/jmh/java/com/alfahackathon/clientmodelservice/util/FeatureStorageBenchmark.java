@@ -0,0 +1,70 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.SyntheticRows;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.service.ClientRowParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Round trips of one client's features through the binary vector format, next to the JSON
+ * text the {@code features} column used to hold via {@link JsonbConverter}.
+ */
+@State(Scope.Benchmark)
+public class FeatureStorageBenchmark {
+
+    @Param({"250"})
+    int featureColumns;
+
+    private final JsonbConverter jsonb = new JsonbConverter();
+    private FeatureDictionary dictionary;
+    private FeatureVector vector;
+    private byte[] bytes;
+    private Map<String, Object> map;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        SyntheticRows synthetic = new SyntheticRows(featureColumns, 42);
+        List<String[]> rows = synthetic.rows(1, 64);
+        dictionary = FeatureDictionary.empty();
+        Client client = ClientRowParser.infer(synthetic.header(), rows, dictionary).parse(rows.getFirst());
+        bytes = client.getFeatureVector();
+        vector = FeatureVectorCodec.decode(bytes);
+        map = vector.toMap(dictionary);
+        json = jsonb.convertToDatabaseColumn(map);
+    }
+
+    @Benchmark
+    public byte[] vectorEncode() {
+        return FeatureVectorCodec.encode(vector);
+    }
+
+    @Benchmark
+    public FeatureVector vectorDecode() {
+        return FeatureVectorCodec.decode(bytes);
+    }
+
+    @Benchmark
+    public Map<String, Object> vectorDecodeToMap() {
+        return FeatureVectorCodec.decode(bytes).toMap(dictionary);
+    }
+
+    @Benchmark
+    public String jsonbWrite() {
+        return jsonb.convertToDatabaseColumn(map);
+    }
+
+    @Benchmark
+    public Map<String, Object> jsonbRead() {
+        return jsonb.convertToEntityAttribute(json);
+    }
+}
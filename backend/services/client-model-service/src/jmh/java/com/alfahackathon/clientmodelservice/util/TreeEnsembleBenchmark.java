@@ -0,0 +1,105 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.SyntheticRows;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble;
+import com.alfahackathon.clientmodelservice.service.ClientRowParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * In-process scoring of one client with a random ensemble of full-depth trees the size of a
+ * boosted model: reading the ML payload into an input row, evaluating the trees, and both.
+ */
+@State(Scope.Benchmark)
+public class TreeEnsembleBenchmark {
+
+    private static final Set<String> CATEGORICAL = Set.of("gender", "adminarea", "incomeValueCategory", "city_smart_name");
+
+    @Param({"250"})
+    int featureColumns;
+
+    @Param({"500"})
+    int trees;
+
+    @Param({"6"})
+    int depth;
+
+    private TreeEnsemble model;
+    private TreeModelInput input;
+    private FeaturePayload payload;
+    private double[] row;
+    private double[] batch;
+    private double[] out;
+
+    @Setup
+    public void setUp() {
+        SyntheticRows synthetic = new SyntheticRows(featureColumns, 42);
+        List<String[]> rows = synthetic.rows(1, 64);
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+        Client client = ClientRowParser.infer(synthetic.header(), rows, dictionary).parse(rows.getFirst());
+        payload = FeaturePayloadWriter.write(client, FeatureVectorCodec.decode(client.getFeatureVector()), dictionary);
+
+        List<String> names = Arrays.asList(synthetic.header()).subList(2, synthetic.header().length);
+        boolean[] categorical = new boolean[names.size()];
+        for (int f = 0; f < categorical.length; f++) {
+            categorical[f] = CATEGORICAL.contains(names.get(f));
+        }
+        TreeEnsemble.Builder builder = new TreeEnsemble.Builder(names, categorical).baseMargin(10.5);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int t = 0; t < trees; t++) {
+            builder.tree(grow(builder, categorical, depth, random));
+        }
+        model = builder.build(trees);
+        input = new TreeModelInput(model);
+        row = input.read(payload, null);
+        batch = new double[256 * row.length];
+        for (int r = 0; r < 256; r++) {
+            System.arraycopy(row, 0, batch, r * row.length, row.length);
+        }
+        out = new double[256];
+    }
+
+    private static int grow(TreeEnsemble.Builder builder, boolean[] categorical, int depth, SplittableRandom random) {
+        if (depth == 0) {
+            return builder.leaf(random.nextDouble(-0.05, 0.05));
+        }
+        int feature = random.nextInt(categorical.length);
+        int node = categorical[feature]
+                ? builder.categoricalSplit(feature, new int[]{random.nextInt()}, random.nextBoolean())
+                : builder.numericSplit(feature, random.nextDouble(0, 1000), random.nextBoolean(), TreeEnsemble.Missing.NAN);
+        builder.children(node, grow(builder, categorical, depth - 1, random), grow(builder, categorical, depth - 1, random));
+        return node;
+    }
+
+    @Benchmark
+    public double[] readPayload() {
+        return input.read(payload, null);
+    }
+
+    @Benchmark
+    public double predictRow() {
+        return model.predict(row);
+    }
+
+    @Benchmark
+    public double scoreClient() {
+        return model.predict(input.read(payload, null));
+    }
+
+    @Benchmark
+    public double[] predictBatch256() {
+        model.predict(batch, out);
+        return out;
+    }
+}
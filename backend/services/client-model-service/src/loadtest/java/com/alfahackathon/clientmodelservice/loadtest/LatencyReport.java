@@ -0,0 +1,47 @@
+package com.alfahackathon.clientmodelservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+
+/** Throughput and latency percentiles per operation, as a plain text table. */
+final class LatencyReport {
+
+    private static final String ROW = "%-8s %9s %8s %10s %9s %9s %9s %9s%n";
+
+    private LatencyReport() {
+    }
+
+    static void print(PrintStream out, Map<Operation, TrafficDriver.Result> results, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        out.printf(ROW, "op", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        for (Map.Entry<Operation, TrafficDriver.Result> e : results.entrySet()) {
+            TrafficDriver.Result r = e.getValue();
+            row(out, e.getKey().name().toLowerCase(), r.latencyMicros(), r.errors(), seconds);
+            all.add(r.latencyMicros());
+            allErrors += r.errors();
+        }
+        row(out, "all", all, allErrors, seconds);
+    }
+
+    private static void row(PrintStream out, String name, Histogram h, long errors, double seconds) {
+        out.printf(ROW,
+                name,
+                h.getTotalCount(),
+                errors,
+                String.format("%.1f", h.getTotalCount() / seconds),
+                millis(h.getValueAtPercentile(50)),
+                millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)),
+                millis(h.getMaxValue()));
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,137 @@
+package com.alfahackathon.clientmodelservice.loadtest;
+
+import com.alfahackathon.clientmodelservice.ClientModelServiceApplication;
+import com.alfahackathon.clientmodelservice.SyntheticRows;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end load test of client-model-service in one JVM: an embedded PostgreSQL (or the one
+ * given by {@code loadtest.db.url}), synthetic clients ingested through the regular CSV loader,
+ * {@link MlServiceStub} in place of the Python service, and {@link TrafficDriver} sending the
+ * configured traffic mix over HTTP. Prints throughput and latency percentiles per operation.
+ *
+ * @see LoadTestOptions
+ */
+@Slf4j
+public final class LoadTest {
+
+    private static final Duration READY_POLL_INTERVAL = Duration.ofMillis(200);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.fromSystemProperties();
+        SyntheticRows rows = new SyntheticRows(options.featureColumns(), 42);
+        Path csv = writeCsv(rows, options.clients());
+        List<String> features = Arrays.asList(rows.header()).subList(2, rows.header().length);
+        try (EmbeddedPostgres postgres = options.dbUrl() == null ? EmbeddedPostgres.start() : null;
+             MlServiceStub ml = new MlServiceStub(
+                     options.mlLatency(), options.mlLatencySigma(), options.mlErrorRate(), features);
+             ConfigurableApplicationContext app = new SpringApplicationBuilder(ClientModelServiceApplication.class)
+                     .run(serviceArguments(options, postgres, ml, csv));
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(5))
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+
+            String baseUrl = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+            awaitReady(http, baseUrl);
+            TrafficDriver driver = new TrafficDriver(http, baseUrl, options.clients(), options.mix());
+
+            log.info("Warming up for {} at {} req/s", options.warmup(), options.rate());
+            driver.run(options.rate(), options.warmup());
+
+            log.info("Measuring for {} at {} req/s, mix {}, ML stub median {} (sigma {}), error rate {}",
+                    options.duration(), options.rate(), options.mix(),
+                    options.mlLatency(), options.mlLatencySigma(), options.mlErrorRate());
+            Map<Operation, TrafficDriver.Result> results = driver.run(options.rate(), options.duration());
+            LatencyReport.print(System.out, results, options.duration());
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    /**
+     * Polls the readiness probe until the service has loaded its clients; startup returns as
+     * soon as the web server is up.
+     */
+    private static void awaitReady(HttpClient http, String baseUrl) throws IOException, InterruptedException {
+        long started = System.currentTimeMillis();
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness")).build();
+        HttpRequest liveness = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/liveness")).build();
+        while (http.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+            if (http.send(liveness, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                throw new IllegalStateException("Service failed to load its clients, see its log");
+            }
+            Thread.sleep(READY_POLL_INTERVAL);
+        }
+        log.info("Service ready {} ms after the web server started", System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Settings for the service as command-line arguments, which take precedence over its
+     * {@code application.properties}.
+     */
+    private static String[] serviceArguments(LoadTestOptions options, EmbeddedPostgres postgres,
+                                             MlServiceStub ml, Path csv) {
+        Properties p = new Properties();
+        p.setProperty("server.port", "0");
+        if (postgres != null) {
+            p.setProperty("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+            p.setProperty("spring.datasource.username", "postgres");
+            p.setProperty("spring.datasource.password", "");
+        } else {
+            p.setProperty("spring.datasource.url", options.dbUrl());
+            p.setProperty("spring.datasource.username", options.dbUser());
+            p.setProperty("spring.datasource.password", options.dbPassword());
+        }
+        p.setProperty("spring.jpa.hibernate.ddl-auto", "update");
+        p.setProperty("ingest.csv-location", csv.toUri().toString());
+        p.setProperty("ml.service.url", ml.baseUrl() + "/predict");
+        p.setProperty("ml.service.batch-url", ml.baseUrl() + "/predict/batch");
+        p.setProperty("ml.service.shap-url", ml.baseUrl() + "/shap");
+        p.setProperty("ml.service.model-url", ml.baseUrl() + "/model");
+        p.setProperty("ml.service.schema-url", ml.baseUrl() + "/schema");
+        p.setProperty("ml.service.vector-url", ml.baseUrl() + "/predict/vector");
+        p.setProperty("ml.service.vector-batch-url", ml.baseUrl() + "/predict/vector/batch");
+        p.setProperty("ml.service.vector-shap-url", ml.baseUrl() + "/shap/vector");
+        p.putAll(options.appProperties());
+        return p.stringPropertyNames().stream()
+                .map(name -> "--" + name + "=" + p.getProperty(name))
+                .toArray(String[]::new);
+    }
+
+    private static Path writeCsv(SyntheticRows rows, int clients) throws IOException {
+        Path csv = Files.createTempFile("loadtest-clients", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write(String.join(";", rows.header()));
+            out.newLine();
+            for (long id = 1; id <= clients; id++) {
+                out.write(String.join(";", rows.row(id)));
+                out.newLine();
+            }
+        }
+        return csv;
+    }
+}
@@ -0,0 +1,91 @@
+package com.alfahackathon.clientmodelservice.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties (the {@code loadTest}
+ * Gradle task forwards {@code -Ploadtest.*} project properties). Properties under
+ * {@code loadtest.app.} are passed to the service with the prefix removed, e.g.
+ * {@code -Ploadtest.app.ml.cache.enabled=false}.
+ *
+ * @param rate           requests started per second, however long the responses take
+ * @param clients        synthetic clients ingested before the run
+ * @param mix            relative weights of the operations, e.g. {@code list=30,details=40,score=30};
+ *                       {@code score_async} scores through the async endpoints
+ * @param mlLatency      median response time of the ML stub
+ * @param mlLatencySigma log-normal spread of the ML stub's response time around the median
+ * @param mlErrorRate    share of ML stub calls answered with HTTP 500
+ * @param dbUrl          external PostgreSQL to use instead of the embedded one
+ */
+record LoadTestOptions(
+        int rate,
+        Duration warmup,
+        Duration duration,
+        int clients,
+        int featureColumns,
+        Map<Operation, Integer> mix,
+        Duration mlLatency,
+        double mlLatencySigma,
+        double mlErrorRate,
+        String dbUrl,
+        String dbUser,
+        String dbPassword,
+        Properties appProperties
+) {
+
+    private static final String PREFIX = "loadtest.";
+    private static final String APP_PREFIX = PREFIX + "app.";
+
+    static LoadTestOptions fromSystemProperties() {
+        Properties app = new Properties();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(APP_PREFIX))
+                .forEach(name -> app.setProperty(name.substring(APP_PREFIX.length()), System.getProperty(name)));
+
+        return new LoadTestOptions(
+                Integer.parseInt(get("rate", "200")),
+                DurationStyle.detectAndParse(get("warmup", "10s")),
+                DurationStyle.detectAndParse(get("duration", "60s")),
+                Integer.parseInt(get("clients", "20000")),
+                Integer.parseInt(get("feature-columns", "250")),
+                parseMix(get("mix", "list=30,details=40,score=30")),
+                DurationStyle.detectAndParse(get("ml.latency", "20ms")),
+                Double.parseDouble(get("ml.latency-sigma", "0.5")),
+                Double.parseDouble(get("ml.error-rate", "0.01")),
+                get("db.url", null),
+                get("db.user", "postgres"),
+                get("db.password", "postgres"),
+                app
+        );
+    }
+
+    /**
+     * @param mix comma-separated {@code operation=weight} pairs, e.g. {@code list=30,details=70}
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Bad mix entry '" + part + "', expected operation=weight");
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(kv[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Traffic mix '" + mix + "' has no operation with a positive weight");
+        }
+        return weights;
+    }
+
+    private static String get(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+}
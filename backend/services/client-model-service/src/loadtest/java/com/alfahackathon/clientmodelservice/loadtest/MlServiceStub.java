@@ -0,0 +1,177 @@
+package com.alfahackathon.clientmodelservice.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-JVM stand-in for the Python ML service answering {@code /predict}, {@code /predict/batch},
+ * {@code /shap} and {@code /model} in the same JSON shapes, and {@code /schema} with the
+ * positional {@code /predict/vector}, {@code /predict/vector/batch} and {@code /shap/vector}
+ * for the given feature names. Scores are a deterministic function of the features; each
+ * scoring call waits a log-normally distributed time and fails with HTTP 500 at the configured
+ * rate.
+ */
+final class MlServiceStub implements AutoCloseable {
+
+    private static final int SHAP_FEATURES = 20;
+    private static final String VERSION = "loadtest-stub";
+    /** Typed client fields that are text; every other feature is numeric. */
+    private static final Set<String> CATEGORICAL = Set.of("gender", "adminarea", "incomeValueCategory", "city_smart_name");
+
+    static {
+        // The JDK server closes kept-alive connections beyond 200 idle ones, which the service's
+        // pool then reuses and sees fail; keep as many as a high-concurrency run opens.
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "4096");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long medianNanos;
+    private final double sigma;
+    private final double errorRate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+    private final List<String> features;
+
+    MlServiceStub(Duration medianLatency, double sigma, double errorRate, List<String> features) throws IOException {
+        this.features = features;
+        this.medianNanos = medianLatency.toNanos();
+        this.sigma = sigma;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/model", exchange -> respond(exchange, 200, Map.of("version", VERSION)));
+        server.createContext("/schema", exchange -> respond(exchange, 200, Map.of(
+                "version", VERSION,
+                "features", features,
+                "categorical", features.stream().map(CATEGORICAL::contains).toList()
+        )));
+        server.createContext("/predict/batch", exchange -> score(exchange, this::predictBatch));
+        server.createContext("/predict/vector/batch", exchange -> score(exchange, this::predictVectorBatch));
+        server.createContext("/predict/vector", exchange -> score(exchange, this::predictVector));
+        server.createContext("/predict", exchange -> score(exchange, this::predict));
+        server.createContext("/shap/vector", exchange -> score(exchange, this::shapVector));
+        server.createContext("/shap", exchange -> score(exchange, this::shap));
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> predict(Map<String, Object> body) {
+        return prediction((Map<String, Object>) body.get("features"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> predictBatch(Map<String, Object> body) {
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) body.get("rows");
+        List<Map<String, Object>> results = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            results.add(prediction(row));
+        }
+        return Map.of("results", results);
+    }
+
+    private Map<String, Object> predictVector(Map<String, Object> body) {
+        return prediction(body.get("values"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> predictVectorBatch(Map<String, Object> body) {
+        List<Object> rows = (List<Object>) body.get("rows");
+        List<Map<String, Object>> results = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            results.add(prediction(row));
+        }
+        return Map.of("results", results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> shap(Map<String, Object> body) {
+        return shapOf(((Map<String, Object>) body.get("features")).keySet());
+    }
+
+    private Map<String, Object> shapVector(Map<String, Object> body) {
+        return shapOf(features);
+    }
+
+    private static Map<String, Object> shapOf(Collection<String> names) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String name : names) {
+            if (values.size() == SHAP_FEATURES) {
+                break;
+            }
+            values.put(name, (name.hashCode() % 1000) / 10_000.0);
+        }
+        return Map.of("baseValue", 11.2, "shapValues", values);
+    }
+
+    private static Map<String, Object> prediction(Object features) {
+        double probability = Math.floorMod(features.hashCode(), 10_000) / 10_000.0;
+        return Map.of(
+                "approvalProbability", probability,
+                "decision", probability >= 0.6 ? "APPROVE" : "REJECT"
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private void score(HttpExchange exchange, Scorer scorer) throws IOException {
+        try (exchange) {
+            Map<String, Object> body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = objectMapper.readValue(in, Map.class);
+            }
+            if (body.containsKey("version") && !VERSION.equals(body.get("version"))) {
+                respond(exchange, 409, Map.of("detail", "schema version " + body.get("version") + " is not " + VERSION));
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Thread.sleep(Duration.ofNanos((long) (medianNanos * Math.exp(sigma * random.nextGaussian()))));
+            if (random.nextDouble() < errorRate) {
+                respond(exchange, 500, Map.of("detail", "injected failure"));
+                return;
+            }
+            respond(exchange, 200, scorer.score(body));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Scorer {
+        Map<String, Object> score(Map<String, Object> body);
+    }
+}
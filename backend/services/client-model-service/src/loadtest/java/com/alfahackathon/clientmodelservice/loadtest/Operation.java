@@ -0,0 +1,77 @@
+package com.alfahackathon.clientmodelservice.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** One kind of user interaction, issued against the running service. */
+enum Operation {
+
+    /** A client list page, half of them unfiltered scroll pages, half filtered and sorted. */
+    LIST {
+        @Override
+        int execute(HttpClient http, String baseUrl, int clients) throws Exception {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String query = random.nextBoolean()
+                    ? "/api/clients/scroll?size=50"
+                    : "/api/clients?page=" + random.nextInt(20) + "&size=50&ageMin=" + (18 + random.nextInt(40))
+                            + "&sort=income&direction=desc";
+            return get(http, baseUrl + query);
+        }
+    },
+
+    /** The client card: one client with all of its features. */
+    DETAILS {
+        @Override
+        int execute(HttpClient http, String baseUrl, int clients) throws Exception {
+            return get(http, baseUrl + "/api/client/" + randomId(clients));
+        }
+    },
+
+    /** Opening the score view: a prediction followed by the SHAP explanation for the same client. */
+    SCORE {
+        @Override
+        int execute(HttpClient http, String baseUrl, int clients) throws Exception {
+            return predictAndShap(http, baseUrl, randomId(clients), "");
+        }
+    },
+
+    /** {@link #SCORE} through the async endpoints, which do not hold a request thread. */
+    SCORE_ASYNC {
+        @Override
+        int execute(HttpClient http, String baseUrl, int clients) throws Exception {
+            return predictAndShap(http, baseUrl, randomId(clients), "/async");
+        }
+    };
+
+    /**
+     * @return the HTTP status of the (last) response
+     */
+    abstract int execute(HttpClient http, String baseUrl, int clients) throws Exception;
+
+    private static int predictAndShap(HttpClient http, String baseUrl, long id, String suffix) throws Exception {
+        int status = post(http, baseUrl + "/api/client/" + id + "/predict" + suffix);
+        if (status >= 400) {
+            return status;
+        }
+        return post(http, baseUrl + "/api/client/" + id + "/shap" + suffix);
+    }
+
+    private static long randomId(int clients) {
+        return 1 + ThreadLocalRandom.current().nextInt(clients);
+    }
+
+    private static int get(HttpClient http, String url) throws Exception {
+        return send(http, HttpRequest.newBuilder(URI.create(url)).GET().build());
+    }
+
+    private static int post(HttpClient http, String url) throws Exception {
+        return send(http, HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    private static int send(HttpClient http, HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,93 @@
+package com.alfahackathon.clientmodelservice.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop traffic generator: requests are started on a fixed schedule at the target rate,
+ * each on its own virtual thread, whether or not earlier ones have finished. Latency is measured
+ * from the scheduled start, not the actual one, so a service that falls behind shows the
+ * queueing delay instead of hiding it (no coordinated omission).
+ */
+@Slf4j
+final class TrafficDriver {
+
+    /** Latencies and failures of one operation over one run. */
+    record Result(Histogram latencyMicros, long errors) {}
+
+    private static final long MAX_DRAIN_SECONDS = 60;
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final int clients;
+    private final Operation[] wheel;
+
+    TrafficDriver(HttpClient http, String baseUrl, int clients, Map<Operation, Integer> mix) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.wheel = mix.entrySet().stream()
+                .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(Operation[]::new);
+    }
+
+    Map<Operation, Result> run(int rate, Duration duration) throws InterruptedException {
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new ConcurrentHistogram(3));
+            errors.put(op, new LongAdder());
+        }
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = duration.toNanos() / intervalNanos;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requests; i++) {
+                long scheduled = start + i * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation op = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+                executor.execute(() -> {
+                    boolean failed;
+                    try {
+                        failed = op.execute(http, baseUrl, clients) >= 400;
+                    } catch (Exception ex) {
+                        log.debug("{} failed", op, ex);
+                        failed = true;
+                    }
+                    latencies.get(op).recordValue((System.nanoTime() - scheduled) / 1_000);
+                    if (failed) {
+                        errors.get(op).increment();
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(MAX_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Requests still running {} s after the schedule ended, abandoning them", MAX_DRAIN_SECONDS);
+                executor.shutdownNow();
+            }
+        }
+
+        Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        for (Operation op : wheel) {
+            results.computeIfAbsent(op, o -> new Result(latencies.get(o), errors.get(o).sum()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,43 @@
+package com.alfahackathon.clientmodelservice.config;
+
+import com.alfahackathon.clientmodelservice.service.ClientDataStartup;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Answers {@code /api} requests with {@code 503} and a {@code Retry-After} until
+ * {@link ClientDataStartup} reports the client data ready.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ClientDataGateConfig implements WebMvcConfigurer {
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final ClientDataStartup clientDataStartup;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (clientDataStartup.isReady()) {
+                    return true;
+                }
+                if (clientDataStartup.isFailed()) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Client data failed to load");
+                }
+                response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Client data is loading");
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,33 @@
+package com.alfahackathon.clientmodelservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * In-process predictions from an exported tree model in place of the ML service's predict
+ * endpoints; off while {@code model} is empty.
+ *
+ * @param model      path of an XGBoost JSON or LightGBM text model
+ * @param format     the model's format, by default told from the file extension
+ *                   ({@code .json} is XGBoost, anything else LightGBM)
+ * @param iterations boosting rounds to score with, {@code 0} for the model's own best iteration
+ *                   (XGBoost) or all of them
+ * @param target     what the model predicts: {@code log1p} of the salary, as the ML service's
+ *                   models do, or the salary itself
+ */
+@ConfigurationProperties("ml.local")
+public record LocalModelProperties(
+        String model,
+        @DefaultValue("auto") Format format,
+        @DefaultValue("0") int iterations,
+        @DefaultValue("log1p") Target target
+) {
+
+    public enum Format { AUTO, XGBOOST, LIGHTGBM }
+
+    public enum Target { LOG1P, SALARY }
+
+    public boolean enabled() {
+        return model != null && !model.isBlank();
+    }
+}
@@ -0,0 +1,17 @@
+package com.alfahackathon.clientmodelservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class MlExecutorConfig {
+    @Bean(destroyMethod = "close")
+    public ExecutorService mlExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("ml-call-", 0).factory()
+        );
+    }
+}
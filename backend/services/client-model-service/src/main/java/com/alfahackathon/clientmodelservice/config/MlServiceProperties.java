@@ -0,0 +1,80 @@
+package com.alfahackathon.clientmodelservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("ml.service")
+public record MlServiceProperties(
+        @DefaultValue("http://localhost:8000/predict") String url,
+        @DefaultValue("http://localhost:8080/shap") String shapUrl,
+        @DefaultValue("http://localhost:8000/predict/batch") String batchUrl,
+        @DefaultValue("http://localhost:8000/model") String modelUrl,
+        @DefaultValue("http://localhost:8000/schema") String schemaUrl,
+        @DefaultValue("http://localhost:8000/predict/vector") String vectorUrl,
+        @DefaultValue("http://localhost:8000/predict/vector/batch") String vectorBatchUrl,
+        @DefaultValue("http://localhost:8000/shap/vector") String vectorShapUrl,
+        @DefaultValue("positional") WireFormat wireFormat,
+        @DefaultValue("256") int batchSize,
+        @DefaultValue("5m") Duration modelVersionTtl,
+        @DefaultValue Coalesce coalesce,
+        @DefaultValue Pool pool,
+        @DefaultValue Timeout timeout,
+        @DefaultValue Bulkhead bulkhead,
+        @DefaultValue Circuit circuit,
+        @DefaultValue Hedge hedge
+) {
+
+    /**
+     * How features are sent: {@code positional} arrays in the order of the model's feature
+     * schema, falling back to the {@code map} contract whenever no schema is available, or
+     * always as {@code map}.
+     */
+    public enum WireFormat { POSITIONAL, MAP }
+
+    public record Coalesce(
+            @DefaultValue("0ms") Duration window,
+            @DefaultValue("64") int maxBatch
+    ) {}
+
+    public record Pool(
+            @DefaultValue("64") int maxTotal,
+            @DefaultValue("64") int maxPerRoute,
+            @DefaultValue("30s") Duration idleTimeout,
+            @DefaultValue("5m") Duration timeToLive
+    ) {}
+
+    public record Timeout(
+            @DefaultValue("1s") Duration connect,
+            @DefaultValue("5s") Duration predict,
+            @DefaultValue("10s") Duration shap,
+            @DefaultValue("30s") Duration batch
+    ) {}
+
+    /**
+     * Cap on concurrent ML calls. With {@code adaptive} it starts at {@code initialInFlight} and
+     * moves between {@code minInFlight} and {@code maxInFlight}, cut by {@code backoff} when
+     * calls fail or recent latency exceeds {@code latencyTolerance} times the usual; otherwise
+     * it is {@code maxInFlight}. Calls wait up to {@code maxWait} for a slot.
+     */
+    public record Bulkhead(
+            @DefaultValue("32") int maxInFlight,
+            @DefaultValue("100ms") Duration maxWait,
+            @DefaultValue("true") boolean adaptive,
+            @DefaultValue("4") int minInFlight,
+            @DefaultValue("16") int initialInFlight,
+            @DefaultValue("2.0") double latencyTolerance,
+            @DefaultValue("0.9") double backoff
+    ) {}
+
+    public record Circuit(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("5") int failureThreshold,
+            @DefaultValue("10s") Duration openDuration
+    ) {}
+
+    public record Hedge(
+            @DefaultValue("0ms") Duration delay
+    ) {}
+}
@@ -1,130 +1,501 @@
 package com.alfahackathon.clientmodelservice.controller;
 
-import com.alfahackathon.clientmodelservice.dto.ClientDto;
+import com.alfahackathon.clientmodelservice.dto.ClientFeaturesDto;
+import com.alfahackathon.clientmodelservice.dto.ClientFeaturesScrollDto;
+import com.alfahackathon.clientmodelservice.dto.ClientFilter;
+import com.alfahackathon.clientmodelservice.dto.HotStoreStatsDto;
+import com.alfahackathon.clientmodelservice.dto.ClientScoreDetailsDto;
+import com.alfahackathon.clientmodelservice.dto.ClientScoreDto;
+import com.alfahackathon.clientmodelservice.dto.ClientScrollDto;
 import com.alfahackathon.clientmodelservice.dto.ClientShortDto;
+import com.alfahackathon.clientmodelservice.dto.ClientSort;
+import com.alfahackathon.clientmodelservice.dto.ClientStatsDto;
 import com.alfahackathon.clientmodelservice.dto.ClientWithScoreDto;
 import com.alfahackathon.clientmodelservice.dto.ClientMapper;
+import com.alfahackathon.clientmodelservice.dto.FeaturePredicate;
 import com.alfahackathon.clientmodelservice.model.Client;
-import com.alfahackathon.clientmodelservice.repository.ClientRepository;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.repository.ClientQueryRepository;
+import com.alfahackathon.clientmodelservice.service.ClientExportService;
+import com.alfahackathon.clientmodelservice.service.ClientFeatureBuilder;
+import com.alfahackathon.clientmodelservice.service.ClientHotStore;
+import com.alfahackathon.clientmodelservice.service.ClientReadService;
+import com.alfahackathon.clientmodelservice.service.ClientResponseCache;
+import com.alfahackathon.clientmodelservice.service.ClientScoringJob;
+import com.alfahackathon.clientmodelservice.service.ClientStatsService;
 import com.alfahackathon.clientmodelservice.service.MlClient;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.data.domain.Page;
+import com.alfahackathon.clientmodelservice.util.ScrollCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
+@Slf4j
 @RestController
 @RequestMapping("/api")
 public class ClientController {
 
-    private final ClientRepository clientRepository;
+    private final ClientReadService clientReadService;
+    private final ClientHotStore hotStore;
+    private final ClientStatsService clientStatsService;
+    private final ClientExportService clientExportService;
+    private final ClientResponseCache responseCache;
     private final MlClient mlClient;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ClientScoringJob scoringJob;
+    private final ClientFeatureBuilder featureBuilder;
+    private final ExecutorService mlExecutor;
+    private final int maxBatchPredict;
+    private final int maxPageSize;
+    private final int maxFeatureFields;
+    private final Counter notModified;
 
-    public ClientController(ClientRepository clientRepository, MlClient mlClient) {
-        this.clientRepository = clientRepository;
+    public ClientController(ClientReadService clientReadService,
+                            ClientHotStore hotStore,
+                            ClientStatsService clientStatsService,
+                            ClientExportService clientExportService,
+                            ClientResponseCache responseCache,
+                            MlClient mlClient,
+                            ClientScoringJob scoringJob,
+                            ClientFeatureBuilder featureBuilder,
+                            @Qualifier("mlExecutor") ExecutorService mlExecutor,
+                            @Value("${api.predict.max-batch:1000}") int maxBatchPredict,
+                            @Value("${api.clients.max-page-size:500}") int maxPageSize,
+                            @Value("${api.clients.max-feature-fields:50}") int maxFeatureFields,
+                            MeterRegistry registry) {
+        this.clientReadService = clientReadService;
+        this.hotStore = hotStore;
+        this.clientStatsService = clientStatsService;
+        this.clientExportService = clientExportService;
+        this.responseCache = responseCache;
         this.mlClient = mlClient;
+        this.scoringJob = scoringJob;
+        this.featureBuilder = featureBuilder;
+        this.mlExecutor = mlExecutor;
+        this.maxBatchPredict = maxBatchPredict;
+        this.maxPageSize = maxPageSize;
+        this.maxFeatureFields = maxFeatureFields;
+        this.notModified = Counter.builder("clients.responses.not_modified")
+                .description("Client responses answered 304 from the If-None-Match header alone")
+                .register(registry);
     }
 
     @GetMapping("/clients")
-    public Page<ClientShortDto> listClients(
+    public ResponseEntity<byte[]> listClients(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size
+            @RequestParam(defaultValue = "20") int size,
+            ClientFilter filter,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            HttpServletRequest request
     ) {
+        checkPageSize(size);
+        checkFeatures(filter);
         Pageable pageable = PageRequest.of(page, size);
+        ClientSort clientSort = parseSort(sort);
+        boolean descending = isDescending(direction);
 
-        return clientRepository.findAll(pageable)
-                .map(this::toShortDto);
+        return cachedJson(request, clientSort == ClientSort.PROBABILITY,
+                () -> clientReadService.findShortPage(filter, clientSort, descending, pageable));
     }
 
-    private ClientShortDto toShortDto(Client e) {
-        return new ClientShortDto(
-                e.getId(),
-                e.getAge(),
-                e.getAdminarea(),
-                e.getIncomeValue()
-        );
+    /**
+     * Keyset page: each page costs the same however deep it is, and no count is run unless
+     * {@code withTotal} is set (and then it is served from a short-lived cache). The cursor
+     * belongs to the sort it was issued for.
+     */
+    @GetMapping("/clients/scroll")
+    public ResponseEntity<byte[]> scrollClients(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            ClientFilter filter,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            HttpServletRequest request
+    ) {
+        checkPageSize(size);
+        checkFeatures(filter);
+        ClientSort clientSort = parseSort(sort);
+        boolean descending = isDescending(direction);
+        ScrollCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = ScrollCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            if (after.sort() != clientSort || after.descending() != descending) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor was issued for a different sort");
+            }
+        }
+        ScrollCursor from = after;
+
+        return cachedJson(request, clientSort == ClientSort.PROBABILITY, () -> {
+            List<ClientQueryRepository.Row> rows =
+                    clientReadService.findShortAfter(filter, clientSort, descending, from, size + 1);
+            String next = null;
+            if (rows.size() > size) {
+                rows = rows.subList(0, size);
+                ClientQueryRepository.Row last = rows.get(size - 1);
+                next = new ScrollCursor(clientSort, descending, clientSort.formatKey(last.sortKey()), last.client().id())
+                        .encode();
+            }
+            List<ClientShortDto> content = rows.stream().map(ClientQueryRepository.Row::client).toList();
+            return new ClientScrollDto(content, next, withTotal ? clientReadService.count(filter) : null);
+        });
+    }
+
+    /**
+     * Only the named feature cells of each client, selected by the database from the jsonb
+     * column, in id order with the same cursors as {@link #scrollClients} in the default sort.
+     */
+    @GetMapping("/clients/features")
+    public ClientFeaturesScrollDto clientFeatures(
+            @RequestParam List<String> fields,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            ClientFilter filter
+    ) {
+        checkPageSize(size);
+        checkFeatures(filter);
+        checkFields(fields);
+        if (fields.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one field is required");
+        }
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            ScrollCursor after;
+            try {
+                after = ScrollCursor.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            if (after.sort() != ClientSort.ID || after.descending()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor was issued for a different sort");
+            }
+            afterId = after.lastId();
+        }
+
+        List<ClientFeaturesDto> rows = clientReadService.findFeaturesAfter(filter, fields, afterId, size + 1);
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            next = new ScrollCursor(ClientSort.ID, false, null, rows.get(size - 1).id()).encode();
+        }
+        return new ClientFeaturesScrollDto(rows, next);
+    }
+
+    /**
+     * Every client matching the filter in id order, as NDJSON or CSV, optionally with feature
+     * cells and stored scores, and gzip-compressed when {@code gzip} is set. Rows are written to
+     * the response as they come from the database cursor, on the request thread rather than an
+     * async one so that long exports are not cut off by the async request timeout. A failure
+     * after the first bytes are sent can only abort the response.
+     */
+    @GetMapping("/clients/export")
+    public void exportClients(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean features,
+            @RequestParam(defaultValue = "false") boolean scores,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            ClientFilter filter,
+            HttpServletResponse response
+    ) throws IOException {
+        checkFeatures(filter);
+        ClientExportService.Format exportFormat;
+        try {
+            exportFormat = ClientExportService.Format.parse(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be ndjson or csv");
+        }
+
+        String fileName = "clients." + exportFormat.name().toLowerCase(Locale.ROOT) + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip"
+                : exportFormat == ClientExportService.Format.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
+        try (OutputStream out = gzip ? fastGzip(response.getOutputStream()) : response.getOutputStream()) {
+            clientExportService.export(filter, exportFormat, features, scores, out);
+        }
+    }
+
+    /** Deflate at its fastest level: about five times the throughput of the default for a fifth more bytes. */
+    private static OutputStream fastGzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, 1 << 16) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    @GetMapping("/clients/stats")
+    public ClientStatsDto clientStats() {
+        return clientStatsService.stats();
+    }
+
+    private static ClientSort parseSort(String sort) {
+        try {
+            return ClientSort.parse(sort);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Unknown sort '" + sort + "', expected one of " + Arrays.toString(ClientSort.values())
+            );
+        }
+    }
+
+    private static boolean isDescending(String direction) {
+        return switch (direction.toLowerCase(Locale.ROOT)) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Direction must be asc or desc");
+        };
+    }
+
+    private void checkFeatures(ClientFilter filter) {
+        for (FeaturePredicate p : filter.feature()) {
+            if (!featureBuilder.isKnown(p.name())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown feature '" + p.name() + "'");
+            }
+        }
+    }
+
+    private void checkFields(List<String> fields) {
+        if (fields.size() > maxFeatureFields) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "At most " + maxFeatureFields + " fields per request"
+            );
+        }
+        for (String name : fields) {
+            if (!featureBuilder.isKnown(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown feature '" + name + "'");
+            }
+        }
+    }
+
+    private void checkPageSize(int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + maxPageSize
+            );
+        }
     }
 
+    @GetMapping("/clients/hot-store")
+    public HotStoreStatsDto hotStoreStats() {
+        return hotStore.stats();
+    }
+
+    /**
+     * @param fields when given, only these feature cells are returned
+     */
     @GetMapping("/client/{id}")
-    public ClientDto getClient(@PathVariable Long id) {
-        Client e = clientRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Client not found"
-                ));
-        return ClientMapper.toDto(e);
+    public ResponseEntity<byte[]> getClient(@PathVariable Long id,
+                                            @RequestParam(required = false) List<String> fields,
+                                            HttpServletRequest request) {
+        if (fields != null) {
+            checkFields(fields);
+        }
+        return cachedJson(request, false, () -> {
+            Client e = clientReadService.findById(id)
+                    .orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.NOT_FOUND, "Client not found"
+                    ));
+            return ClientMapper.toDto(e, fields == null ? featureBuilder.parse(e) : featureBuilder.parse(e, fields));
+        });
+    }
+
+    /**
+     * Serves {@code body} as JSON through {@link ClientResponseCache}, keyed by the request URL.
+     * The response carries the data version as a strong ETag and must be revalidated; a
+     * matching {@code If-None-Match} gets {@code 304} without {@code body} being called.
+     *
+     * @param withScores whether the response depends on stored scores
+     */
+    private ResponseEntity<byte[]> cachedJson(HttpServletRequest request, boolean withScores, Supplier<?> body) {
+        String matched = responseCache.matchingEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), withScores);
+        if (matched != null) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(matched)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        String key = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + '?' + request.getQueryString();
+        boolean gzip = ClientResponseCache.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        ClientResponseCache.Response response = responseCache.get(key, withScores, gzip, body);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .eTag(response.etag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (response.gzipped()) {
+            ok.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return ok.body(response.body());
     }
 
     @PostMapping("/client/{id}/predict")
-    public ClientWithScoreDto predict(@PathVariable Long id) throws IOException {
-        Client e = clientRepository.findById(id)
+    public ClientWithScoreDto predict(@PathVariable Long id) {
+        Client e = clientReadService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Client not found"
                 ));
 
-        Map<String, Object> features = new HashMap<>();
+        Map<String, Object> extra = featureBuilder.parse(e);
+
+        Map<String, Object> mlResp = scoringJob.storedPrediction(e);
+        if (mlResp == null) {
+            mlResp = mlClient.predict(e.getId(), featureBuilder.payload(e));
+        }
+        Double prob = (Double) mlResp.get("approvalProbability");
+        String decision = (String) mlResp.get("decision");
 
-        features.put("age", e.getAge());
-        features.put("gender", e.getGender());
-        features.put("adminarea", e.getAdminarea());
-        features.put("incomeValue", e.getIncomeValue());
-        features.put("incomeValueCategory", e.getIncomeCategory());
-        features.put("city_smart_name", e.getCitySmartName());
+        return ClientMapper.toClientWithScoreDto(e, extra, prob, decision);
+    }
 
-        String rawFeaturesJson = e.getFeatures();
-        if (rawFeaturesJson != null && !rawFeaturesJson.isBlank()) {
-            Map<String, Object> extra = objectMapper.readValue(
-                    rawFeaturesJson,
-                    new TypeReference<Map<String, Object>>() {}
+    @PostMapping("/clients/predict")
+    public List<ClientScoreDto> predictBatch(@RequestBody List<Long> ids) {
+        if (ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one id is required");
+        }
+        if (ids.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ids must not be null");
+        }
+        if (ids.size() > maxBatchPredict) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "At most " + maxBatchPredict + " ids per request"
             );
-            features.putAll(extra);
         }
 
-        Map<String, Object> mlResp = mlClient.predict(features);
-        Double prob = (Double) mlResp.get("approvalProbability");
-        String decision = (String) mlResp.get("decision");
+        Map<Long, Map<String, Object>> scores = new HashMap<>();
+        Map<Long, FeaturePayload> featuresById = new LinkedHashMap<>();
+        for (Client e : clientReadService.findAllById(new LinkedHashSet<>(ids))) {
+            Map<String, Object> stored = scoringJob.storedPrediction(e);
+            if (stored != null) {
+                scores.put(e.getId(), stored);
+            } else {
+                featuresById.put(e.getId(), featureBuilder.payload(e));
+            }
+        }
+
+        if (!featuresById.isEmpty()) {
+            scores.putAll(mlClient.predictBatch(featuresById));
+        }
 
-        return ClientMapper.toClientWithScoreDto(e, prob, decision);
+        List<ClientScoreDto> result = new ArrayList<>(scores.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Map<String, Object> mlResp = scores.get(id);
+            if (mlResp != null) {
+                result.add(new ClientScoreDto(
+                        id,
+                        (Double) mlResp.get("approvalProbability"),
+                        (String) mlResp.get("decision")
+                ));
+            }
+        }
+        return result;
     }
 
     @PostMapping("/client/{id}/shap")
-    public Map<String, Object> shap(@PathVariable Long id) throws IOException {
-        Client e = clientRepository.findById(id)
+    public Map<String, Object> shap(@PathVariable Long id) {
+        Client e = clientReadService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Client not found"
                 ));
 
-        Map<String, Object> features = buildFeatures(e);
-
-        return mlClient.shap(features);
+        return mlClient.shap(e.getId(), featureBuilder.payload(e));
     }
 
-    private Map<String, Object> buildFeatures(Client e) throws IOException {
-        Map<String, Object> features = new HashMap<>();
+    /**
+     * Prediction and SHAP for one client from a single DB read and feature build. The two ML
+     * calls run concurrently; a SHAP failure leaves {@code shap} empty instead of failing the
+     * whole response, as the details page treated it before.
+     */
+    @PostMapping("/client/{id}/score")
+    public ClientScoreDetailsDto score(@PathVariable Long id) {
+        Client e = clientReadService.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Client not found"
+                ));
+
+        Map<String, Object> extra = featureBuilder.parse(e);
+        FeaturePayload features = featureBuilder.payload(e);
 
-        features.put("age", e.getAge());
-        features.put("gender", e.getGender());
-        features.put("adminarea", e.getAdminarea());
-        features.put("incomeValue", e.getIncomeValue());
-        features.put("incomeValueCategory", e.getIncomeCategory());
-        features.put("city_smart_name", e.getCitySmartName());
+        Map<String, Object> stored = scoringJob.storedPrediction(e);
+        CompletableFuture<Map<String, Object>> prediction = stored != null
+                ? CompletableFuture.completedFuture(stored)
+                : CompletableFuture.supplyAsync(() -> mlClient.predict(e.getId(), features), mlExecutor);
 
-        String rawFeaturesJson = e.getFeatures();
-        if (rawFeaturesJson != null && !rawFeaturesJson.isBlank()) {
-            Map<String, Object> extra = objectMapper.readValue(
-                    rawFeaturesJson,
-                    new TypeReference<Map<String, Object>>() {}
-            );
-            features.putAll(extra);
+        Map<String, Object> shap = null;
+        try {
+            shap = mlClient.shap(e.getId(), features);
+        } catch (ResponseStatusException ex) {
+            log.warn("SHAP for client {} failed: {}", id, ex.getReason());
         }
 
-        return features;
+        Map<String, Object> mlResp = join(prediction);
+        Double prob = (Double) mlResp.get("approvalProbability");
+        String decision = (String) mlResp.get("decision");
+
+        return ClientMapper.toScoreDetailsDto(e, extra, prob, decision, shap);
+    }
+
+    /**
+     * {@link #predict} without holding the request thread: the handler runs on the virtual-thread
+     * ML executor and the response completes when the ML call returns. Same results and errors.
+     */
+    @PostMapping("/client/{id}/predict/async")
+    public CompletableFuture<ClientWithScoreDto> predictAsync(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> predict(id), mlExecutor);
+    }
+
+    /** {@link #shap} on the ML executor, see {@link #predictAsync}. */
+    @PostMapping("/client/{id}/shap/async")
+    public CompletableFuture<Map<String, Object>> shapAsync(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> shap(id), mlExecutor);
+    }
+
+    /** {@link #score} on the ML executor, see {@link #predictAsync}. */
+    @PostMapping("/client/{id}/score/async")
+    public CompletableFuture<ClientScoreDetailsDto> scoreAsync(@PathVariable Long id) {
+        return CompletableFuture.supplyAsync(() -> score(id), mlExecutor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
     }
 }
@@ -0,0 +1,46 @@
+package com.alfahackathon.clientmodelservice.controller;
+
+import com.alfahackathon.clientmodelservice.dto.IngestReportDto;
+import com.alfahackathon.clientmodelservice.service.ClientCsvLoader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/ingest")
+public class IngestController {
+
+    private final ClientCsvLoader clientCsvLoader;
+    private final boolean refreshEnabled;
+
+    public IngestController(ClientCsvLoader clientCsvLoader,
+                            @Value("${ingest.refresh.enabled:false}") boolean refreshEnabled) {
+        this.clientCsvLoader = clientCsvLoader;
+        this.refreshEnabled = refreshEnabled;
+    }
+
+    /**
+     * Applies the CSV sent as the request body, in the layout of the initial load, to the stored
+     * clients; it is read as it arrives rather than buffered. See {@link ClientCsvLoader#refresh}.
+     * Answers {@code 404} unless {@code ingest.refresh.enabled} is set, as the path shares
+     * {@code /api} with the frontend.
+     *
+     * @param deleteMissing delete stored clients the file does not contain
+     */
+    @PostMapping("/refresh")
+    public IngestReportDto refresh(InputStream body,
+                                   @RequestParam(defaultValue = "false") boolean deleteMissing)
+            throws IOException, InterruptedException {
+        if (!refreshEnabled) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return clientCsvLoader.refresh(body, deleteMissing);
+    }
+}
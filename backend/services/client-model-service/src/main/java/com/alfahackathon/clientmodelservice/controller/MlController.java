@@ -0,0 +1,46 @@
+package com.alfahackathon.clientmodelservice.controller;
+
+import com.alfahackathon.clientmodelservice.dto.MlCacheStatsDto;
+import com.alfahackathon.clientmodelservice.dto.ScoringProgressDto;
+import com.alfahackathon.clientmodelservice.service.ClientScoringJob;
+import com.alfahackathon.clientmodelservice.service.MlResultCache;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ml")
+public class MlController {
+
+    private final MlResultCache mlResultCache;
+    private final ClientScoringJob scoringJob;
+
+    public MlController(MlResultCache mlResultCache, ClientScoringJob scoringJob) {
+        this.mlResultCache = mlResultCache;
+        this.scoringJob = scoringJob;
+    }
+
+    @GetMapping("/cache")
+    public Map<String, MlCacheStatsDto> cacheStats() {
+        return mlResultCache.stats();
+    }
+
+    @GetMapping("/scoring")
+    public ScoringProgressDto scoringProgress() {
+        return scoringJob.progress();
+    }
+
+    @PostMapping("/scoring/start")
+    public ScoringProgressDto startScoring() {
+        return scoringJob.start();
+    }
+
+    @PostMapping("/scoring/stop")
+    public ScoringProgressDto stopScoring() {
+        scoringJob.stop();
+        return scoringJob.progress();
+    }
+}
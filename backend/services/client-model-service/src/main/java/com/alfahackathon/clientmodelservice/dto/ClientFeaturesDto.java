@@ -0,0 +1,9 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.util.Map;
+
+/** A client's id with the feature cells a caller asked for. */
+public record ClientFeaturesDto(
+        long id,
+        Map<String, Object> features
+) {}
@@ -0,0 +1,12 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of projected client features, in id order; {@code next} is {@code null} on
+ * the last page.
+ */
+public record ClientFeaturesScrollDto(
+        List<ClientFeaturesDto> content,
+        String next
+) {}
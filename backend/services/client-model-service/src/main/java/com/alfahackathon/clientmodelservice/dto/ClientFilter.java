@@ -0,0 +1,30 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Optional narrowing of the client list; {@code null} fields do not filter. {@code feature}
+ * holds the repeated {@code feature=name:op:value} parameters, all of which must hold.
+ */
+public record ClientFilter(
+        String region,
+        String gender,
+        Integer ageMin,
+        Integer ageMax,
+        BigDecimal incomeMin,
+        BigDecimal incomeMax,
+        String incomeCategory,
+        List<FeaturePredicate> feature
+) {
+
+    public static final ClientFilter NONE = new ClientFilter(null, null, null, null, null, null, null, null);
+
+    public ClientFilter {
+        feature = feature == null ? List.of() : List.copyOf(feature);
+    }
+
+    public boolean isEmpty() {
+        return equals(NONE);
+    }
+}
@@ -1,19 +1,21 @@
 package com.alfahackathon.clientmodelservice.dto;
 
 import com.alfahackathon.clientmodelservice.model.Client;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.SneakyThrows;
 
-import java.util.Collections;
 import java.util.Map;
 
 public class ClientMapper {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    public static ClientShortDto toShortDto(Client e) {
+        return new ClientShortDto(
+                e.getId(),
+                e.getAge(),
+                e.getAdminarea(),
+                e.getIncomeValue()
+        );
+    }
 
-    @SneakyThrows
-    public static ClientDto toDto(Client e) {
+    public static ClientDto toDto(Client e, Map<String, Object> featuresMap) {
         ClientDto dto = new ClientDto();
         dto.setId(e.getId());
         dto.setAge(e.getAge());
@@ -21,26 +23,32 @@ public class ClientMapper {
         dto.setAdminarea(e.getAdminarea());
         dto.setIncomeValue(e.getIncomeValue());
         dto.setIncomeCategory(e.getIncomeCategory());
-
-        Map<String, Object> featuresMap = Collections.emptyMap();
-        if (e.getFeatures() != null && !e.getFeatures().isBlank()) {
-            featuresMap = OBJECT_MAPPER.readValue(
-                    e.getFeatures(),
-                    new TypeReference<Map<String, Object>>() {}
-            );
-        }
         dto.setFeatures(featuresMap);
 
         return dto;
     }
 
     public static ClientWithScoreDto toClientWithScoreDto(Client e,
+                                                          Map<String, Object> featuresMap,
                                                           Double prob,
                                                           String decision) {
         ClientWithScoreDto dto = new ClientWithScoreDto();
-        dto.setClient(toDto(e));
+        dto.setClient(toDto(e, featuresMap));
+        dto.setApprovalProbability(prob);
+        dto.setDecision(decision);
+        return dto;
+    }
+
+    public static ClientScoreDetailsDto toScoreDetailsDto(Client e,
+                                                          Map<String, Object> featuresMap,
+                                                          Double prob,
+                                                          String decision,
+                                                          Map<String, Object> shap) {
+        ClientScoreDetailsDto dto = new ClientScoreDetailsDto();
+        dto.setClient(toDto(e, featuresMap));
         dto.setApprovalProbability(prob);
         dto.setDecision(decision);
+        dto.setShap(shap);
         return dto;
     }
 }
@@ -0,0 +1,13 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class ClientScoreDetailsDto {
+    private ClientDto client;
+    private Double approvalProbability;
+    private String decision;
+    private Map<String, Object> shap;
+}
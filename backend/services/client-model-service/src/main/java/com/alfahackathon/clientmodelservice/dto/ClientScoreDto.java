@@ -0,0 +1,7 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+public record ClientScoreDto(
+        Long id,
+        Double approvalProbability,
+        String decision
+) {}
@@ -0,0 +1,13 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of clients. {@code next} is the cursor for the following page and is
+ * {@code null} on the last one; {@code totalElements} is only filled in when requested.
+ */
+public record ClientScrollDto(
+        List<ClientShortDto> content,
+        String next,
+        Long totalElements
+) {}
@@ -0,0 +1,54 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Sort keys of the client list, each backed by a {@code (column, id)} index. Ties are ordered
+ * by id; {@code null}s come last ascending and first descending, as the index stores them.
+ */
+public enum ClientSort {
+
+    ID("id"),
+    AGE("age"),
+    INCOME("income_value"),
+    PROBABILITY("approval_probability");
+
+    private final String column;
+
+    ClientSort(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /**
+     * The SQL parameter for a key written by {@link #formatKey}.
+     *
+     * @throws NumberFormatException when the key does not belong to this sort
+     */
+    public Object parseKey(String key) {
+        return switch (this) {
+            case ID -> Long.valueOf(key);
+            case AGE -> Integer.valueOf(key);
+            case INCOME -> new BigDecimal(key);
+            case PROBABILITY -> Double.valueOf(key);
+        };
+    }
+
+    public String formatKey(Object key) {
+        if (key == null) {
+            return null;
+        }
+        return key instanceof BigDecimal decimal ? decimal.toPlainString() : key.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown key
+     */
+    public static ClientSort parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,18 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+public record ClientStatsDto(
+        long total,
+        Map<String, Long> byRegion,
+        Map<String, Long> byGender,
+        Map<String, Long> byAgeBucket,
+        Map<String, Long> byIncomeCategory,
+        List<Bucket> incomeHistogram
+) {
+
+    /** Income range {@code [from, to)}; {@code null} bounds are open. */
+    public record Bucket(BigDecimal from, BigDecimal to, long count) {}
+}
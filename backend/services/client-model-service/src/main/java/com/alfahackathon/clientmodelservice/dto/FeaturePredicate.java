@@ -0,0 +1,64 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * A condition on one feature cell, written {@code name:op:value} in the query string, e.g.
+ * {@code turn_cur_cr_avg_act_v2:gt:1000}. {@code eq} and {@code ne} compare numbers numerically
+ * and anything else as text; the ordering operators only match numeric cells. Clients without
+ * the feature match no operator.
+ */
+public record FeaturePredicate(String name, Op op, String value) {
+
+    public enum Op {
+        EQ, NE, GT, GTE, LT, LTE;
+
+        public boolean ordering() {
+            return this != EQ && this != NE;
+        }
+    }
+
+    public FeaturePredicate {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Feature name is required");
+        }
+        if (op.ordering() && parseNumber(value) == null) {
+            throw new IllegalArgumentException("Feature " + name + ": " + op + " needs a number, got '" + value + "'");
+        }
+    }
+
+    /**
+     * Parses {@code name:op:value}; the value is everything after the second colon.
+     *
+     * @throws IllegalArgumentException when the text is not in that form
+     */
+    public static FeaturePredicate valueOf(String text) {
+        String[] parts = text.split(":", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Feature filter must be name:op:value, got '" + text + "'");
+        }
+        Op op;
+        try {
+            op = Op.valueOf(parts[1].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown feature operator '" + parts[1] + "'");
+        }
+        return new FeaturePredicate(parts[0].trim(), op, parts[2]);
+    }
+
+    /**
+     * @return the value as a number, or {@code null} when it is not one
+     */
+    public BigDecimal number() {
+        return parseNumber(value);
+    }
+
+    private static BigDecimal parseNumber(String text) {
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
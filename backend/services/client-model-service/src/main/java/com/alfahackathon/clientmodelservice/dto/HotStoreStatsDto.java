@@ -0,0 +1,10 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+public record HotStoreStatsDto(
+        boolean enabled,
+        boolean complete,
+        long clients,
+        long footprintBytes,
+        long budgetBytes,
+        long warmMillis
+) {}
@@ -0,0 +1,16 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+/**
+ * Outcome of a delta ingest: {@code rejected} rows had the wrong number of cells or no id;
+ * of the clients read, {@code inserted} were new, {@code updated} had changed and
+ * {@code unchanged} were skipped, and {@code deleted} stored clients were not in the file.
+ */
+public record IngestReportDto(
+        long rows,
+        long rejected,
+        long inserted,
+        long updated,
+        long unchanged,
+        long deleted,
+        long millis
+) {}
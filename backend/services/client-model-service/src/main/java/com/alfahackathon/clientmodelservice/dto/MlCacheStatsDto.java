@@ -0,0 +1,9 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+public record MlCacheStatsDto(
+        long size,
+        long hits,
+        long misses,
+        long evictions,
+        double hitRate
+) {}
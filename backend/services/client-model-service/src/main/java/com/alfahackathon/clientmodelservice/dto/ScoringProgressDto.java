@@ -0,0 +1,16 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import com.alfahackathon.clientmodelservice.service.ClientScoringJob;
+
+import java.time.Instant;
+
+public record ScoringProgressDto(
+        ClientScoringJob.State state,
+        String modelVersion,
+        long total,
+        long scored,
+        double clientsPerSecond,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {}
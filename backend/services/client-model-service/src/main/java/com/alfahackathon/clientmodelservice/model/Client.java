@@ -1,6 +1,5 @@
 package com.alfahackathon.clientmodelservice.model;
 
-import com.alfahackathon.clientmodelservice.util.JsonbConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -29,6 +28,16 @@ public class Client {
     private BigDecimal incomeValue;
     private String incomeCategory;
 
-    @Column(columnDefinition = "text")
-    private String features;
+    @Column(columnDefinition = "bytea")
+    private byte[] featureVector;
+
+    private Double approvalProbability;
+    private String decision;
+    private String scoreModelVersion;
+
+    public Client(Client other) {
+        this(other.id, other.dt, other.gender, other.age, other.adminarea, other.citySmartName,
+                other.incomeValue, other.incomeCategory, other.featureVector,
+                other.approvalProbability, other.decision, other.scoreModelVersion);
+    }
 }
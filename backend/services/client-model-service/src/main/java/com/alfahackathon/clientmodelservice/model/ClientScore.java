@@ -0,0 +1,13 @@
+package com.alfahackathon.clientmodelservice.model;
+
+/**
+ * A score for a client, to be stored only while the client still has the content it was computed
+ * from.
+ */
+public record ClientScore(
+        long clientId,
+        Long contentHash,
+        Double approvalProbability,
+        String decision,
+        String modelVersion
+) {}
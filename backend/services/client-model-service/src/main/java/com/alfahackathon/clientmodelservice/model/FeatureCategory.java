@@ -0,0 +1,19 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "feature_categories")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeatureCategory {
+    @Id
+    private Integer code;
+
+    @Column(columnDefinition = "text", nullable = false, unique = true)
+    private String value;
+}
@@ -0,0 +1,19 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "feature_columns")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeatureColumn {
+    @Id
+    private Integer idx;
+
+    @Column(nullable = false, unique = true)
+    private String name;
+}
@@ -0,0 +1,159 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Shared dictionary behind {@link FeatureVector}: feature column names and categorical values,
+ * each addressed by a dense int code in order of first appearance. Lookups are lock-free; new
+ * entries are added under a lock.
+ * <p>
+ * A dictionary backed by a {@link Source} takes the code of a new entry from it, so instances
+ * sharing the source agree on every code, and asks it for codes other instances added when a
+ * vector refers to one. Without a source, codes are assigned here and new entries are kept as
+ * pending.
+ */
+public class FeatureDictionary {
+
+    /**
+     * Where codes are shared between instances.
+     *
+     * @param allocate the code of a value, added if new
+     * @param lookup   the value of a code, or {@code null} when there is none
+     */
+    public record Source(ToIntFunction<String> allocate, IntFunction<String> lookup) {}
+
+    private final Section columns;
+    private final Section categories;
+
+    public FeatureDictionary(List<String> columnNames, List<String> categoryValues) {
+        this(columnNames, categoryValues, null, null);
+    }
+
+    /**
+     * @param columnNames    the column names known so far, by index
+     * @param categoryValues the categorical values known so far, by code
+     */
+    public FeatureDictionary(List<String> columnNames, List<String> categoryValues,
+                             Source columnSource, Source categorySource) {
+        this.columns = new Section(columnNames, columnSource);
+        this.categories = new Section(categoryValues, categorySource);
+    }
+
+    public static FeatureDictionary empty() {
+        return new FeatureDictionary(List.of(), List.of());
+    }
+
+    public int columnIndex(String name) {
+        return columns.codeOf(name);
+    }
+
+    /**
+     * @return the column's index, or {@code -1} when the dictionary has never seen it; columns
+     * other instances added are found once a vector here referred to them
+     */
+    public int findColumn(String name) {
+        Integer idx = columns.codes.get(name);
+        return idx == null ? -1 : idx;
+    }
+
+    public String columnName(int idx) {
+        return columns.valueOf(idx);
+    }
+
+    public int columnCount() {
+        return columns.size;
+    }
+
+    public int categoryCode(String value) {
+        return categories.codeOf(value);
+    }
+
+    public String categoryValue(int code) {
+        return categories.valueOf(code);
+    }
+
+    /** Columns added here and held by no source. */
+    public List<String> pendingColumns() {
+        return columns.pending();
+    }
+
+    /** Categorical values added here and held by no source. */
+    public List<String> pendingCategories() {
+        return categories.pending();
+    }
+
+    private static final class Section {
+
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private final Source source;
+        private volatile String[] values;
+        private volatile int size;
+        private final int persisted;
+
+        Section(List<String> initial, Source source) {
+            this.source = source;
+            values = initial.toArray(new String[Math.max(initial.size(), 16)]);
+            for (int i = 0; i < initial.size(); i++) {
+                codes.put(initial.get(i), i);
+            }
+            size = initial.size();
+            persisted = size;
+        }
+
+        int codeOf(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            synchronized (this) {
+                code = codes.get(value);
+                if (code != null) {
+                    return code;
+                }
+                int next = source == null ? size : source.allocate().applyAsInt(value);
+                put(next, value);
+                return next;
+            }
+        }
+
+        String valueOf(int code) {
+            String[] arr = values;
+            String value = code < arr.length ? arr[code] : null;
+            return value != null ? value : missing(code);
+        }
+
+        private synchronized String missing(int code) {
+            String[] arr = values;
+            if (code < arr.length && arr[code] != null) {
+                return arr[code];
+            }
+            String value = source == null ? null : source.lookup().apply(code);
+            if (value == null) {
+                throw new IllegalStateException("Unknown dictionary code " + code);
+            }
+            put(code, value);
+            return value;
+        }
+
+        /** Codes from a source may skip ones other instances took; those stay null until needed. */
+        private void put(int code, String value) {
+            String[] arr = values;
+            if (code >= arr.length) {
+                arr = Arrays.copyOf(arr, Math.max(arr.length * 2, code + 1));
+            }
+            arr[code] = value;
+            values = arr;
+            size = Math.max(size, code + 1);
+            codes.put(value, code);
+        }
+
+        synchronized List<String> pending() {
+            return source == null ? List.of(Arrays.copyOfRange(values, persisted, size)) : List.of();
+        }
+    }
+}
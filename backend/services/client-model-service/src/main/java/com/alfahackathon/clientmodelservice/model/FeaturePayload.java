@@ -0,0 +1,33 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * A client's features as the ML service takes them, already serialized, plus the hash of those
+ * bytes that keys cached ML results. Request bodies are assembled around the bytes without
+ * parsing them again. Compared by identity, like any record holding an array.
+ * <p>
+ * The bytes are either the JSON object of the map contract ({@code schemaVersion} is
+ * {@code null}) or a positional array for the schema of {@code schemaVersion}; a positional
+ * payload can still produce its map form for when the service turns the positional call down.
+ */
+public record FeaturePayload(byte[] json, int hash, String schemaVersion, Supplier<FeaturePayload> mapForm) {
+
+    public static FeaturePayload of(byte[] json) {
+        return new FeaturePayload(json, Arrays.hashCode(json), null, null);
+    }
+
+    public static FeaturePayload positional(byte[] json, String schemaVersion, Supplier<FeaturePayload> mapForm) {
+        return new FeaturePayload(json, Arrays.hashCode(json), schemaVersion, mapForm);
+    }
+
+    public boolean isPositional() {
+        return schemaVersion != null;
+    }
+
+    /** This payload in the map contract, built on demand for positional payloads. */
+    public FeaturePayload toMap() {
+        return isPositional() ? mapForm.get() : this;
+    }
+}
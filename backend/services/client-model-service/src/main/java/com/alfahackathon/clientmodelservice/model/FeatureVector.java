@@ -0,0 +1,209 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded form of a client's features: the present cells only, as parallel primitive arrays
+ * sorted by dictionary column index. Numbers live directly in {@code values}; categorical cells
+ * hold their {@link FeatureDictionary} category code there instead.
+ */
+public final class FeatureVector {
+
+    /** Integral number, exact in a double. */
+    public static final byte INT = 0;
+    /** Fractional number. */
+    public static final byte DOUBLE = 1;
+    /** Text value, stored as a category code. */
+    public static final byte CATEGORY = 2;
+    /** Integral number too large for a double, stored as the category code of its digits. */
+    public static final byte BIG_INT = 3;
+
+    private static final long MAX_EXACT_INT = 1L << 53;
+
+    private static final FeatureVector EMPTY = new FeatureVector(new int[0], new byte[0], new double[0]);
+
+    private final int[] columns;
+    private final byte[] kinds;
+    private final double[] values;
+
+    public FeatureVector(int[] columns, byte[] kinds, double[] values) {
+        this.columns = columns;
+        this.kinds = kinds;
+        this.values = values;
+    }
+
+    public static FeatureVector empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return columns.length;
+    }
+
+    public int column(int i) {
+        return columns[i];
+    }
+
+    public byte kind(int i) {
+        return kinds[i];
+    }
+
+    public double value(int i) {
+        return values[i];
+    }
+
+    /**
+     * @return the cell index holding {@code column}, or {@code -1} when it is absent
+     */
+    public int indexOf(int column) {
+        int i = Arrays.binarySearch(columns, column);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * The cell as the JSON parser would have produced it: {@link Integer} or {@link Long} for
+     * integral numbers, {@link Double} for fractional ones and {@link String} for text.
+     */
+    public Object valueObject(int i, FeatureDictionary dictionary) {
+        return switch (kinds[i]) {
+            case INT -> {
+                long v = (long) values[i];
+                yield v == (int) v ? (Object) (int) v : (Object) v;
+            }
+            case DOUBLE -> values[i];
+            case CATEGORY -> dictionary.categoryValue((int) values[i]);
+            case BIG_INT -> Long.parseLong(dictionary.categoryValue((int) values[i]));
+            default -> throw new IllegalStateException("Unknown feature kind " + kinds[i]);
+        };
+    }
+
+    public Map<String, Object> toMap(FeatureDictionary dictionary) {
+        Map<String, Object> map = new LinkedHashMap<>(columns.length * 4 / 3 + 1);
+        for (int i = 0; i < columns.length; i++) {
+            map.put(dictionary.columnName(columns[i]), valueObject(i, dictionary));
+        }
+        return map;
+    }
+
+    public static FeatureVector fromMap(Map<String, ?> features, FeatureDictionary dictionary) {
+        Builder builder = builder(features.size(), dictionary);
+        features.forEach((name, value) -> {
+            if (value != null) {
+                builder.add(dictionary.columnIndex(name), value);
+            }
+        });
+        return builder.build();
+    }
+
+    public static Builder builder(int capacity, FeatureDictionary dictionary) {
+        return new Builder(capacity, dictionary);
+    }
+
+    public static final class Builder {
+
+        private final FeatureDictionary dictionary;
+        private int[] columns;
+        private byte[] kinds;
+        private double[] values;
+        private int size;
+        private boolean sorted = true;
+
+        private Builder(int capacity, FeatureDictionary dictionary) {
+            this.dictionary = dictionary;
+            int initial = Math.max(capacity, 4);
+            this.columns = new int[initial];
+            this.kinds = new byte[initial];
+            this.values = new double[initial];
+        }
+
+        public Builder add(int column, Object value) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return addInteger(column, ((Number) value).longValue());
+            }
+            if (value instanceof Number number) {
+                return addDouble(column, number.doubleValue());
+            }
+            return addText(column, value.toString());
+        }
+
+        public Builder addInteger(int column, long value) {
+            if (value > MAX_EXACT_INT || value < -MAX_EXACT_INT) {
+                return append(column, BIG_INT, dictionary.categoryCode(Long.toString(value)));
+            }
+            return append(column, INT, value);
+        }
+
+        public Builder addDouble(int column, double value) {
+            return append(column, DOUBLE, value);
+        }
+
+        public Builder addText(int column, String value) {
+            return append(column, CATEGORY, dictionary.categoryCode(value));
+        }
+
+        private Builder append(int column, byte kind, double value) {
+            if (size == columns.length) {
+                int grown = size * 2;
+                columns = Arrays.copyOf(columns, grown);
+                kinds = Arrays.copyOf(kinds, grown);
+                values = Arrays.copyOf(values, grown);
+            }
+            if (size > 0 && columns[size - 1] >= column) {
+                sorted = false;
+            }
+            columns[size] = column;
+            kinds[size] = kind;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        public FeatureVector build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[] c = Arrays.copyOf(columns, size);
+            byte[] k = Arrays.copyOf(kinds, size);
+            double[] v = Arrays.copyOf(values, size);
+            if (!sorted) {
+                int distinct = sortByColumn(c, k, v);
+                if (distinct < size) {
+                    c = Arrays.copyOf(c, distinct);
+                    k = Arrays.copyOf(k, distinct);
+                    v = Arrays.copyOf(v, distinct);
+                }
+            }
+            return new FeatureVector(c, k, v);
+        }
+
+        /**
+         * Sorts the cells by column, keeping only the last value added for a repeated column.
+         *
+         * @return the number of distinct columns now at the front of the arrays
+         */
+        private static int sortByColumn(int[] c, byte[] k, double[] v) {
+            long[] keyed = new long[c.length];
+            for (int i = 0; i < c.length; i++) {
+                keyed[i] = ((long) c[i] << 32) | i;
+            }
+            Arrays.sort(keyed);
+            byte[] k0 = k.clone();
+            double[] v0 = v.clone();
+            int out = 0;
+            for (int i = 0; i < keyed.length; i++) {
+                int column = (int) (keyed[i] >>> 32);
+                if (i + 1 < keyed.length && (int) (keyed[i + 1] >>> 32) == column) {
+                    continue;
+                }
+                int from = (int) keyed[i];
+                c[out] = column;
+                k[out] = k0[from];
+                v[out] = v0[from];
+                out++;
+            }
+            return out;
+        }
+    }
+}
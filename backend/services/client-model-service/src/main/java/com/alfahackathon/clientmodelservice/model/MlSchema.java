@@ -0,0 +1,15 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import java.util.List;
+
+/**
+ * The feature schema of the model the ML service is serving: feature names in the order the
+ * positional endpoints expect their values, and which of them are categorical. {@code version}
+ * is the model version the schema belongs to.
+ */
+public record MlSchema(String version, List<String> features, boolean[] categorical) {
+
+    public int size() {
+        return features.size();
+    }
+}
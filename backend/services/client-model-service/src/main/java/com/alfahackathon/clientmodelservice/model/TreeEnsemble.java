@@ -0,0 +1,342 @@
+package com.alfahackathon.clientmodelservice.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A gradient-boosted tree ensemble (an XGBoost or LightGBM export) flattened into primitive
+ * arrays: the split nodes of all trees share one set of parallel arrays and the leaves another,
+ * so scoring a row is a loop over tree roots that allocates nothing. Instances are immutable and
+ * safe to share between threads.
+ * <p>
+ * Input rows hold one double per feature, in {@link #featureNames()} order. A numeric split sends
+ * values below its threshold left; a categorical split sends the category codes in its set left.
+ * {@code NaN} is a missing value and takes the node's default branch, except on LightGBM splits
+ * without missing-value handling, which read it as {@code 0.0}.
+ */
+public final class TreeEnsemble {
+
+    /** What turns the summed margin into the model's prediction. */
+    public enum Objective { IDENTITY, LOGISTIC, EXP }
+
+    /** How a numeric split treats missing values. */
+    public enum Missing {
+        /** {@code NaN} is compared as {@code 0.0}. */
+        NONE,
+        /** {@code NaN}, zero and values within {@code 1e-35} of it take the default branch. */
+        ZERO,
+        /** {@code NaN} takes the default branch. */
+        NAN
+    }
+
+    private static final byte DEFAULT_LEFT = 1;
+    private static final byte CATEGORICAL = 2;
+    private static final byte MISSING_ZERO = 4;
+    private static final byte MISSING_NAN = 8;
+    /** LightGBM's {@code kZeroThreshold}. */
+    private static final double ZERO_THRESHOLD = 1e-35f;
+
+    private final List<String> featureNames;
+    private final boolean[] categorical;
+    private final Map<String, Integer>[] categoryCodes;
+    private final boolean singlePrecision;
+    private final Objective objective;
+    private final double logisticScale;
+    private final double baseMargin;
+    private final boolean averaged;
+
+    /** Per tree: the root node, or {@code ~leaf} for a tree that is a single leaf. */
+    private final int[] roots;
+    private final int[] features;
+    /** The split threshold, or for a categorical split the offset of its set in {@link #categorySets}. */
+    private final double[] thresholds;
+    /** Child node, or {@code ~leaf}. */
+    private final int[] lefts;
+    private final int[] rights;
+    private final byte[] flags;
+    private final double[] leaves;
+    /** Category sets as bitsets, each prefixed with its length in words. */
+    private final int[] categorySets;
+
+    private TreeEnsemble(Builder b, int trees) {
+        this.featureNames = b.featureNames;
+        this.categorical = b.categorical;
+        this.categoryCodes = b.categoryCodes;
+        this.singlePrecision = b.singlePrecision;
+        this.objective = b.objective;
+        this.logisticScale = b.logisticScale;
+        this.baseMargin = b.baseMargin;
+        this.averaged = b.averaged;
+        this.roots = Arrays.copyOf(b.roots, trees);
+        this.features = Arrays.copyOf(b.features, b.nodes);
+        this.thresholds = Arrays.copyOf(b.thresholds, b.nodes);
+        this.lefts = Arrays.copyOf(b.lefts, b.nodes);
+        this.rights = Arrays.copyOf(b.rights, b.nodes);
+        this.flags = Arrays.copyOf(b.flags, b.nodes);
+        this.leaves = Arrays.copyOf(b.leaves, b.leafCount);
+        this.categorySets = Arrays.copyOf(b.categorySets, b.categoryWords);
+    }
+
+    public List<String> featureNames() {
+        return featureNames;
+    }
+
+    public int featureCount() {
+        return featureNames.size();
+    }
+
+    public boolean isCategorical(int feature) {
+        return categorical[feature];
+    }
+
+    public int treeCount() {
+        return roots.length;
+    }
+
+    /**
+     * The input value for a numeric feature: XGBoost reads its input as 32-bit floats, so a value
+     * that rounds onto a threshold must compare as the rounded float.
+     */
+    public double numeric(double value) {
+        return singlePrecision ? (float) value : value;
+    }
+
+    /**
+     * The input value for a categorical feature: the code of the category among those the model
+     * was trained with, {@code NaN} for an unknown one. A model that does not record its
+     * categories gets code {@code 0} for every value, which is what pandas gives the one row of
+     * a single-row frame, and the ML service scores XGBoost one row per frame.
+     */
+    public double categoryCode(int feature, String value) {
+        Map<String, Integer> codes = categoryCodes[feature];
+        if (codes == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        return code == null ? Double.NaN : code;
+    }
+
+    public double predict(double[] row) {
+        return predict(row, 0);
+    }
+
+    /**
+     * Scores {@code out.length} rows laid out one after another in {@code rows}, each
+     * {@link #featureCount()} values wide.
+     */
+    public void predict(double[] rows, double[] out) {
+        int width = featureCount();
+        for (int r = 0; r < out.length; r++) {
+            out[r] = predict(rows, r * width);
+        }
+    }
+
+    private double predict(double[] rows, int offset) {
+        double sum = 0;
+        for (int root : roots) {
+            int node = root;
+            while (node >= 0) {
+                node = next(node, rows[offset + features[node]]);
+            }
+            sum += leaves[~node];
+        }
+        if (averaged && roots.length > 0) {
+            sum /= roots.length;
+        }
+        double margin = baseMargin + sum;
+        return switch (objective) {
+            case IDENTITY -> margin;
+            case LOGISTIC -> 1 / (1 + Math.exp(-logisticScale * margin));
+            case EXP -> Math.exp(margin);
+        };
+    }
+
+    private int next(int node, double value) {
+        byte f = flags[node];
+        if ((f & CATEGORICAL) != 0) {
+            if (Double.isNaN(value)) {
+                return (f & DEFAULT_LEFT) != 0 ? lefts[node] : rights[node];
+            }
+            return inSet((int) thresholds[node], value) ? lefts[node] : rights[node];
+        }
+        if (Double.isNaN(value)) {
+            if ((f & (MISSING_NAN | MISSING_ZERO)) != 0) {
+                return (f & DEFAULT_LEFT) != 0 ? lefts[node] : rights[node];
+            }
+            value = 0;
+        } else if ((f & MISSING_ZERO) != 0 && value >= -ZERO_THRESHOLD && value <= ZERO_THRESHOLD) {
+            return (f & DEFAULT_LEFT) != 0 ? lefts[node] : rights[node];
+        }
+        return value < thresholds[node] ? lefts[node] : rights[node];
+    }
+
+    private boolean inSet(int set, double value) {
+        int code = (int) value;
+        if (code < 0 || (code >>> 5) >= categorySets[set]) {
+            return false;
+        }
+        return (categorySets[set + 1 + (code >>> 5)] >>> (code & 31) & 1) != 0;
+    }
+
+    /**
+     * Collects the trees of a model as its reader walks them. Split nodes and leaves are added
+     * first and wired up with {@link #children}; every method returns the reference a parent
+     * or {@link #tree} takes, a node index or {@code ~leaf}.
+     */
+    public static final class Builder {
+
+        private final List<String> featureNames;
+        private final boolean[] categorical;
+        @SuppressWarnings("unchecked")
+        private final Map<String, Integer>[] categoryCodes;
+        private boolean singlePrecision;
+        private Objective objective = Objective.IDENTITY;
+        private double logisticScale = 1;
+        private double baseMargin;
+        private boolean averaged;
+
+        private int[] roots = new int[64];
+        private int trees;
+        private int[] features = new int[256];
+        private double[] thresholds = new double[256];
+        private int[] lefts = new int[256];
+        private int[] rights = new int[256];
+        private byte[] flags = new byte[256];
+        private int nodes;
+        private double[] leaves = new double[256];
+        private int leafCount;
+        private int[] categorySets = new int[16];
+        private int categoryWords;
+
+        @SuppressWarnings("unchecked")
+        public Builder(List<String> featureNames, boolean[] categorical) {
+            if (categorical.length != featureNames.size()) {
+                throw new IllegalArgumentException(
+                        featureNames.size() + " features but " + categorical.length + " categorical flags");
+            }
+            this.featureNames = List.copyOf(featureNames);
+            this.categorical = categorical.clone();
+            this.categoryCodes = new Map[categorical.length];
+        }
+
+        public int featureCount() {
+            return categorical.length;
+        }
+
+        /** The categories of a categorical feature, their codes being their positions in the list. */
+        public Builder categories(int feature, List<String> names) {
+            Map<String, Integer> codes = new HashMap<>(names.size() * 4 / 3 + 1);
+            for (int i = 0; i < names.size(); i++) {
+                codes.putIfAbsent(names.get(i), i);
+            }
+            categoryCodes[feature] = codes;
+            return this;
+        }
+
+        public Builder singlePrecision(boolean singlePrecision) {
+            this.singlePrecision = singlePrecision;
+            return this;
+        }
+
+        public Builder objective(Objective objective) {
+            this.objective = objective;
+            return this;
+        }
+
+        /** Slope of the sigmoid for {@link Objective#LOGISTIC}, LightGBM's {@code sigmoid} parameter. */
+        public Builder logisticScale(double logisticScale) {
+            this.logisticScale = logisticScale;
+            return this;
+        }
+
+        /** Margin every prediction starts from, before the trees are added. */
+        public Builder baseMargin(double baseMargin) {
+            this.baseMargin = baseMargin;
+            return this;
+        }
+
+        /** Averages the trees instead of summing them, as random forest mode does. */
+        public Builder averaged(boolean averaged) {
+            this.averaged = averaged;
+            return this;
+        }
+
+        public int leaf(double value) {
+            if (leafCount == leaves.length) {
+                leaves = Arrays.copyOf(leaves, leafCount * 2);
+            }
+            leaves[leafCount] = value;
+            return ~leafCount++;
+        }
+
+        /** A split sending values below {@code threshold} left. */
+        public int numericSplit(int feature, double threshold, boolean defaultLeft, Missing missing) {
+            byte f = defaultLeft ? DEFAULT_LEFT : 0;
+            f |= switch (missing) {
+                case NONE -> 0;
+                case ZERO -> MISSING_ZERO;
+                case NAN -> MISSING_NAN;
+            };
+            return split(feature, threshold, f);
+        }
+
+        /**
+         * A split sending the category codes set in {@code leftSet}, a bitset of 32-bit words,
+         * left; {@code NaN} goes left when {@code defaultLeft}.
+         */
+        public int categoricalSplit(int feature, int[] leftSet, boolean defaultLeft) {
+            int offset = categoryWords;
+            if (categoryWords + 1 + leftSet.length > categorySets.length) {
+                categorySets = Arrays.copyOf(categorySets, Math.max(categorySets.length * 2, categoryWords + 1 + leftSet.length));
+            }
+            categorySets[categoryWords++] = leftSet.length;
+            System.arraycopy(leftSet, 0, categorySets, categoryWords, leftSet.length);
+            categoryWords += leftSet.length;
+            return split(feature, offset, (byte) (CATEGORICAL | (defaultLeft ? DEFAULT_LEFT : 0)));
+        }
+
+        private int split(int feature, double threshold, byte f) {
+            if (feature < 0 || feature >= categorical.length) {
+                throw new IllegalArgumentException("split on feature " + feature + " of " + categorical.length);
+            }
+            if (nodes == features.length) {
+                int size = nodes * 2;
+                features = Arrays.copyOf(features, size);
+                thresholds = Arrays.copyOf(thresholds, size);
+                lefts = Arrays.copyOf(lefts, size);
+                rights = Arrays.copyOf(rights, size);
+                flags = Arrays.copyOf(flags, size);
+            }
+            features[nodes] = feature;
+            thresholds[nodes] = threshold;
+            flags[nodes] = f;
+            return nodes++;
+        }
+
+        public void children(int node, int left, int right) {
+            lefts[node] = left;
+            rights[node] = right;
+        }
+
+        public void tree(int root) {
+            if (trees == roots.length) {
+                roots = Arrays.copyOf(roots, trees * 2);
+            }
+            roots[trees++] = root;
+        }
+
+        public int treeCount() {
+            return trees;
+        }
+
+        /** The ensemble of the first {@code trees} trees added. */
+        public TreeEnsemble build(int trees) {
+            if (trees < 0 || trees > this.trees) {
+                throw new IllegalArgumentException("model has " + this.trees + " trees, not " + trees);
+            }
+            return new TreeEnsemble(this, trees);
+        }
+    }
+}
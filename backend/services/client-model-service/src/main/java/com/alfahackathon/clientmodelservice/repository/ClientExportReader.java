@@ -0,0 +1,42 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.dto.ClientFilter;
+import com.alfahackathon.clientmodelservice.model.Client;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Forward-only scan of every client matching a filter, in id order, for exports. Rows are
+ * fetched {@code clients.export.fetch-size} at a time through a server-side cursor, which
+ * PostgreSQL only opens inside a transaction: callers consume the stream in one and close it.
+ */
+@Repository
+public class ClientExportReader {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ClientExportReader(DataSource dataSource, @Value("${clients.export.fetch-size:2000}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * @param features whether to read the feature vectors; without them the column is {@code null}
+     */
+    public Stream<Client> stream(ClientFilter filter, boolean features) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = ClientQueryRepository.filterConditions(filter, params);
+        String sql = "select id, dt, gender, age, adminarea, city_smart_name, income_value, income_category, "
+                + (features ? "feature_vector" : "null") + ", approval_probability, decision, score_model_version"
+                + " from clients" + ClientQueryRepository.where(conditions) + " order by id";
+        return jdbcTemplate.queryForStream(sql, params, ClientJdbcReader.CLIENT_ROW_MAPPER);
+    }
+}
@@ -0,0 +1,64 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.service.ClientDataReadyEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Creates the {@code (column, id)} indexes behind the client list filters and sorts. Runs once
+ * the client data is loaded, so a first ingest loads into an unindexed table and the indexes are
+ * built in one pass afterwards.
+ * <p>
+ * The {@code features} jsonb column gets a GIN index for equality filters, and every feature
+ * listed in {@code clients.feature-indexes} an expression index on its numeric value for range
+ * filters.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClientIndexInitializer {
+
+    private static final List<String> INDEXES = List.of(
+            "create index if not exists idx_clients_adminarea_id on clients (adminarea, id)",
+            "create index if not exists idx_clients_gender_id on clients (gender, id)",
+            "create index if not exists idx_clients_income_category_id on clients (income_category, id)",
+            "create index if not exists idx_clients_age_id on clients (age, id)",
+            "create index if not exists idx_clients_income_value_id on clients (income_value, id)",
+            "create index if not exists idx_clients_approval_probability_id on clients (approval_probability, id)",
+            "create index if not exists idx_clients_features on clients using gin (features jsonb_path_ops)"
+    );
+
+    /** Postgres truncates longer identifiers. */
+    private static final int MAX_IDENTIFIER = 63;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${clients.feature-indexes:}")
+    private List<String> featureIndexes;
+
+    @Order(0)
+    @EventListener(ClientDataReadyEvent.class)
+    public void createIndexes() {
+        long started = System.currentTimeMillis();
+        INDEXES.forEach(jdbcTemplate::execute);
+        featureIndexes.stream()
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> jdbcTemplate.execute("create index if not exists " + featureIndexName(name)
+                        + " on clients (" + ClientQueryRepository.numericFeature(name) + ")"));
+        log.info("Client list indexes ready in {} ms", System.currentTimeMillis() - started);
+    }
+
+    static String featureIndexName(String feature) {
+        String name = "idx_clients_feature_" + feature.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+        return name.length() > MAX_IDENTIFIER ? name.substring(0, MAX_IDENTIFIER) : name;
+    }
+}
@@ -0,0 +1,132 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ClientJdbcReader {
+
+    private static final String COLUMNS = """
+            select id, dt, gender, age, adminarea, city_smart_name,
+                   income_value, income_category, feature_vector,
+                   approval_probability, decision, score_model_version
+            from clients
+            """;
+
+    private static final String SCAN_SQL = COLUMNS + """
+            where id > ?
+            order by id
+            limit ?
+            """;
+
+    private static final String UNSCORED_SCAN_SQL = """
+            select id, dt, gender, age, adminarea, city_smart_name,
+                   income_value, income_category, feature_vector,
+                   approval_probability, decision, score_model_version, content_hash
+            from clients
+            where id > ? and score_model_version is distinct from ?
+            order by id
+            limit ?
+            """;
+
+    static final RowMapper<Client> CLIENT_ROW_MAPPER = (rs, rowNum) -> new Client(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getObject(4, Integer.class),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getBigDecimal(7),
+            rs.getString(8),
+            rs.getBytes(9),
+            rs.getObject(10, Double.class),
+            rs.getString(11),
+            rs.getString(12)
+    );
+
+    /**
+     * Maps {@code id, gender, age, adminarea, income_value, income_category}, the columns
+     * {@code ClientStatsService} counts, leaving the rest of the client unset.
+     */
+    static final RowMapper<Client> COUNTED_ROW_MAPPER = (rs, rowNum) -> {
+        Client e = new Client();
+        e.setId(rs.getLong(1));
+        e.setGender(rs.getString(2));
+        e.setAge(rs.getObject(3, Integer.class));
+        e.setAdminarea(rs.getString(4));
+        e.setIncomeValue(rs.getBigDecimal(5));
+        e.setIncomeCategory(rs.getString(6));
+        return e;
+    };
+
+    /**
+     * A stored client with the content hash of the CSV row it was written from: for delta ingest
+     * just the counted columns, for scoring the whole client.
+     */
+    public record Stored(Client client, Long contentHash) {}
+
+    private static final String STORED_SQL = """
+            select id, gender, age, adminarea, income_value, income_category, content_hash
+            from clients
+            where id = any(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Keyset scan in id order: the next {@code limit} clients with an id above {@code afterId}.
+     */
+    public List<Client> findAfter(long afterId, int limit) {
+        return jdbcTemplate.query(SCAN_SQL, CLIENT_ROW_MAPPER, afterId, limit);
+    }
+
+    /**
+     * Like {@link #findAfter}, restricted to clients without a score for {@code modelVersion};
+     * the content hash lets the score be written only if the client has not changed meanwhile.
+     */
+    public List<Stored> findUnscoredAfter(long afterId, String modelVersion, int limit) {
+        return jdbcTemplate.query(UNSCORED_SCAN_SQL,
+                (rs, rowNum) -> new Stored(CLIENT_ROW_MAPPER.mapRow(rs, rowNum), rs.getObject(13, Long.class)),
+                afterId, modelVersion, limit);
+    }
+
+    /**
+     * The stored content hash and the columns the statistics count of the clients among
+     * {@code ids} that exist, by id.
+     */
+    public Map<Long, Stored> findStored(long[] ids) {
+        Map<Long, Stored> stored = new HashMap<>(ids.length * 4 / 3 + 1);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STORED_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray()));
+            return ps;
+        }, rs -> {
+            Client e = COUNTED_ROW_MAPPER.mapRow(rs, 0);
+            stored.put(e.getId(), new Stored(e, rs.getObject(7, Long.class)));
+        });
+        return stored;
+    }
+
+    /** Keyset scan of ids alone: the next {@code limit} ids above {@code afterId}. */
+    public List<Long> findIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList("select id from clients where id > ? order by id limit ?",
+                Long.class, afterId, limit);
+    }
+
+    public long countUnscored(String modelVersion) {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from clients where score_model_version is distinct from ?",
+                Long.class, modelVersion);
+        return count == null ? 0 : count;
+    }
+}
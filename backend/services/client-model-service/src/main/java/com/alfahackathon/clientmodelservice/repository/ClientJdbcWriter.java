@@ -0,0 +1,132 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.ClientScore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+@Repository
+@RequiredArgsConstructor
+public class ClientJdbcWriter {
+
+    private static final String INSERT_SQL = """
+            insert into clients (id, dt, gender, age, adminarea, city_smart_name,
+                                 income_value, income_category, feature_vector, features, content_hash)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, cast(? as jsonb), ?)
+            """;
+
+    /** The stored score was for the old features, so an update clears it. */
+    private static final String UPSERT_SQL = INSERT_SQL + """
+            on conflict (id) do update
+            set dt = excluded.dt, gender = excluded.gender, age = excluded.age,
+                adminarea = excluded.adminarea, city_smart_name = excluded.city_smart_name,
+                income_value = excluded.income_value, income_category = excluded.income_category,
+                feature_vector = excluded.feature_vector, features = excluded.features,
+                content_hash = excluded.content_hash,
+                approval_probability = null, decision = null, score_model_version = null
+            """;
+
+    private static final String DELETE_SQL = """
+            delete from clients
+            where id = any(?)
+            returning id, gender, age, adminarea, income_value, income_category
+            """;
+
+    /** A refresh that changed the client meanwhile also changed its hash, so the score is dropped. */
+    private static final String UPDATE_SCORE_SQL = """
+            update clients
+            set approval_probability = ?, decision = ?, score_model_version = ?
+            where id = ? and content_hash is not distinct from ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param features the {@code features} jsonb text of each client, in the same order
+     * @param hashes   the content hash of each client's CSV row, in the same order
+     */
+    public void insertAll(List<Client> clients, List<String> features, long[] hashes) {
+        write(INSERT_SQL, clients, features, hashes);
+    }
+
+    /**
+     * Inserts new clients and overwrites existing ones, clearing their stored score. The ids
+     * must be distinct.
+     */
+    public void upsertAll(List<Client> clients, List<String> features, long[] hashes) {
+        write(UPSERT_SQL, clients, features, hashes);
+    }
+
+    /**
+     * @return the deleted clients with the columns the statistics count, for taking them out
+     */
+    public List<Client> deleteAll(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray()));
+            return ps;
+        }, ClientJdbcReader.COUNTED_ROW_MAPPER);
+    }
+
+    private void write(String sql, List<Client> clients, List<String> features, long[] hashes) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        Iterator<String> json = features.iterator();
+        PrimitiveIterator.OfLong hash = Arrays.stream(hashes).iterator();
+        jdbcTemplate.batchUpdate(sql, clients, clients.size(), (ps, c) -> {
+            ps.setLong(1, c.getId());
+            ps.setString(2, c.getDt());
+            ps.setString(3, c.getGender());
+            ps.setObject(4, c.getAge(), Types.INTEGER);
+            ps.setString(5, c.getAdminarea());
+            ps.setString(6, c.getCitySmartName());
+            ps.setBigDecimal(7, c.getIncomeValue());
+            ps.setString(8, c.getIncomeCategory());
+            ps.setBytes(9, c.getFeatureVector());
+            ps.setString(10, json.next());
+            ps.setLong(11, hash.nextLong());
+        });
+    }
+
+    /**
+     * Stores the scores of the clients whose content hash is still the one the score carries.
+     *
+     * @return the scores stored
+     */
+    public List<ClientScore> updateScores(List<ClientScore> scores) {
+        if (scores.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SCORE_SQL, scores, scores.size(), (ps, s) -> {
+            ps.setObject(1, s.approvalProbability(), Types.DOUBLE);
+            ps.setString(2, s.decision());
+            ps.setString(3, s.modelVersion());
+            ps.setLong(4, s.clientId());
+            ps.setObject(5, s.contentHash(), Types.BIGINT);
+        });
+        List<ClientScore> stored = new ArrayList<>(scores.size());
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    stored.add(scores.get(i));
+                }
+                i++;
+            }
+        }
+        return stored;
+    }
+}
@@ -0,0 +1,30 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Records that the initial CSV load ran to the end. Ingest commits batch by batch, so a
+ * non-empty {@code clients} table alone does not tell a finished load from one that died part
+ * way; the marker row is written only after the last batch.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClientLoadMarker {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void migrate() {
+        jdbcTemplate.execute("create table if not exists client_load (completed_at timestamptz not null)");
+    }
+
+    public boolean isComplete() {
+        Boolean complete = jdbcTemplate.queryForObject("select exists (select 1 from client_load)", Boolean.class);
+        return Boolean.TRUE.equals(complete);
+    }
+
+    public void markComplete() {
+        jdbcTemplate.update("insert into client_load (completed_at) values (now())");
+    }
+}
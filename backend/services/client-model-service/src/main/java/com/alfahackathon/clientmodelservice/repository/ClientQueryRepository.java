@@ -0,0 +1,214 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.dto.ClientFeaturesDto;
+import com.alfahackathon.clientmodelservice.dto.ClientFilter;
+import com.alfahackathon.clientmodelservice.dto.ClientShortDto;
+import com.alfahackathon.clientmodelservice.dto.ClientSort;
+import com.alfahackathon.clientmodelservice.dto.FeaturePredicate;
+import com.alfahackathon.clientmodelservice.util.ScrollCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filtered and sorted client list queries selecting only the {@link ClientShortDto} columns.
+ * Keyset pages on a nullable sort column run in two phases, the non-null keys as a
+ * {@code (column, id)} row comparison and the {@code null}s by id, so each phase is a plain
+ * range scan of the {@code (column, id)} index.
+ * <p>
+ * Feature predicates run against the {@code features} jsonb column: equality as containment,
+ * served by its GIN index, ranges on {@link #numericFeature}, which an expression index from
+ * {@code clients.feature-indexes} can serve.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClientQueryRepository {
+
+    /** A list row together with the value it was sorted by, for building the next cursor. */
+    public record Row(ClientShortDto client, Object sortKey) {}
+
+    private static final TypeReference<Map<String, Object>> FEATURES_TYPE = new TypeReference<>() {};
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public List<Row> findPage(ClientFilter filter, ClientSort sort, boolean descending, long offset, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("limit", limit)
+                .addValue("offset", offset);
+        List<String> conditions = filterConditions(filter, params);
+        String dir = descending ? " desc" : "";
+        String order = sort == ClientSort.ID
+                ? "id" + dir
+                : sort.column() + dir + ", id" + dir;
+        return query(sort, conditions, order, "limit :limit offset :offset", params);
+    }
+
+    public List<Row> findAfter(ClientFilter filter, ClientSort sort, boolean descending, ScrollCursor after, int limit) {
+        if (sort == ClientSort.ID) {
+            MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+            List<String> conditions = filterConditions(filter, params);
+            if (after != null) {
+                conditions.add(descending ? "id < :lastId" : "id > :lastId");
+                params.addValue("lastId", after.lastId());
+            }
+            return query(sort, conditions, descending ? "id desc" : "id", "limit :limit", params);
+        }
+
+        boolean nullsFirst = descending;
+        boolean inNulls = after == null ? nullsFirst : after.key() == null;
+        List<Row> rows = new ArrayList<>(phase(filter, sort, descending, inNulls, after, limit));
+        if (rows.size() < limit && inNulls == nullsFirst) {
+            rows.addAll(phase(filter, sort, descending, !inNulls, null, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    public long count(ClientFilter filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = filterConditions(filter, params);
+        Long count = jdbcTemplate.queryForObject("select count(*) from clients" + where(conditions), params, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Keyset page in id order selecting only the named feature cells, picked out of the jsonb
+     * column by the database. Cells a client does not have are left out of its map.
+     */
+    public List<ClientFeaturesDto> findFeaturesAfter(ClientFilter filter, List<String> names, Long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        List<String> conditions = filterConditions(filter, params);
+        if (afterId != null) {
+            conditions.add("id > :lastId");
+            params.addValue("lastId", afterId);
+        }
+        List<String> pairs = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            pairs.add(":k" + i + ", features -> :k" + i);
+            params.addValue("k" + i, names.get(i));
+        }
+        String sql = "select id, cast(jsonb_strip_nulls(jsonb_build_object(" + String.join(", ", pairs)
+                + ")) as text) from clients" + where(conditions) + " order by id limit :limit";
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> new ClientFeaturesDto(
+                rs.getLong(1),
+                objectMapper.readValue(rs.getString(2), FEATURES_TYPE)
+        ));
+    }
+
+    /**
+     * The feature's value as {@code numeric}, {@code null} when the client lacks it or it is not
+     * a number. The name is inlined rather than bound so that the text matches the expression
+     * indexes built from it.
+     */
+    public static String numericFeature(String name) {
+        String key = "features -> '" + name.replace("'", "''") + "'";
+        return "(case when jsonb_typeof(" + key + ") = 'number' then cast(" + key + " as numeric) end)";
+    }
+
+    /**
+     * One phase of a keyset page: the clients with a {@code null} sort key, or those with a
+     * value, continuing after {@code after} when it is given.
+     */
+    private List<Row> phase(ClientFilter filter, ClientSort sort, boolean descending, boolean nulls,
+                            ScrollCursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        List<String> conditions = filterConditions(filter, params);
+        String column = sort.column();
+        String cmp = descending ? "<" : ">";
+        String dir = descending ? " desc" : "";
+        String order;
+        if (nulls) {
+            conditions.add(column + " is null");
+            if (after != null) {
+                conditions.add("id " + cmp + " :lastId");
+                params.addValue("lastId", after.lastId());
+            }
+            order = "id" + dir;
+        } else {
+            if (after != null) {
+                conditions.add("(" + column + ", id) " + cmp + " (:key, :lastId)");
+                params.addValue("key", sort.parseKey(after.key()));
+                params.addValue("lastId", after.lastId());
+            } else {
+                conditions.add(column + " is not null");
+            }
+            order = column + dir + ", id" + dir;
+        }
+        return query(sort, conditions, order, "limit :limit", params);
+    }
+
+    private List<Row> query(ClientSort sort, List<String> conditions, String order, String limit,
+                            MapSqlParameterSource params) {
+        String sql = "select id, age, adminarea, income_value, " + sort.column() + " as sort_key from clients"
+                + where(conditions) + " order by " + order + " " + limit;
+        return jdbcTemplate.query(sql, params, rowMapper());
+    }
+
+    private static RowMapper<Row> rowMapper() {
+        return (rs, rowNum) -> new Row(
+                new ClientShortDto(
+                        rs.getLong(1),
+                        rs.getObject(2, Integer.class),
+                        rs.getString(3),
+                        rs.getBigDecimal(4)
+                ),
+                rs.getObject(5)
+        );
+    }
+
+    static List<String> filterConditions(ClientFilter filter, MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        add(conditions, params, "adminarea = :region", "region", filter.region());
+        add(conditions, params, "gender = :gender", "gender", filter.gender());
+        add(conditions, params, "age >= :ageMin", "ageMin", filter.ageMin());
+        add(conditions, params, "age <= :ageMax", "ageMax", filter.ageMax());
+        add(conditions, params, "income_value >= :incomeMin", "incomeMin", filter.incomeMin());
+        add(conditions, params, "income_value <= :incomeMax", "incomeMax", filter.incomeMax());
+        add(conditions, params, "income_category = :incomeCategory", "incomeCategory", filter.incomeCategory());
+        for (int i = 0; i < filter.feature().size(); i++) {
+            conditions.add(featureCondition(filter.feature().get(i), "f" + i, params));
+        }
+        return conditions;
+    }
+
+    private static String featureCondition(FeaturePredicate p, String param, MapSqlParameterSource params) {
+        if (p.op().ordering()) {
+            params.addValue(param, p.number());
+            String cmp = switch (p.op()) {
+                case GT -> ">";
+                case GTE -> ">=";
+                case LT -> "<";
+                default -> "<=";
+            };
+            return numericFeature(p.name()) + " " + cmp + " :" + param;
+        }
+
+        params.addValue(param + "n", p.name());
+        params.addValue(param, p.number() != null ? p.number() : p.value());
+        String valueType = p.number() != null ? "numeric" : "text";
+        String contains = "features @> jsonb_build_object(:" + param + "n, cast(:" + param + " as " + valueType + "))";
+        return p.op() == FeaturePredicate.Op.EQ
+                ? contains
+                : "(features -> :" + param + "n is not null and not " + contains + ")";
+    }
+
+    private static void add(List<String> conditions, MapSqlParameterSource params,
+                            String condition, String name, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            params.addValue(name, value);
+        }
+    }
+
+    static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+}
@@ -0,0 +1,7 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.model.FeatureCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FeatureCategoryRepository extends JpaRepository<FeatureCategory, Integer> {
+}
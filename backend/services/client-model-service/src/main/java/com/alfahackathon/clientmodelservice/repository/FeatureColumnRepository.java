@@ -0,0 +1,7 @@
+package com.alfahackathon.clientmodelservice.repository;
+
+import com.alfahackathon.clientmodelservice.model.FeatureColumn;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FeatureColumnRepository extends JpaRepository<FeatureColumn, Integer> {
+}
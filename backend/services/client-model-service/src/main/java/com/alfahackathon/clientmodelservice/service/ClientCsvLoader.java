@@ -1,180 +1,468 @@
 package com.alfahackathon.clientmodelservice.service;
 
+import com.alfahackathon.clientmodelservice.dto.IngestReportDto;
 import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.repository.ClientJdbcReader;
+import com.alfahackathon.clientmodelservice.repository.ClientJdbcWriter;
+import com.alfahackathon.clientmodelservice.repository.ClientLoadMarker;
 import com.alfahackathon.clientmodelservice.repository.ClientRepository;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import tools.jackson.databind.ObjectMapper;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ClientCsvLoader {
 
     private final ClientRepository clientRepository;
-    private final ObjectMapper objectMapper;
+    private final ClientJdbcWriter clientJdbcWriter;
+    private final ClientJdbcReader clientJdbcReader;
+    private final ClientLoadMarker loadMarker;
+    private final ClientHotStore hotStore;
+    private final MlResultCache mlResultCache;
+    private final FeatureDictionaryStore dictionaryStore;
+    private final FeatureVectorMigration featureVectorMigration;
+    private final FeatureJsonbMigration featureJsonbMigration;
+    private final ContentHashMigration contentHashMigration;
+    private final ClientStatsService clientStatsService;
+    private final ClientDataVersion dataVersion;
+    private final MeterRegistry meterRegistry;
+
+    /** One ingest at a time: the initial load or a refresh. */
+    private final ReentrantLock ingestLock = new ReentrantLock();
+
+    /**
+     * Rate of the running or last initial load, behind {@code ingest.rows.per.second}. The gauge
+     * holds it only weakly, so it lives here rather than in a writer.
+     */
+    private final AtomicLong rowsPerSecond = new AtomicLong();
+
+    @Value("${ingest.csv-location:classpath:hackathon_income_test.csv}")
+    private Resource csvResource;
+
+    @Value("${ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${ingest.progress-interval:50000}")
+    private int progressInterval;
+
+    @Value("${ingest.schema-sample-size:1000}")
+    private int schemaSampleSize;
+
+    @Value("${ingest.parse-block-size:512}")
+    private int parseBlockSize;
+
+    @Value("${ingest.parser-threads:0}")
+    private int parserThreads;
 
     @PostConstruct
+    void registerMeters() {
+        meterRegistry.gauge("ingest.rows.per.second", rowsPerSecond);
+    }
+
+    /**
+     * Runs the column migrations, then ingests the configured CSV unless a load already ran to
+     * the end. An empty table is loaded with plain inserts; one a load died part way through is
+     * completed through the delta path, which writes only the clients missing or different.
+     * Called by {@link ClientDataStartup} off the startup path.
+     */
     public void load() throws Exception {
-        if (clientRepository.count() > 0) {
+        featureVectorMigration.migrate();
+        featureJsonbMigration.migrate();
+        contentHashMigration.migrate();
+        loadMarker.migrate();
+
+        if (loadMarker.isComplete()) {
             return;
         }
 
-        List<Client> batch = new ArrayList<>();
-
-        try (InputStream is = getClass().getResourceAsStream("/hackathon_income_test.csv")) {
-            if (is == null) {
-                throw new IllegalStateException("hackathon_income_test.csv not found in resources");
+        if (!csvResource.exists()) {
+            throw new IllegalStateException(csvResource.getDescription() + " not found");
+        }
+        ingestLock.lock();
+        try (InputStream is = csvResource.getInputStream();
+             CSVReader csv = open(is)) {
+            String[] header = csv.readNext();
+            if (header == null) {
+                throw new IllegalStateException("CSV file is empty");
             }
 
-            try (InputStreamReader reader = new InputStreamReader(is);
-                 CSVReader csv = new CSVReaderBuilder(reader)
-                         .withCSVParser(new CSVParserBuilder()
-                                 .withSeparator(';')
-                                 .build())
-                         .build()) {
+            long stored = clientRepository.count();
+            if (stored > 0) {
+                log.warn("{} clients stored but no completed load recorded, resuming the load", stored);
+                DeltaWriter writer = new DeltaWriter(false, false);
+                writer.finish(ingest(csv, header, writer));
+            } else {
+                clientStatsService.reset();
+                ChunkWriter writer = new ChunkWriter();
+                ingest(csv, header, writer);
+                writer.finish();
+            }
+            loadMarker.markComplete();
+        } finally {
+            ingestLock.unlock();
+        }
+    }
 
-                String[] header = csv.readNext();
-                if (header == null) {
-                    throw new IllegalStateException("CSV file is empty");
-                }
+    /**
+     * Applies a CSV of the same layout as the initial load to the stored clients while the
+     * service keeps serving: rows whose content hash is already stored are skipped, new and
+     * changed clients are upserted in batches (a change clears the stored score), and with
+     * {@code deleteMissing} clients absent from the file are deleted at the end. The hot store,
+     * statistics and ML result cache follow each write. Database work grows with the number of
+     * changes; the file is still read and hashed in full.
+     * <p>
+     * Batches are written as they are parsed, so a failure part way leaves the ones before it
+     * applied; sending the same file again completes the refresh.
+     *
+     * @throws ResponseStatusException {@code 409} while another ingest runs, {@code 400} for an
+     *                                 empty or malformed file
+     */
+    public IngestReportDto refresh(InputStream in, boolean deleteMissing) throws IOException, InterruptedException {
+        if (!ingestLock.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Another ingest is running");
+        }
+        try (CSVReader csv = open(in)) {
+            String[] header = csv.readNext();
+            if (header == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV file is empty");
+            }
+            DeltaWriter writer = new DeltaWriter(deleteMissing, true);
+            long rows = ingest(csv, header, writer);
+            return writer.finish(rows);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed CSV: " + ex.getMessage());
+        } finally {
+            ingestLock.unlock();
+        }
+    }
 
-                int idxId = indexOf(header, "id");
-                int idxDt = indexOf(header, "dt");
-                int idxAge = indexOf(header, "age");
-                int idxGender = indexOf(header, "gender");
-                int idxAdminarea = indexOf(header, "adminarea");
-                int idxIncomeValue = indexOf(header, "incomeValue");
-                int idxIncomeCategory = indexOf(header, "incomeValueCategory");
-
-                String[] row;
-                while ((row = csv.readNext()) != null) {
-                    if (row.length != header.length) {
-                        continue;
-                    }
+    private static CSVReader open(InputStream is) {
+        return new CSVReaderBuilder(new InputStreamReader(is, StandardCharsets.UTF_8))
+                .withCSVParser(new CSVParserBuilder()
+                        .withSeparator(';')
+                        .build())
+                .build();
+    }
 
-                    Client e = new Client();
+    /** Receives parsed blocks in file order. */
+    private interface BlockSink {
+        void accept(ClientRowParser.Block block);
+    }
 
-                    String idStr = safeGet(row, idxId);
-                    if (idStr == null || idStr.isBlank()) {
-                        continue;
-                    }
-                    e.setId(Long.parseLong(idStr));
+    /**
+     * Rows are read in blocks on the calling thread and parsed ahead on a worker pool. Parsed
+     * blocks are consumed strictly in submission order, so clients are written in file order,
+     * and at most two blocks per worker are in flight at any time.
+     *
+     * @return the number of rows read
+     */
+    private long ingest(CSVReader csv, String[] header, BlockSink sink)
+            throws IOException, InterruptedException {
+        List<String[]> sample = readBlock(csv, schemaSampleSize);
+        ClientRowParser parser = ClientRowParser.infer(header, sample, dictionaryStore.dictionary());
+
+        int threads = parserThreads > 0 ? parserThreads : Runtime.getRuntime().availableProcessors();
+        int maxPending = threads * 2;
+        ExecutorService parsers = Executors.newFixedThreadPool(threads);
+        Timer parseTimer = Timer.builder("ingest.parse")
+                .description("CSV block parse time on the parser pool")
+                .register(meterRegistry);
+        long rows = 0;
+        try {
+            Deque<Future<ClientRowParser.Block>> pending = new ArrayDeque<>();
+            List<String[]> block = sample;
+            while (!block.isEmpty()) {
+                List<String[]> blockRows = block;
+                rows += blockRows.size();
+                pending.add(parsers.submit(() -> parseTimer.record(() -> parser.parseBlock(blockRows))));
+                if (pending.size() >= maxPending) {
+                    sink.accept(await(pending.poll()));
+                }
+                block = readBlock(csv, parseBlockSize);
+            }
+            while (!pending.isEmpty()) {
+                sink.accept(await(pending.poll()));
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+        return rows;
+    }
 
-                    String dtStr = safeGet(row, idxDt);
-                    if (dtStr != null && !dtStr.isBlank()) {
-                        e.setDt(dtStr);
-                    }
+    private List<String[]> readBlock(CSVReader csv, int size) throws IOException {
+        List<String[]> block = new ArrayList<>(size);
+        String[] row;
+        while (block.size() < size && (row = csv.readNext()) != null) {
+            block.add(row);
+        }
+        return block;
+    }
 
-                    String ageStr = safeGet(row, idxAge);
-                    if (ageStr != null && !ageStr.isBlank()) {
-                        ageStr = normalizeNumber(ageStr);
-                        if (ageStr.contains(".")) {
-                            ageStr = ageStr.substring(0, ageStr.indexOf('.'));
-                        }
-                        e.setAge(Integer.parseInt(ageStr));
-                    }
+    private ClientRowParser.Block await(Future<ClientRowParser.Block> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("CSV row parsing failed", ex.getCause());
+        }
+    }
 
-                    String genderStr = safeGet(row, idxGender);
-                    if (genderStr != null && !genderStr.isBlank()) {
-                        e.setGender(genderStr);
+    private final class ChunkWriter implements BlockSink {
+
+        private final List<Client> batch = new ArrayList<>(batchSize);
+        private final long[] hashes = new long[batchSize];
+        private final long startedAt = System.nanoTime();
+        private long written;
+        private long nextProgressAt = progressInterval;
+        private final Counter rows = meterRegistry.counter("ingest.rows");
+        private final Timer writes = Timer.builder("ingest.batch.write")
+                .description("Database write of one ingest batch")
+                .register(meterRegistry);
+
+        @Override
+        public void accept(ClientRowParser.Block block) {
+            for (int i = 0; i < block.clients().size(); i++) {
+                hashes[batch.size()] = block.hashes()[i];
+                batch.add(block.clients().get(i));
+                if (batch.size() >= batchSize) {
+                    flush();
+                    if (written >= nextProgressAt) {
+                        log.info("Ingested {} clients ({} rows/s)", written, rate());
+                        nextProgressAt += progressInterval;
                     }
+                }
+            }
+        }
 
-                    String adminareaStr = safeGet(row, idxAdminarea);
-                    if (adminareaStr != null && !adminareaStr.isBlank()) {
-                        e.setAdminarea(adminareaStr);
-                    }
+        void finish() {
+            flush();
+            log.info("Ingest finished: {} clients in {} ms ({} rows/s)",
+                    written, (System.nanoTime() - startedAt) / 1_000_000, rate());
+        }
 
-                    String incomeValStr = safeGet(row, idxIncomeValue);
-                    if (incomeValStr != null && !incomeValStr.isBlank()) {
-                        incomeValStr = normalizeNumber(incomeValStr);
-                        try {
-                            e.setIncomeValue(new BigDecimal(incomeValStr));
-                        } catch (NumberFormatException ex) {
-                            System.out.println("logged");
-                        }
-                    }
+        private void flush() {
+            written += batch.size();
+            FeatureDictionary dictionary = dictionaryStore.dictionary();
+            List<String> features = batch.stream()
+                    .map(e -> FeatureJsonbMigration.json(e.getFeatureVector(), dictionary))
+                    .toList();
+            writes.record(() -> clientJdbcWriter.insertAll(batch, features, Arrays.copyOf(hashes, batch.size())));
+            rows.increment(batch.size());
+            rowsPerSecond.set(rate());
+            clientStatsService.record(batch);
+            mlResultCache.invalidateAll(batch.stream().map(Client::getId).toList());
+            dataVersion.contentChanged();
+            batch.clear();
+        }
 
-                    String incomeCatStr = safeGet(row, idxIncomeCategory);
-                    if (incomeCatStr != null && !incomeCatStr.isBlank()) {
-                        e.setIncomeCategory(incomeCatStr);
-                    }
+        private long rate() {
+            long elapsedNanos = Math.max(System.nanoTime() - startedAt, 1);
+            return written * 1_000_000_000L / elapsedNanos;
+        }
+    }
 
-                    Map<String, Object> features = new HashMap<>();
-                    for (int i = 0; i < header.length; i++) {
-                        String col = header[i];
-
-                        if (i == idxId || i == idxDt || i == idxAge ||
-                                i == idxGender || i == idxAdminarea ||
-                                i == idxIncomeValue || i == idxIncomeCategory) {
-                            continue;
-                        }
-
-                        String val = row[i];
-                        if (val == null || val.isBlank()) {
-                            continue;
-                        }
-
-                        val = val.trim();
-                        String norm = normalizeNumber(val);
-                        Object valueObj = norm;
-
-                        try {
-                            if (norm.matches("^-?\\d+(\\.\\d+)?$")) {
-                                if (norm.contains(".")) {
-                                    valueObj = Double.parseDouble(norm);
-                                } else {
-                                    valueObj = Long.parseLong(norm);
-                                }
-                            }
-                        } catch (NumberFormatException ignore) {
-                            valueObj = val;
-                        }
-                        features.put(col, valueObj);
-                    }
+    /**
+     * Batches the clients of a refresh and writes only the new and changed ones, see
+     * {@link #refresh}. Of an id repeated within a batch the last row wins.
+     */
+    private final class DeltaWriter implements BlockSink {
+
+        private final boolean deleteMissing;
+        /** Whether the hot store is serving; before that it is warmed from the database. */
+        private final boolean live;
+        private final List<Client> batch = new ArrayList<>(batchSize);
+        private final long[] hashes = new long[batchSize];
+        private final long startedAt = System.nanoTime();
+        private long parsed;
+        private long inserted;
+        private long updated;
+        private long unchanged;
+        /** Every id in the file so far, when missing clients are to be deleted. */
+        private long[] seen = new long[1024];
+        private int seenCount;
+        /** Clients new to the database, for the hot store once the refresh is done. */
+        private final Map<Long, ClientHotStore.Entry> added = new LinkedHashMap<>();
+
+        DeltaWriter(boolean deleteMissing, boolean live) {
+            this.deleteMissing = deleteMissing;
+            this.live = live;
+        }
 
-                    String featuresJson = objectMapper.writeValueAsString(features);
-                    e.setFeatures(featuresJson);
+        @Override
+        public void accept(ClientRowParser.Block block) {
+            parsed += block.clients().size();
+            for (int i = 0; i < block.clients().size(); i++) {
+                hashes[batch.size()] = block.hashes()[i];
+                batch.add(block.clients().get(i));
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
 
-                    batch.add(e);
+        IngestReportDto finish(long rows) {
+            flush();
+            long deleted = 0;
+            long[] deletedIds = new long[0];
+            if (deleteMissing) {
+                if (parsed == 0) {
+                    throw new ResponseStatusException(
+                            HttpStatus.BAD_REQUEST, "The file holds no clients, refusing to delete every stored one"
+                    );
                 }
+                deletedIds = deleteMissing();
+                deleted = deletedIds.length;
             }
+            hotStore.apply(List.copyOf(added.values()), deletedIds);
+            dataVersion.contentChanged();
+            refreshed("inserted", inserted);
+            refreshed("updated", updated);
+            refreshed("unchanged", unchanged);
+            refreshed("deleted", deleted);
+
+            long millis = (System.nanoTime() - startedAt) / 1_000_000;
+            log.info("Refresh finished in {} ms: {} rows, {} rejected, {} inserted, {} updated, {} unchanged, {} deleted",
+                    millis, rows, rows - parsed, inserted, updated, unchanged, deleted);
+            return new IngestReportDto(rows, rows - parsed, inserted, updated, unchanged, deleted, millis);
         }
 
-        clientRepository.saveAll(batch);
-    }
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<Long, Integer> last = new LinkedHashMap<>(batch.size() * 4 / 3 + 1);
+            for (int i = 0; i < batch.size(); i++) {
+                last.put(batch.get(i).getId(), i);
+            }
+            long[] ids = last.keySet().stream().mapToLong(Long::longValue).toArray();
+            Map<Long, ClientJdbcReader.Stored> stored = clientJdbcReader.findStored(ids);
+
+            List<Client> changed = new ArrayList<>();
+            long[] changedHashes = new long[ids.length];
+            List<Client> previous = new ArrayList<>();
+            for (int i : last.values()) {
+                Client e = batch.get(i);
+                ClientJdbcReader.Stored old = stored.get(e.getId());
+                if (old != null && old.contentHash() != null && old.contentHash() == hashes[i]) {
+                    unchanged++;
+                    continue;
+                }
+                if (old == null) {
+                    inserted++;
+                } else {
+                    updated++;
+                    previous.add(old.client());
+                }
+                changedHashes[changed.size()] = hashes[i];
+                changed.add(e);
+            }
+
+            if (!changed.isEmpty()) {
+                FeatureDictionary dictionary = dictionaryStore.dictionary();
+                List<String> features = changed.stream()
+                        .map(e -> FeatureJsonbMigration.json(e.getFeatureVector(), dictionary))
+                        .toList();
+                List<FeatureVector> vectors = changed.stream()
+                        .map(e -> FeatureVectorCodec.decode(e.getFeatureVector()))
+                        .toList();
+                hotStore.writing(() -> {
+                    clientJdbcWriter.upsertAll(changed, features, Arrays.copyOf(changedHashes, changed.size()));
+                    hotStore.replace(changed, vectors);
+                });
+
+                clientStatsService.remove(previous);
+                clientStatsService.record(changed);
+                for (int i = 0; i < changed.size(); i++) {
+                    Client e = changed.get(i);
+                    if (live && (!stored.containsKey(e.getId()) || added.containsKey(e.getId()))) {
+                        added.put(e.getId(), new ClientHotStore.Entry(e, vectors.get(i)));
+                    }
+                }
+                mlResultCache.invalidateAll(changed.stream().map(Client::getId).toList());
+                dataVersion.contentChanged();
+            }
 
-    private int indexOf(String[] header, String name) {
-        for (int i = 0; i < header.length; i++) {
-            if (name.equals(header[i])) {
-                return i;
+            if (deleteMissing) {
+                if (seenCount + ids.length > seen.length) {
+                    seen = Arrays.copyOf(seen, Math.max(seen.length * 2, seenCount + ids.length));
+                }
+                System.arraycopy(ids, 0, seen, seenCount, ids.length);
+                seenCount += ids.length;
             }
+            batch.clear();
         }
-        return -1;
-    }
 
-    private String safeGet(String[] row, int idx) {
-        if (idx < 0 || idx >= row.length) return null;
-        return row[idx];
-    }
+        /**
+         * Deletes, in batches, the stored clients whose ids the file did not contain.
+         *
+         * @return the deleted ids
+         */
+        private long[] deleteMissing() {
+            long[] present = Arrays.copyOf(seen, seenCount);
+            Arrays.sort(present);
+            long[] deleted = new long[0];
+            long lastId = Long.MIN_VALUE;
+            while (true) {
+                List<Long> ids = clientJdbcReader.findIdsAfter(lastId, batchSize);
+                long[] missing = ids.stream()
+                        .mapToLong(Long::longValue)
+                        .filter(id -> Arrays.binarySearch(present, id) < 0)
+                        .toArray();
+                if (missing.length > 0) {
+                    List<Client> removed = clientJdbcWriter.deleteAll(missing);
+                    clientStatsService.remove(removed);
+                    mlResultCache.invalidateAll(removed.stream().map(Client::getId).toList());
+                    int from = deleted.length;
+                    deleted = Arrays.copyOf(deleted, from + removed.size());
+                    for (int i = 0; i < removed.size(); i++) {
+                        deleted[from + i] = removed.get(i).getId();
+                    }
+                }
+                if (ids.size() < batchSize) {
+                    return deleted;
+                }
+                lastId = ids.getLast();
+            }
+        }
 
-    private String normalizeNumber(String s) {
-        if (s == null) return null;
-        s = s.trim();
-        s = s.replace(',', '.');
-        return s;
+        private void refreshed(String outcome, long count) {
+            meterRegistry.counter("ingest.refresh.rows", "outcome", outcome).increment(count);
+        }
     }
-
 }
-
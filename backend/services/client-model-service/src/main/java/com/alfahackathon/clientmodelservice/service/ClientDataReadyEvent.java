@@ -0,0 +1,15 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by {@link ClientDataStartup} on its own thread once the feature dictionary is
+ * loaded, migrations have run and the clients table is filled. Listeners that build on the
+ * stored clients (indexes, statistics, the hot store) run before the service reports ready.
+ */
+public class ClientDataReadyEvent extends ApplicationEvent {
+
+    public ClientDataReadyEvent(Object source) {
+        super(source);
+    }
+}
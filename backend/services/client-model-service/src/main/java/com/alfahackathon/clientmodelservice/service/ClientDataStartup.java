@@ -0,0 +1,78 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings the client data up in the background once the context has started, so the web
+ * server and the probes answer within seconds while the feature dictionary loads, migrations
+ * run and an empty table is ingested. Then publishes {@link ClientDataReadyEvent} and only
+ * after its listeners report ready.
+ * <p>
+ * As the {@code clientData} health indicator, which the readiness group includes, this is
+ * {@code OUT_OF_SERVICE} until then; {@code /api} requests get {@code 503} meanwhile. Liveness
+ * stays up during the load, however long it takes, and turns {@code BROKEN} if it fails.
+ */
+@Slf4j
+@Component("clientData")
+@RequiredArgsConstructor
+public class ClientDataStartup implements HealthIndicator {
+
+    private enum State { LOADING, READY, FAILED }
+
+    private final FeatureDictionaryStore dictionaryStore;
+    private final ClientCsvLoader csvLoader;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile State state = State.LOADING;
+    private volatile Exception failure;
+    private volatile long startedAt;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        startedAt = System.currentTimeMillis();
+        Thread.ofPlatform().name("client-data-startup").start(this::load);
+    }
+
+    private void load() {
+        try {
+            dictionaryStore.load();
+            csvLoader.load();
+            eventPublisher.publishEvent(new ClientDataReadyEvent(this));
+            state = State.READY;
+            log.info("Client data ready in {} ms", System.currentTimeMillis() - startedAt);
+        } catch (Exception ex) {
+            failure = ex;
+            state = State.FAILED;
+            log.error("Client data failed to load, marking the service broken", ex);
+            AvailabilityChangeEvent.publish(eventPublisher, this, LivenessState.BROKEN);
+        }
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public boolean isFailed() {
+        return state == State.FAILED;
+    }
+
+    @Override
+    public Health health() {
+        return switch (state) {
+            case READY -> Health.up().build();
+            case LOADING -> Health.outOfService()
+                    .withDetail("loadingMillis", System.currentTimeMillis() - startedAt)
+                    .build();
+            case FAILED -> Health.down(failure).build();
+        };
+    }
+}
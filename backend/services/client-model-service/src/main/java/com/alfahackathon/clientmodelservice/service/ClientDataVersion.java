@@ -0,0 +1,42 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes to the stored clients, for validators of cached responses. The content
+ * version advances after each ingest or refresh batch is visible to readers, the scores
+ * version after each batch of scores. Both start over with the process, so tags also carry a
+ * random epoch.
+ */
+@Component
+public class ClientDataVersion {
+
+    private final String epoch = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong content = new AtomicLong();
+    private final AtomicLong scores = new AtomicLong();
+
+    public void contentChanged() {
+        content.incrementAndGet();
+    }
+
+    public void scoresChanged() {
+        scores.incrementAndGet();
+    }
+
+    public long content() {
+        return content.get();
+    }
+
+    /**
+     * @param withScores whether the tag should also change with stored scores, for responses
+     *                   that order or show clients by them
+     */
+    public String tag(boolean withScores) {
+        return withScores
+                ? epoch + "-" + content.get() + "." + scores.get()
+                : epoch + "-" + content.get();
+    }
+}
@@ -0,0 +1,214 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.ClientFilter;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.repository.ClientExportReader;
+import com.alfahackathon.clientmodelservice.util.FeaturePayloadWriter;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes every client matching a filter to a stream as NDJSON or CSV, optionally with the
+ * feature cells and the stored score. Clients are read through {@link ClientExportReader}'s
+ * cursor and written one at a time, so memory use does not grow with the number of rows.
+ * <p>
+ * CSV has one column per feature the dictionary knew when the export started; cells of
+ * features added by an ingest running meanwhile are left out.
+ */
+@Slf4j
+@Service
+public class ClientExportService {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        /**
+         * @throws IllegalArgumentException for anything but {@code ndjson} or {@code csv}
+         */
+        public static Format parse(String format) {
+            return valueOf(format.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final List<String> CLIENT_COLUMNS = List.of(
+            "id", "dt", "gender", "age", "adminarea", "citySmartName", "incomeValue", "incomeCategory"
+    );
+    private static final List<String> SCORE_COLUMNS = List.of("approvalProbability", "decision", "scoreModelVersion");
+
+    private final ClientExportReader exportReader;
+    private final FeatureDictionaryStore dictionaryStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter ndjsonWriter;
+    private final Map<Format, Timer> timers = new EnumMap<>(Format.class);
+
+    public ClientExportService(ClientExportReader exportReader,
+                               FeatureDictionaryStore dictionaryStore,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               MeterRegistry registry) {
+        this.exportReader = exportReader;
+        this.dictionaryStore = dictionaryStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.ndjsonWriter = objectMapper.writer().withRootValueSeparator("\n");
+        for (Format format : Format.values()) {
+            timers.put(format, Timer.builder("clients.export")
+                    .description("Client exports, from the query to the last row written")
+                    .tag("format", format.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+    }
+
+    /**
+     * @return the number of clients written
+     */
+    public long export(ClientFilter filter, Format format, boolean features, boolean scores, OutputStream out) {
+        long started = System.nanoTime();
+        FeatureDictionary dictionary = dictionaryStore.dictionary();
+        Long written = transactionTemplate.execute(status -> {
+            try (Stream<Client> clients = exportReader.stream(filter, features)) {
+                return switch (format) {
+                    case NDJSON -> writeNdjson(clients.iterator(), dictionary, features, scores, out);
+                    case CSV -> writeCsv(clients.iterator(), dictionary, features, scores, out);
+                };
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        long elapsed = System.nanoTime() - started;
+        timers.get(format).record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Exported {} clients as {} in {} ms", written, format, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return written == null ? 0 : written;
+    }
+
+    private long writeNdjson(Iterator<Client> clients, FeatureDictionary dictionary, boolean features,
+                             boolean scores, OutputStream out) {
+        long written = 0;
+        try (JsonGenerator gen = ndjsonWriter.createGenerator(out)) {
+            while (clients.hasNext()) {
+                Client e = clients.next();
+                gen.writeStartObject();
+                gen.writeNumberProperty("id", e.getId());
+                gen.writePOJOProperty("dt", e.getDt());
+                gen.writePOJOProperty("gender", e.getGender());
+                gen.writePOJOProperty("age", e.getAge());
+                gen.writePOJOProperty("adminarea", e.getAdminarea());
+                gen.writePOJOProperty("citySmartName", e.getCitySmartName());
+                gen.writePOJOProperty("incomeValue", e.getIncomeValue());
+                gen.writePOJOProperty("incomeCategory", e.getIncomeCategory());
+                if (scores) {
+                    gen.writePOJOProperty("approvalProbability", e.getApprovalProbability());
+                    gen.writePOJOProperty("decision", e.getDecision());
+                    gen.writePOJOProperty("scoreModelVersion", e.getScoreModelVersion());
+                }
+                if (features) {
+                    gen.writeName("features");
+                    gen.writeStartObject();
+                    FeaturePayloadWriter.writeCells(gen, FeatureVectorCodec.decode(e.getFeatureVector()), dictionary);
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+                written++;
+            }
+            if (written > 0) {
+                gen.writeRaw('\n');
+            }
+        }
+        return written;
+    }
+
+    private long writeCsv(Iterator<Client> clients, FeatureDictionary dictionary, boolean features,
+                          boolean scores, OutputStream out) throws IOException {
+        int featureCount = features ? dictionary.columnCount() : 0;
+        List<String> header = new ArrayList<>(CLIENT_COLUMNS);
+        if (scores) {
+            header.addAll(SCORE_COLUMNS);
+        }
+        for (int column = 0; column < featureCount; column++) {
+            header.add(dictionary.columnName(column));
+        }
+
+        long written = 0;
+        String[] cells = new String[featureCount];
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+            writeCsvRow(w, header);
+            List<Object> row = new ArrayList<>(header.size());
+            while (clients.hasNext()) {
+                Client e = clients.next();
+                row.clear();
+                row.addAll(Arrays.asList(e.getId(), e.getDt(), e.getGender(), e.getAge(), e.getAdminarea(),
+                        e.getCitySmartName(), e.getIncomeValue(), e.getIncomeCategory()));
+                if (scores) {
+                    row.addAll(Arrays.asList(e.getApprovalProbability(), e.getDecision(), e.getScoreModelVersion()));
+                }
+                if (features) {
+                    Arrays.fill(cells, null);
+                    FeatureVector vector = FeatureVectorCodec.decode(e.getFeatureVector());
+                    for (int i = 0; i < vector.size(); i++) {
+                        if (vector.column(i) < featureCount) {
+                            cells[vector.column(i)] = String.valueOf(vector.valueObject(i, dictionary));
+                        }
+                    }
+                    row.addAll(Arrays.asList(cells));
+                }
+                writeCsvRow(w, row);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void writeCsvRow(Writer w, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                w.write(',');
+            }
+            Object value = values.get(i);
+            if (value instanceof BigDecimal d) {
+                w.write(d.toPlainString());
+            } else if (value != null) {
+                w.write(csvField(value.toString()));
+            }
+        }
+        w.write('\n');
+    }
+
+    /** RFC 4180 quoting: fields holding a comma, quote or line break are quoted, quotes doubled. */
+    static String csvField(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
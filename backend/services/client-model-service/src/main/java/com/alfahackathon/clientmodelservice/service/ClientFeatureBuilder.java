@@ -0,0 +1,71 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import com.alfahackathon.clientmodelservice.util.FeaturePayloadWriter;
+import com.alfahackathon.clientmodelservice.util.PositionalPayloadWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class ClientFeatureBuilder {
+
+    private final FeatureDictionaryStore dictionaryStore;
+    private final ClientReadService clientReadService;
+    private final MlClient mlClient;
+
+    private volatile PositionalPayloadWriter.Layout layout;
+
+    /** The client's feature cells as a map, for API responses. */
+    public Map<String, Object> parse(Client e) {
+        return clientReadService.features(e).toMap(dictionaryStore.dictionary());
+    }
+
+    /** Only the named feature cells, in the order given; names the client lacks are left out. */
+    public Map<String, Object> parse(Client e, Collection<String> names) {
+        FeatureDictionary dictionary = dictionaryStore.dictionary();
+        FeatureVector features = clientReadService.features(e);
+        Map<String, Object> map = new LinkedHashMap<>(names.size() * 4 / 3 + 1);
+        for (String name : names) {
+            int column = dictionary.findColumn(name);
+            int i = column < 0 ? -1 : features.indexOf(column);
+            if (i >= 0) {
+                map.put(name, features.valueObject(i, dictionary));
+            }
+        }
+        return map;
+    }
+
+    /** Whether any stored client can have a feature of this name. */
+    public boolean isKnown(String name) {
+        return dictionaryStore.dictionary().findColumn(name) >= 0;
+    }
+
+    /**
+     * The client's features for the ML service: positional for the model's schema when there is
+     * one, else the map contract's object of typed fields plus feature cells.
+     */
+    public FeaturePayload payload(Client e) {
+        FeatureDictionary dictionary = dictionaryStore.dictionary();
+        FeatureVector features = clientReadService.features(e);
+        MlSchema schema = mlClient.schema();
+        if (schema == null) {
+            return FeaturePayloadWriter.write(e, features, dictionary);
+        }
+        PositionalPayloadWriter.Layout current = layout;
+        if (current == null || !current.isCurrent(schema, dictionary)) {
+            current = PositionalPayloadWriter.Layout.of(schema, dictionary);
+            layout = current;
+        }
+        return PositionalPayloadWriter.write(e, features, dictionary, current,
+                () -> FeaturePayloadWriter.write(e, features, dictionary));
+    }
+}
@@ -0,0 +1,374 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.HotStoreStatsDto;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.ClientScore;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.repository.ClientJdbcReader;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import com.alfahackathon.clientmodelservice.util.LongIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only copy of every client held in memory, with features already decoded, so lookups and
+ * unsorted page listings skip the database. Clients are kept in id order behind a
+ * {@link LongIndex}; warming stops at the configured memory budget, after which the store only
+ * answers for the clients it holds and page listings go back to the repository.
+ * <p>
+ * Delta ingest keeps it current: changed clients are swapped into their slots as each batch is
+ * written, and new and deleted ones are merged into a fresh snapshot once the refresh is done.
+ */
+@Slf4j
+@Component
+public class ClientHotStore {
+
+    /** Upper bound of the index cost per entry: at most four slots of a long key and an int. */
+    private static final int INDEX_BYTES_PER_ENTRY = 4 * (Long.BYTES + Integer.BYTES);
+
+    /** Slots are swapped for updated copies while readers hold the array. */
+    private static final VarHandle CLIENTS = MethodHandles.arrayElementVarHandle(Client[].class);
+    private static final VarHandle VECTORS = MethodHandles.arrayElementVarHandle(FeatureVector[].class);
+
+    /** A client with its decoded features. */
+    public record Entry(Client client, FeatureVector features) {}
+
+    private record Snapshot(LongIndex index, Client[] clients, FeatureVector[] vectors, int size,
+                            boolean complete, long footprintBytes, long warmMillis) {}
+
+    private static final Snapshot EMPTY = new Snapshot(new LongIndex(0), new Client[0], new FeatureVector[0],
+            0, false, 0, 0);
+
+    private final ClientJdbcReader clientJdbcReader;
+    private final boolean enabled;
+    private final long budgetBytes;
+    private final int scanSize;
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    public ClientHotStore(
+            ClientJdbcReader clientJdbcReader,
+            @Value("${clients.hot-store.enabled:true}") boolean enabled,
+            @Value("${clients.hot-store.max-memory:512MB}") DataSize budget,
+            @Value("${clients.hot-store.scan-size:5000}") int scanSize,
+            MeterRegistry registry
+    ) {
+        this.clientJdbcReader = clientJdbcReader;
+        this.enabled = enabled;
+        this.budgetBytes = budget.toBytes();
+        this.scanSize = scanSize;
+        Gauge.builder("clients.hot_store.size", this, store -> store.snapshot.size())
+                .register(registry);
+        Gauge.builder("clients.hot_store.footprint", this, store -> store.snapshot.footprintBytes())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @EventListener(ClientDataReadyEvent.class)
+    public synchronized void warm() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+
+        Client[] clients = new Client[scanSize];
+        FeatureVector[] vectors = new FeatureVector[scanSize];
+        Map<String, String> strings = new HashMap<>();
+        int size = 0;
+        long bytes = 0;
+        boolean complete = true;
+        long lastId = Long.MIN_VALUE;
+
+        scan:
+        while (true) {
+            List<Client> chunk = clientJdbcReader.findAfter(lastId, scanSize);
+            for (Client e : chunk) {
+                FeatureVector vector = FeatureVectorCodec.decode(e.getFeatureVector());
+                e.setFeatureVector(null);
+                e.setDt(dedupe(strings, e.getDt()));
+                e.setGender(dedupe(strings, e.getGender()));
+                e.setAdminarea(dedupe(strings, e.getAdminarea()));
+                e.setCitySmartName(dedupe(strings, e.getCitySmartName()));
+                e.setIncomeCategory(dedupe(strings, e.getIncomeCategory()));
+                e.setDecision(dedupe(strings, e.getDecision()));
+                e.setScoreModelVersion(dedupe(strings, e.getScoreModelVersion()));
+
+                long cost = clientBytes(e) + vectorBytes(vector) + INDEX_BYTES_PER_ENTRY;
+                if (bytes + cost > budgetBytes) {
+                    complete = false;
+                    break scan;
+                }
+                if (size == clients.length) {
+                    clients = Arrays.copyOf(clients, size * 2);
+                    vectors = Arrays.copyOf(vectors, size * 2);
+                }
+                clients[size] = e;
+                vectors[size] = vector;
+                size++;
+                bytes += cost;
+            }
+            if (chunk.size() < scanSize) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+
+        LongIndex index = new LongIndex(size);
+        for (int i = 0; i < size; i++) {
+            index.put(clients[i].getId(), i);
+        }
+        long footprint = bytes - (long) size * INDEX_BYTES_PER_ENTRY + index.footprintBytes()
+                + stringsBytes(strings) + 2L * 16 + 2L * clients.length * 4;
+
+        long warmMillis = System.currentTimeMillis() - started;
+        snapshot = new Snapshot(index, clients, vectors, size, complete, footprint, warmMillis);
+
+        if (complete) {
+            log.info("Hot client store warmed: {} clients, ~{} MB in {} ms",
+                    size, footprint >> 20, warmMillis);
+        } else {
+            log.warn("Hot client store stopped at {} clients (~{} MB): memory budget of {} MB reached",
+                    size, footprint >> 20, budgetBytes >> 20);
+        }
+    }
+
+    public Client find(long id) {
+        Snapshot s = snapshot;
+        int slot = s.index().get(id);
+        return slot < 0 ? null : client(s.clients(), slot);
+    }
+
+    public FeatureVector features(long id) {
+        Snapshot s = snapshot;
+        int slot = s.index().get(id);
+        return slot < 0 ? null : (FeatureVector) VECTORS.getAcquire(s.vectors(), slot);
+    }
+
+    /**
+     * @return the page in id order, or {@code null} when the store does not hold every client
+     * or the page asks for a sort
+     */
+    public Page<Client> page(Pageable pageable) {
+        Snapshot s = snapshot;
+        if (!s.complete() || pageable.getSort().isSorted()) {
+            return null;
+        }
+        int from = (int) Math.min(pageable.getOffset(), s.size());
+        int to = (int) Math.min((long) from + pageable.getPageSize(), s.size());
+        return new PageImpl<>(slice(s.clients(), from, to), pageable, s.size());
+    }
+
+    /**
+     * Keyset slice in id order: up to {@code limit} clients with an id above {@code afterId}, or
+     * {@code null} when the store does not hold every client.
+     */
+    public List<Client> after(long afterId, int limit) {
+        Snapshot s = snapshot;
+        if (!s.complete()) {
+            return null;
+        }
+        Client[] clients = s.clients();
+        int lo = 0;
+        int hi = s.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (client(clients, mid).getId() <= afterId) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int to = (int) Math.min((long) lo + limit, s.size());
+        return slice(clients, lo, to);
+    }
+
+    /**
+     * @return the number of clients, or {@code -1} when the store does not hold every client
+     */
+    public long count() {
+        Snapshot s = snapshot;
+        return s.complete() ? s.size() : -1;
+    }
+
+    /**
+     * Runs a database write and the matching change to the held clients as one step with
+     * respect to the other writers, so what the store holds follows the order of the database
+     * writes: a score written for a client's old content cannot land after a refresh swapped
+     * in the new content.
+     */
+    public synchronized void writing(Runnable write) {
+        write.run();
+    }
+
+    /**
+     * Replaces the held clients with copies carrying the new scores; clients the store does not
+     * hold are skipped.
+     */
+    public synchronized void applyScores(List<ClientScore> scores) {
+        Snapshot s = snapshot;
+        for (ClientScore score : scores) {
+            int slot = s.index().get(score.clientId());
+            if (slot < 0) {
+                continue;
+            }
+            Client copy = new Client(client(s.clients(), slot));
+            copy.setApprovalProbability(score.approvalProbability());
+            copy.setDecision(score.decision());
+            copy.setScoreModelVersion(score.modelVersion());
+            CLIENTS.setRelease(s.clients(), slot, copy);
+        }
+    }
+
+    /**
+     * Swaps in new data for the held clients among {@code clients}, with their decoded features
+     * at the same index; clients the store does not hold are skipped.
+     */
+    public synchronized void replace(List<Client> clients, List<FeatureVector> vectors) {
+        Snapshot s = snapshot;
+        for (int i = 0; i < clients.size(); i++) {
+            int slot = s.index().get(clients.get(i).getId());
+            if (slot < 0) {
+                continue;
+            }
+            Client copy = new Client(clients.get(i));
+            copy.setFeatureVector(null);
+            VECTORS.setRelease(s.vectors(), slot, vectors.get(i));
+            CLIENTS.setRelease(s.clients(), slot, copy);
+        }
+    }
+
+    /**
+     * Adds clients new to the database and drops deleted ones by swapping in a merged snapshot.
+     * A store that does not hold every client only drops; one the additions would push over the
+     * memory budget is warmed again from the database instead.
+     *
+     * @param inserted clients new to the database
+     * @param deleted  ids of deleted clients
+     */
+    public synchronized void apply(List<Entry> inserted, long[] deleted) {
+        if (!enabled || (inserted.isEmpty() && deleted.length == 0)) {
+            return;
+        }
+        Snapshot s = snapshot;
+        long[] gone = deleted.clone();
+        Arrays.sort(gone);
+        Integer[] order = new Integer[s.complete() ? inserted.size() : 0];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(i -> inserted.get(i).client().getId()));
+
+        int capacity = s.size() + order.length;
+        Client[] clients = new Client[Math.max(capacity, 1)];
+        FeatureVector[] featureVectors = new FeatureVector[clients.length];
+        long bytes = s.footprintBytes();
+        int size = 0;
+        int next = 0;
+        for (int slot = 0; slot <= s.size(); slot++) {
+            Client held = slot < s.size() ? client(s.clients(), slot) : null;
+            while (next < order.length && (held == null || inserted.get(order[next]).client().getId() < held.getId())) {
+                Entry entry = inserted.get(order[next++]);
+                Client copy = new Client(entry.client());
+                copy.setFeatureVector(null);
+                FeatureVector vector = entry.features();
+                clients[size] = copy;
+                featureVectors[size++] = vector;
+                bytes += clientBytes(copy) + vectorBytes(vector) + INDEX_BYTES_PER_ENTRY;
+            }
+            if (held == null) {
+                break;
+            }
+            FeatureVector vector = (FeatureVector) VECTORS.getAcquire(s.vectors(), slot);
+            if (Arrays.binarySearch(gone, held.getId()) >= 0) {
+                bytes -= clientBytes(held) + vectorBytes(vector) + INDEX_BYTES_PER_ENTRY;
+                continue;
+            }
+            clients[size] = held;
+            featureVectors[size++] = vector;
+        }
+        if (bytes > budgetBytes) {
+            log.info("Hot client store over its memory budget after the refresh, warming it again");
+            warm();
+            return;
+        }
+
+        LongIndex index = new LongIndex(size);
+        for (int i = 0; i < size; i++) {
+            index.put(clients[i].getId(), i);
+        }
+        snapshot = new Snapshot(index, clients, featureVectors, size, s.complete(), bytes, s.warmMillis());
+        log.info("Hot client store updated: {} clients added, {} removed, {} held",
+                order.length, s.size() + order.length - size, size);
+    }
+
+    public HotStoreStatsDto stats() {
+        Snapshot s = snapshot;
+        return new HotStoreStatsDto(enabled, s.complete(), s.size(), s.footprintBytes(), budgetBytes, s.warmMillis());
+    }
+
+    private static Client client(Client[] clients, int slot) {
+        return (Client) CLIENTS.getAcquire(clients, slot);
+    }
+
+    private static List<Client> slice(Client[] clients, int from, int to) {
+        Client[] page = new Client[to - from];
+        for (int i = from; i < to; i++) {
+            page[i - from] = client(clients, i);
+        }
+        return List.of(page);
+    }
+
+    private static String dedupe(Map<String, String> strings, String value) {
+        return value == null ? null : strings.computeIfAbsent(value, v -> v);
+    }
+
+    /**
+     * Client object, boxed id, age and score, and the income BigDecimal; strings are counted
+     * once.
+     */
+    private static long clientBytes(Client e) {
+        long bytes = 64 + 16;
+        if (e.getApprovalProbability() != null) {
+            bytes += 16;
+        }
+        if (e.getAge() != null && (e.getAge() < -128 || e.getAge() > 127)) {
+            bytes += 16;
+        }
+        if (e.getIncomeValue() != null) {
+            bytes += 40;
+        }
+        return bytes;
+    }
+
+    private static long vectorBytes(FeatureVector v) {
+        int n = v.size();
+        return 24 + align(16 + 4L * n) + align(16 + n) + align(16 + 8L * n);
+    }
+
+    private static long stringsBytes(Map<String, String> strings) {
+        long bytes = 0;
+        for (String s : strings.keySet()) {
+            boolean latin1 = s.chars().allMatch(c -> c < 256);
+            bytes += 24 + align(16 + (long) s.length() * (latin1 ? 1 : 2));
+        }
+        return bytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
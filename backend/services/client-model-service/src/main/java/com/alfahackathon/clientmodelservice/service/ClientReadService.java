@@ -0,0 +1,206 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.ClientFeaturesDto;
+import com.alfahackathon.clientmodelservice.dto.ClientFilter;
+import com.alfahackathon.clientmodelservice.dto.ClientMapper;
+import com.alfahackathon.clientmodelservice.dto.ClientShortDto;
+import com.alfahackathon.clientmodelservice.dto.ClientSort;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.repository.ClientQueryRepository;
+import com.alfahackathon.clientmodelservice.repository.ClientRepository;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import com.alfahackathon.clientmodelservice.util.ScrollCursor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Client reads for the API: answered from {@link ClientHotStore} when it holds the data, from
+ * the database otherwise. List reads only select the {@link ClientShortDto} columns and take the
+ * total from a per-filter count cached for {@code clients.count-cache-ttl}, or until an ingest
+ * or refresh changes the clients.
+ * <p>
+ * Database round trips are timed into {@code clients.db.queries} tagged with the operation;
+ * reads the hot store answers are not timed, only counted in {@code clients.reads} by source.
+ */
+@Service
+public class ClientReadService {
+
+    private final ClientHotStore hotStore;
+    private final ClientRepository clientRepository;
+    private final ClientQueryRepository clientQueryRepository;
+    private final ClientDataVersion dataVersion;
+    private final Cache<CountKey, Long> counts;
+    private final Map<Op, Timer> dbTimers = new EnumMap<>(Op.class);
+    private final Map<Op, Counter> hotReads = new EnumMap<>(Op.class);
+    private final Timer decodeTimer;
+
+    /** A count as of a content version, so one taken before a refresh is not used after it. */
+    private record CountKey(ClientFilter filter, long contentVersion) {}
+
+    private enum Op { FIND_BY_ID, FIND_ALL_BY_ID, PAGE, SCROLL, COUNT, FEATURES }
+
+    public ClientReadService(
+            ClientHotStore hotStore,
+            ClientRepository clientRepository,
+            ClientQueryRepository clientQueryRepository,
+            ClientDataVersion dataVersion,
+            @Value("${clients.count-cache-ttl:30s}") Duration countTtl,
+            MeterRegistry registry
+    ) {
+        this.hotStore = hotStore;
+        this.clientRepository = clientRepository;
+        this.clientQueryRepository = clientQueryRepository;
+        this.dataVersion = dataVersion;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .expireAfterWrite(countTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, counts, "clients.counts");
+        for (Op op : Op.values()) {
+            String tag = op.name().toLowerCase();
+            dbTimers.put(op, Timer.builder("clients.db.queries")
+                    .description("Client read round trips to the database")
+                    .tag("op", tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry));
+            hotReads.put(op, Counter.builder("clients.reads")
+                    .tag("op", tag)
+                    .tag("source", "hot")
+                    .register(registry));
+        }
+        this.decodeTimer = Timer.builder("clients.features.decode")
+                .description("Feature vector decodes from the stored bytes")
+                .register(registry);
+    }
+
+    public Optional<Client> findById(long id) {
+        Client e = hotStore.find(id);
+        if (e != null) {
+            hotReads.get(Op.FIND_BY_ID).increment();
+            return Optional.of(e);
+        }
+        return timed(Op.FIND_BY_ID, () -> clientRepository.findById(id));
+    }
+
+    public List<Client> findAllById(Collection<Long> ids) {
+        List<Client> result = new ArrayList<>(ids.size());
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            Client e = hotStore.find(id);
+            if (e != null) {
+                result.add(e);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.size() < ids.size()) {
+            hotReads.get(Op.FIND_ALL_BY_ID).increment();
+        }
+        if (!misses.isEmpty()) {
+            result.addAll(timed(Op.FIND_ALL_BY_ID, () -> clientRepository.findAllById(misses)));
+        }
+        return result;
+    }
+
+    /**
+     * Offset page; unfiltered pages in id order come from the hot store when it holds every
+     * client.
+     */
+    public Page<ClientShortDto> findShortPage(ClientFilter filter, ClientSort sort, boolean descending,
+                                              Pageable pageable) {
+        if (filter.isEmpty() && sort == ClientSort.ID && !descending) {
+            Page<Client> page = hotStore.page(pageable);
+            if (page != null) {
+                hotReads.get(Op.PAGE).increment();
+                return page.map(ClientMapper::toShortDto);
+            }
+        }
+        List<ClientShortDto> content = timed(Op.PAGE, () -> clientQueryRepository
+                .findPage(filter, sort, descending, pageable.getOffset(), pageable.getPageSize()))
+                .stream()
+                .map(ClientQueryRepository.Row::client)
+                .toList();
+        return new PageImpl<>(content, pageable, count(filter));
+    }
+
+    /** Keyset page: up to {@code limit} clients following {@code after} in the given order. */
+    public List<ClientQueryRepository.Row> findShortAfter(ClientFilter filter, ClientSort sort, boolean descending,
+                                                          ScrollCursor after, int limit) {
+        if (filter.isEmpty() && sort == ClientSort.ID && !descending) {
+            List<Client> clients = hotStore.after(after == null ? Long.MIN_VALUE : after.lastId(), limit);
+            if (clients != null) {
+                hotReads.get(Op.SCROLL).increment();
+                return clients.stream()
+                        .map(e -> new ClientQueryRepository.Row(ClientMapper.toShortDto(e), e.getId()))
+                        .toList();
+            }
+        }
+        return timed(Op.SCROLL, () -> clientQueryRepository.findAfter(filter, sort, descending, after, limit));
+    }
+
+    /** Projected feature cells of up to {@code limit} clients after {@code afterId}, from the database. */
+    public List<ClientFeaturesDto> findFeaturesAfter(ClientFilter filter, List<String> names, Long afterId, int limit) {
+        return timed(Op.FEATURES, () -> clientQueryRepository.findFeaturesAfter(filter, names, afterId, limit));
+    }
+
+    public long count(ClientFilter filter) {
+        if (filter.isEmpty()) {
+            long hot = hotStore.count();
+            if (hot >= 0) {
+                hotReads.get(Op.COUNT).increment();
+                return hot;
+            }
+        }
+        return counts.get(new CountKey(filter, dataVersion.content()),
+                key -> timed(Op.COUNT, () -> clientQueryRepository.count(key.filter())));
+    }
+
+    /**
+     * The client's decoded features: the hot store's copy for clients it served, decoded from
+     * the stored bytes for clients loaded from the database.
+     */
+    public FeatureVector features(Client e) {
+        if (e.getFeatureVector() == null && e.getId() != null) {
+            FeatureVector cached = hotStore.features(e.getId());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long started = System.nanoTime();
+        FeatureVector features = FeatureVectorCodec.decode(e.getFeatureVector());
+        decodeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return features;
+    }
+
+    private <T> T timed(Op op, Supplier<T> query) {
+        long started = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            dbTimers.get(op).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON of client responses keyed by request URL, plus a gzip copy of bodies worth
+ * compressing, each valid for the {@link ClientDataVersion} tag it was built at. The tag is
+ * also the ETag, so a conditional request that still matches is answered before anything is
+ * read or serialized.
+ * <p>
+ * Of two requests missing the same entry at once both build it; the bodies are the same.
+ */
+@Component
+public class ClientResponseCache {
+
+    /** A body to send as is, gzip-encoded when {@code gzipped}. */
+    public record Response(String etag, byte[] body, boolean gzipped) {}
+
+    private record Entry(String tag, byte[] json, byte[] gzip) {}
+
+    /** Rough per-entry cost of the key, record and cache node besides the bodies. */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final ClientDataVersion dataVersion;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long gzipMinSize;
+    private final Cache<String, Entry> cache;
+
+    public ClientResponseCache(
+            ClientDataVersion dataVersion,
+            ObjectMapper objectMapper,
+            @Value("${clients.response-cache.enabled:true}") boolean enabled,
+            @Value("${clients.response-cache.max-memory:64MB}") DataSize maxMemory,
+            @Value("${clients.response-cache.gzip-min-size:1KB}") DataSize gzipMinSize,
+            MeterRegistry registry
+    ) {
+        this.dataVersion = dataVersion;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzipMinSize = gzipMinSize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMemory.toBytes())
+                .<String, Entry>weigher((key, entry) -> ENTRY_OVERHEAD + 2 * key.length() + entry.json().length
+                        + (entry.gzip() == null ? 0 : entry.gzip().length))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "clients.responses");
+    }
+
+    /**
+     * @return the entity tag from {@code ifNoneMatch} that the current version of a response
+     * would carry, in either encoding, or {@code null} when none does
+     */
+    public String matchingEtag(String ifNoneMatch, boolean withScores) {
+        return matchingEtag(ifNoneMatch, dataVersion.tag(withScores));
+    }
+
+    /**
+     * The serialized response for {@code key} at the current version, from {@code body} when
+     * the cache holds none. Exceptions from {@code body} propagate and nothing is cached.
+     *
+     * @param withScores whether the response depends on stored scores, see {@link ClientDataVersion#tag}
+     * @param gzip       whether the client accepts a gzip-encoded body
+     */
+    public Response get(String key, boolean withScores, boolean gzip, Supplier<?> body) {
+        String tag = dataVersion.tag(withScores);
+        Entry entry = enabled ? cache.getIfPresent(key) : null;
+        if (entry == null || !entry.tag().equals(tag)) {
+            entry = build(tag, body.get());
+            if (enabled) {
+                cache.put(key, entry);
+            }
+        }
+        boolean gzipped = gzip && entry.gzip() != null;
+        return new Response(etag(entry.tag(), gzipped), gzipped ? entry.gzip() : entry.json(), gzipped);
+    }
+
+    private Entry build(String tag, Object body) {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        return new Entry(tag, json, json.length >= gzipMinSize ? gzip(json) : null);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /** Strong entity tag of a version; the gzip encoding is a different representation. */
+    static String etag(String tag, boolean gzip) {
+        return "\"" + tag + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    static String matchingEtag(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String identity = etag(tag, false);
+        String gzip = etag(tag, true);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String etag = candidate.trim();
+            if (etag.startsWith("W/")) {
+                etag = etag.substring(2);
+            }
+            if (etag.equals(identity) || etag.equals(gzip)) {
+                return etag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header value allows gzip: listed without {@code q=0}.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException ex) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,349 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns CSV rows into {@link Client} entities. Feature column types are inferred once from a
+ * sample of rows and decide which parser is tried first for each cell; a cell that does not fit
+ * its column's type falls back to the generic classification, so every value comes out exactly
+ * as it would from a per-cell check. Instances are immutable and safe to share between threads.
+ */
+@Slf4j
+public class ClientRowParser {
+
+    enum ColumnType { INTEGER, DECIMAL, TEXT }
+
+    /** Parsed clients of a block of rows and the {@link #contentHash} of each, index for index. */
+    public record Block(List<Client> clients, long[] hashes) {}
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String[] header;
+    private final long[] columnHashes;
+    private final ColumnType[] types;
+    private final boolean[] typed;
+    private final int[] dictionaryColumns;
+    private final FeatureDictionary dictionary;
+
+    private final int idxId;
+    private final int idxDt;
+    private final int idxAge;
+    private final int idxGender;
+    private final int idxAdminarea;
+    private final int idxIncomeValue;
+    private final int idxIncomeCategory;
+
+    private ClientRowParser(String[] header, List<String[]> sample, FeatureDictionary dictionary) {
+        this.header = header;
+        this.dictionary = dictionary;
+
+        idxId = indexOf(header, "id");
+        idxDt = indexOf(header, "dt");
+        idxAge = indexOf(header, "age");
+        idxGender = indexOf(header, "gender");
+        idxAdminarea = indexOf(header, "adminarea");
+        idxIncomeValue = indexOf(header, "incomeValue");
+        idxIncomeCategory = indexOf(header, "incomeValueCategory");
+
+        typed = new boolean[header.length];
+        for (int idx : new int[]{idxId, idxDt, idxAge, idxGender, idxAdminarea, idxIncomeValue, idxIncomeCategory}) {
+            if (idx >= 0) {
+                typed[idx] = true;
+            }
+        }
+
+        columnHashes = new long[header.length];
+        for (int i = 0; i < header.length; i++) {
+            columnHashes[i] = fnv(fnv(FNV_OFFSET, header[i]), "\0");
+        }
+
+        types = new ColumnType[header.length];
+        dictionaryColumns = new int[header.length];
+        for (int i = 0; i < header.length; i++) {
+            types[i] = typed[i] ? ColumnType.TEXT : inferType(sample, i);
+            dictionaryColumns[i] = typed[i] ? -1 : dictionary.columnIndex(header[i]);
+        }
+    }
+
+    public static ClientRowParser infer(String[] header, List<String[]> sample, FeatureDictionary dictionary) {
+        return new ClientRowParser(header, sample, dictionary);
+    }
+
+    ColumnType typeOf(String column) {
+        int idx = indexOf(header, column);
+        return idx < 0 ? null : types[idx];
+    }
+
+    public List<Client> parseAll(List<String[]> rows) {
+        List<Client> result = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            Client e = parse(row);
+            if (e != null) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /** {@link #parseAll} that also hashes the content of every row it keeps. */
+    public Block parseBlock(List<String[]> rows) {
+        List<Client> clients = new ArrayList<>(rows.size());
+        long[] hashes = new long[rows.size()];
+        for (String[] row : rows) {
+            Client e = parse(row);
+            if (e != null) {
+                hashes[clients.size()] = contentHash(row);
+                clients.add(e);
+            }
+        }
+        return new Block(clients, Arrays.copyOf(hashes, clients.size()));
+    }
+
+    /**
+     * Hash of everything a row says about its client: each non-blank cell but the id, trimmed
+     * and keyed by its column name, so neither the column order nor columns the row leaves empty
+     * change it. Delta ingest takes rows with the hash already stored as unchanged.
+     */
+    public long contentHash(String[] row) {
+        long hash = 0;
+        for (int i = 0; i < header.length; i++) {
+            if (i == idxId || row[i] == null) {
+                continue;
+            }
+            String cell = row[i].trim();
+            if (!cell.isEmpty()) {
+                hash += mix(fnv(columnHashes[i], cell));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the parsed client, or {@code null} when the row has the wrong number of cells
+     * or no id
+     */
+    public Client parse(String[] row) {
+        if (row.length != header.length) {
+            return null;
+        }
+
+        String idStr = safeGet(row, idxId);
+        if (idStr == null || idStr.isBlank()) {
+            return null;
+        }
+
+        Client e = new Client();
+        e.setId(Long.parseLong(idStr));
+
+        String dtStr = safeGet(row, idxDt);
+        if (dtStr != null && !dtStr.isBlank()) {
+            e.setDt(dtStr);
+        }
+
+        String ageStr = safeGet(row, idxAge);
+        if (ageStr != null && !ageStr.isBlank()) {
+            ageStr = normalizeNumber(ageStr);
+            if (ageStr.contains(".")) {
+                ageStr = ageStr.substring(0, ageStr.indexOf('.'));
+            }
+            e.setAge(Integer.parseInt(ageStr));
+        }
+
+        String genderStr = safeGet(row, idxGender);
+        if (genderStr != null && !genderStr.isBlank()) {
+            e.setGender(genderStr);
+        }
+
+        String adminareaStr = safeGet(row, idxAdminarea);
+        if (adminareaStr != null && !adminareaStr.isBlank()) {
+            e.setAdminarea(adminareaStr);
+        }
+
+        String incomeValStr = safeGet(row, idxIncomeValue);
+        if (incomeValStr != null && !incomeValStr.isBlank()) {
+            incomeValStr = normalizeNumber(incomeValStr);
+            try {
+                e.setIncomeValue(new BigDecimal(incomeValStr));
+            } catch (NumberFormatException ex) {
+                log.warn("Client {}: unparseable incomeValue '{}'", e.getId(), incomeValStr);
+            }
+        }
+
+        String incomeCatStr = safeGet(row, idxIncomeCategory);
+        if (incomeCatStr != null && !incomeCatStr.isBlank()) {
+            e.setIncomeCategory(incomeCatStr);
+        }
+
+        FeatureVector.Builder features = FeatureVector.builder(header.length, dictionary);
+        for (int i = 0; i < header.length; i++) {
+            if (typed[i]) {
+                continue;
+            }
+
+            String val = row[i];
+            if (val == null || val.isBlank()) {
+                continue;
+            }
+
+            features.add(dictionaryColumns[i], parseFeature(types[i], val.trim()));
+        }
+
+        e.setFeatureVector(FeatureVectorCodec.encode(features.build()));
+        return e;
+    }
+
+    static Object parseFeature(ColumnType type, String val) {
+        return switch (type) {
+            case INTEGER -> parseInteger(val);
+            case DECIMAL -> parseDecimal(val);
+            case TEXT -> parseGeneric(val);
+        };
+    }
+
+    /**
+     * Same result as normalizing the cell and testing it against {@code ^-?\d+(\.\d+)?$}:
+     * integers become {@link Long} (or stay text on overflow), decimals become {@link Double},
+     * anything else is returned normalized.
+     */
+    static Object parseGeneric(String val) {
+        String norm = normalizeNumber(val);
+        return switch (classify(norm)) {
+            case INTEGER -> {
+                try {
+                    yield Long.parseLong(norm);
+                } catch (NumberFormatException ignore) {
+                    yield val;
+                }
+            }
+            case DECIMAL -> Double.parseDouble(norm);
+            case TEXT -> norm;
+        };
+    }
+
+    private static Object parseInteger(String val) {
+        int len = val.length();
+        int i = val.charAt(0) == '-' ? 1 : 0;
+        if (i == len) {
+            return parseGeneric(val);
+        }
+        long acc = 0;
+        for (; i < len; i++) {
+            int digit = val.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || acc < -(Long.MAX_VALUE / 10)) {
+                return parseGeneric(val);
+            }
+            acc = acc * 10 - digit;
+            if (acc > 0) {
+                return parseGeneric(val);
+            }
+        }
+        if (val.charAt(0) == '-') {
+            return acc;
+        }
+        return acc == Long.MIN_VALUE ? parseGeneric(val) : -acc;
+    }
+
+    private static Object parseDecimal(String val) {
+        String norm = normalizeNumber(val);
+        if (classify(norm) == ColumnType.DECIMAL) {
+            return Double.parseDouble(norm);
+        }
+        return parseGeneric(val);
+    }
+
+    static ColumnType classify(String s) {
+        int len = s.length();
+        int i = 0;
+        if (i < len && s.charAt(i) == '-') {
+            i++;
+        }
+        int intStart = i;
+        while (i < len && isDigit(s.charAt(i))) {
+            i++;
+        }
+        if (i == intStart) {
+            return ColumnType.TEXT;
+        }
+        if (i == len) {
+            return ColumnType.INTEGER;
+        }
+        if (s.charAt(i) != '.') {
+            return ColumnType.TEXT;
+        }
+        int fracStart = ++i;
+        while (i < len && isDigit(s.charAt(i))) {
+            i++;
+        }
+        return i > fracStart && i == len ? ColumnType.DECIMAL : ColumnType.TEXT;
+    }
+
+    private static ColumnType inferType(List<String[]> sample, int column) {
+        ColumnType inferred = null;
+        for (String[] row : sample) {
+            if (column >= row.length) {
+                continue;
+            }
+            String val = row[column];
+            if (val == null || val.isBlank()) {
+                continue;
+            }
+            ColumnType cell = classify(normalizeNumber(val));
+            if (cell == ColumnType.TEXT) {
+                return ColumnType.TEXT;
+            }
+            if (inferred == null || cell == ColumnType.DECIMAL) {
+                inferred = cell;
+            }
+        }
+        return inferred == null ? ColumnType.TEXT : inferred;
+    }
+
+    private static long fnv(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /** Murmur3's finalizer: spreads each cell hash over all 64 bits before the cells are summed. */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int indexOf(String[] header, String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (name.equals(header[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String safeGet(String[] row, int idx) {
+        if (idx < 0 || idx >= row.length) return null;
+        return row[idx];
+    }
+
+    static String normalizeNumber(String s) {
+        if (s == null) return null;
+        s = s.trim();
+        s = s.replace(',', '.');
+        return s;
+    }
+}
@@ -0,0 +1,271 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.ScoringProgressDto;
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.ClientScore;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.repository.ClientJdbcReader;
+import com.alfahackathon.clientmodelservice.repository.ClientJdbcWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scores every client through {@link MlClient} in the background and stores the result on the
+ * client row, tagged with the ML service's model version. Work is picked by "no score for the
+ * current version" and committed batch by batch, so a run that dies halfway is resumed by simply
+ * starting again. Once a client carries a score for the current version, {@link #storedPrediction}
+ * serves it without calling the ML service.
+ */
+@Slf4j
+@Service
+public class ClientScoringJob {
+
+    public enum State { IDLE, RUNNING, COMPLETED, STOPPED, FAILED }
+
+    private final ClientJdbcReader clientJdbcReader;
+    private final ClientJdbcWriter clientJdbcWriter;
+    private final ClientHotStore hotStore;
+    private final ClientDataVersion dataVersion;
+    private final ClientFeatureBuilder featureBuilder;
+    private final MlClient mlClient;
+    private final ExecutorService mlExecutor;
+    private final int batchSize;
+    private final int concurrency;
+    private final boolean autoStart;
+
+    private final AtomicLong scored = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile State state = State.IDLE;
+    private volatile boolean stopRequested;
+    private volatile String modelVersion;
+    private volatile long total;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private Thread runner;
+    /** Not {@code synchronized}: starting makes blocking calls and may run on a virtual thread. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ClientScoringJob(
+            ClientJdbcReader clientJdbcReader,
+            ClientJdbcWriter clientJdbcWriter,
+            ClientHotStore hotStore,
+            ClientDataVersion dataVersion,
+            ClientFeatureBuilder featureBuilder,
+            MlClient mlClient,
+            @Qualifier("mlExecutor") ExecutorService mlExecutor,
+            @Value("${scoring.batch-size:256}") int batchSize,
+            @Value("${scoring.concurrency:4}") int concurrency,
+            @Value("${scoring.auto-start:false}") boolean autoStart,
+            MeterRegistry registry
+    ) {
+        this.clientJdbcReader = clientJdbcReader;
+        this.clientJdbcWriter = clientJdbcWriter;
+        this.hotStore = hotStore;
+        this.dataVersion = dataVersion;
+        this.featureBuilder = featureBuilder;
+        this.mlClient = mlClient;
+        this.mlExecutor = mlExecutor;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.autoStart = autoStart;
+        registry.gauge("scoring.clients.scored", scored);
+    }
+
+    @EventListener(ClientDataReadyEvent.class)
+    public void startOnReady() {
+        if (!autoStart) {
+            return;
+        }
+        try {
+            start();
+        } catch (ResponseStatusException ex) {
+            log.warn("Scoring job not started: {}", ex.getReason());
+        }
+    }
+
+    /**
+     * Starts a run for the model version the ML service reports now; a no-op while a run is
+     * already going.
+     *
+     * @throws ResponseStatusException {@code BAD_GATEWAY} when the model version is unavailable
+     */
+    public ScoringProgressDto start() {
+        lock.lock();
+        try {
+            return startLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ScoringProgressDto startLocked() {
+        if (state == State.RUNNING) {
+            return progress();
+        }
+        String version = mlClient.modelVersion();
+
+        modelVersion = version;
+        total = clientJdbcReader.countUnscored(version);
+        scored.set(0);
+        failure.set(null);
+        stopRequested = false;
+        startedAt = Instant.now();
+        finishedAt = null;
+        state = State.RUNNING;
+
+        runner = Thread.ofPlatform().name("client-scoring").daemon().start(() -> run(version));
+        log.info("Scoring job started for model {}: {} clients to score", version, total);
+        return progress();
+    }
+
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        stopRequested = true;
+        Thread t;
+        lock.lock();
+        try {
+            t = runner;
+        } finally {
+            lock.unlock();
+        }
+        if (t != null) {
+            t.join(10_000);
+        }
+    }
+
+    public ScoringProgressDto progress() {
+        Instant started = startedAt;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long done = scored.get();
+        double seconds = started == null ? 0 : Math.max(end.toEpochMilli() - started.toEpochMilli(), 1) / 1000.0;
+        double rate = seconds == 0 ? 0 : done / seconds;
+        Throwable error = failure.get();
+        return new ScoringProgressDto(
+                state,
+                modelVersion,
+                total,
+                done,
+                Math.round(rate * 10) / 10.0,
+                started,
+                finishedAt,
+                error == null ? null : error.getMessage()
+        );
+    }
+
+    /**
+     * The client's stored score as a prediction response, or {@code null} when it has none for
+     * the model version currently served (or that version cannot be determined).
+     */
+    public Map<String, Object> storedPrediction(Client e) {
+        if (e.getScoreModelVersion() == null || e.getApprovalProbability() == null) {
+            return null;
+        }
+        String current;
+        try {
+            current = mlClient.modelVersion();
+        } catch (ResponseStatusException ex) {
+            return null;
+        }
+        if (!current.equals(e.getScoreModelVersion())) {
+            return null;
+        }
+        Map<String, Object> prediction = new HashMap<>();
+        prediction.put("approvalProbability", e.getApprovalProbability());
+        prediction.put("decision", e.getDecision());
+        return prediction;
+    }
+
+    private void run(String version) {
+        Semaphore permits = new Semaphore(concurrency);
+        long lastId = Long.MIN_VALUE;
+        try {
+            while (!stopRequested && failure.get() == null) {
+                List<ClientJdbcReader.Stored> batch = clientJdbcReader.findUnscoredAfter(lastId, version, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).client().getId();
+
+                permits.acquire();
+                mlExecutor.execute(() -> {
+                    try {
+                        scoreBatch(batch, version);
+                    } catch (RuntimeException ex) {
+                        failure.compareAndSet(null, ex);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(concurrency);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, ex);
+        } catch (RuntimeException ex) {
+            failure.compareAndSet(null, ex);
+        }
+
+        finishedAt = Instant.now();
+        Throwable error = failure.get();
+        if (error != null) {
+            state = State.FAILED;
+            log.error("Scoring job for model {} failed after {} clients", version, scored.get(), error);
+        } else if (stopRequested) {
+            state = State.STOPPED;
+            log.info("Scoring job for model {} stopped after {} clients", version, scored.get());
+        } else {
+            state = State.COMPLETED;
+            log.info("Scoring job for model {} completed: {} clients", version, scored.get());
+        }
+    }
+
+    /**
+     * Scores are written only for clients a refresh has not changed since the batch was read,
+     * and together with the hot store so a refresh cannot swap the new client in between.
+     */
+    private void scoreBatch(List<ClientJdbcReader.Stored> batch, String version) {
+        Map<Long, FeaturePayload> featuresById = new LinkedHashMap<>();
+        Map<Long, Long> hashById = new HashMap<>(batch.size() * 4 / 3 + 1);
+        for (ClientJdbcReader.Stored stored : batch) {
+            Client e = stored.client();
+            featuresById.put(e.getId(), featureBuilder.payload(e));
+            hashById.put(e.getId(), stored.contentHash());
+        }
+
+        Map<Long, Map<String, Object>> predictions = mlClient.predictBatch(featuresById);
+
+        List<ClientScore> scores = new ArrayList<>(batch.size());
+        predictions.forEach((clientId, prediction) -> scores.add(new ClientScore(
+                clientId,
+                hashById.get(clientId),
+                (Double) prediction.get("approvalProbability"),
+                (String) prediction.get("decision"),
+                version
+        )));
+        hotStore.writing(() -> hotStore.applyScores(clientJdbcWriter.updateScores(scores)));
+        dataVersion.scoresChanged();
+        scored.addAndGet(scores.size());
+    }
+}
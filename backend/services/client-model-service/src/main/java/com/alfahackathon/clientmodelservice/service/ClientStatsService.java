@@ -0,0 +1,198 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.ClientStatsDto;
+import com.alfahackathon.clientmodelservice.model.Client;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Client counts per region, gender, age bucket and income category, plus an income histogram.
+ * Ingest feeds every written batch in through {@link #record}, and delta ingest takes the old
+ * values of updated and deleted clients out through {@link #remove}; a database that was already
+ * loaded is counted once with {@code group by} queries when the application becomes ready.
+ * Requests only read the counters.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClientStatsService {
+
+    static final String UNKNOWN = "unknown";
+
+    /** Age bucket of clients without an age; sorts after every real bucket. */
+    private static final int UNKNOWN_AGE = Integer.MAX_VALUE;
+
+    /** Lower bounds of the income histogram buckets after the first, open-ended one. */
+    static final BigDecimal[] INCOME_BOUNDS = Arrays.stream(new long[]{
+            0, 20_000, 40_000, 60_000, 80_000, 100_000, 150_000, 200_000, 300_000, 500_000, 1_000_000
+    }).mapToObj(BigDecimal::valueOf).toArray(BigDecimal[]::new);
+
+    private static final class Counters {
+        final LongAdder total = new LongAdder();
+        final Map<String, LongAdder> byRegion = new ConcurrentHashMap<>();
+        final Map<String, LongAdder> byGender = new ConcurrentHashMap<>();
+        final Map<Integer, LongAdder> byAgeBucket = new ConcurrentHashMap<>();
+        final Map<String, LongAdder> byIncomeCategory = new ConcurrentHashMap<>();
+        final LongAdder[] income = new LongAdder[INCOME_BOUNDS.length + 1];
+
+        Counters() {
+            Arrays.setAll(income, i -> new LongAdder());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Counters counters = new Counters();
+    private volatile boolean initialized;
+
+    /** Starts counting from zero for an ingest into an empty table. */
+    public void reset() {
+        counters = new Counters();
+        initialized = true;
+    }
+
+    public void record(List<Client> clients) {
+        add(clients, 1);
+    }
+
+    /** Takes clients counted before out again, with the values they were counted with. */
+    public void remove(List<Client> clients) {
+        add(clients, -1);
+    }
+
+    private void add(List<Client> clients, int by) {
+        Counters c = counters;
+        for (Client e : clients) {
+            c.total.add(by);
+            increment(c.byRegion, orUnknown(e.getAdminarea()), by);
+            increment(c.byGender, orUnknown(e.getGender()), by);
+            increment(c.byAgeBucket, ageBucket(e.getAge()), by);
+            increment(c.byIncomeCategory, orUnknown(e.getIncomeCategory()), by);
+            if (e.getIncomeValue() != null) {
+                c.income[incomeBucket(e.getIncomeValue())].add(by);
+            }
+        }
+    }
+
+    @EventListener(ClientDataReadyEvent.class)
+    public void initialize() {
+        if (!initialized) {
+            rebuild();
+        }
+    }
+
+    /** Recounts everything from the database and swaps the result in. */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Counters c = new Counters();
+        groupBy("adminarea", (key, count) -> increment(c.byRegion, orUnknown(key), count));
+        groupBy("gender", (key, count) -> increment(c.byGender, orUnknown(key), count));
+        groupBy("income_category", (key, count) -> increment(c.byIncomeCategory, orUnknown(key), count));
+        groupBy("case when age is null then null else floor(age / 10.0) * 10 end", (key, count) ->
+                increment(c.byAgeBucket, key == null ? UNKNOWN_AGE : new BigDecimal(key).intValue(), count));
+        String bounds = Arrays.stream(INCOME_BOUNDS).map(BigDecimal::toPlainString).collect(Collectors.joining(","));
+        groupBy("width_bucket(income_value, array[" + bounds + "]::numeric[])", (key, count) -> {
+            if (key != null) {
+                c.income[Integer.parseInt(key)].add(count);
+            }
+        });
+        c.byRegion.values().forEach(count -> c.total.add(count.sum()));
+
+        counters = c;
+        initialized = true;
+        log.info("Client statistics rebuilt from the database in {} ms: {} clients",
+                System.currentTimeMillis() - started, c.total.sum());
+    }
+
+    public ClientStatsDto stats() {
+        Counters c = counters;
+        Map<String, Long> ageBuckets = new LinkedHashMap<>();
+        c.byAgeBucket.entrySet().stream()
+                .filter(e -> e.getValue().sum() > 0)
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> ageBuckets.put(ageLabel(e.getKey()), e.getValue().sum()));
+
+        List<ClientStatsDto.Bucket> histogram = new ArrayList<>(c.income.length);
+        for (int i = 0; i < c.income.length; i++) {
+            histogram.add(new ClientStatsDto.Bucket(
+                    i == 0 ? null : INCOME_BOUNDS[i - 1],
+                    i == INCOME_BOUNDS.length ? null : INCOME_BOUNDS[i],
+                    c.income[i].sum()
+            ));
+        }
+
+        return new ClientStatsDto(
+                c.total.sum(),
+                byCountDesc(c.byRegion),
+                byCountDesc(c.byGender),
+                ageBuckets,
+                byCountDesc(c.byIncomeCategory),
+                histogram
+        );
+    }
+
+    /** Index of the histogram bucket: the number of lower bounds not above {@code value}. */
+    static int incomeBucket(BigDecimal value) {
+        int lo = 0;
+        int hi = INCOME_BOUNDS.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (INCOME_BOUNDS[mid].compareTo(value) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int ageBucket(Integer age) {
+        return age == null ? UNKNOWN_AGE : Math.floorDiv(age, 10) * 10;
+    }
+
+    private static String ageLabel(int bucket) {
+        return bucket == UNKNOWN_AGE ? UNKNOWN : bucket + "-" + (bucket + 9);
+    }
+
+    private static String orUnknown(String value) {
+        return value == null ? UNKNOWN : value;
+    }
+
+    private static <K> void increment(Map<K, LongAdder> counts, K key, long by) {
+        counts.computeIfAbsent(key, k -> new LongAdder()).add(by);
+    }
+
+    private static Map<String, Long> byCountDesc(Map<String, LongAdder> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .map(e -> Map.entry(e.getKey(), e.getValue().sum()))
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    private void groupBy(String expression, GroupConsumer consumer) {
+        jdbcTemplate.query("select " + expression + " as k, count(*) from clients group by 1", rs -> {
+            consumer.accept(rs.getString(1), rs.getLong(2));
+        });
+    }
+
+    @FunctionalInterface
+    private interface GroupConsumer {
+        void accept(String key, long count);
+    }
+}
@@ -0,0 +1,133 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive cap on concurrent calls (AIMD). The limit grows by {@code 1 / limit} per call that
+ * completes normally while the limit is at least half used, about one per round trip, up to
+ * {@code max}. It is multiplied by {@code backoff}, down to {@code min}, when a call fails on the
+ * service's side or when recent latency of its endpoint exceeds {@code latencyTolerance} times
+ * the usual one. Only calls started after the previous cut can cut again, as every call in
+ * flight when the service slowed down reports it.
+ * <p>
+ * Recent latency is a moving average over the last few calls of an endpoint, the usual one over
+ * the last hundred or so: a spike shows at once, a lasting change in the service's speed becomes
+ * the norm. Callers over the limit wait for a slot up to their deadline. Without
+ * {@code adaptive} the limit stays at {@code max}.
+ */
+class ConcurrencyLimiter {
+
+    private static final double RECENT_WEIGHT = 0.2;
+    private static final double USUAL_WEIGHT = 0.01;
+
+    private final boolean adaptive;
+    private final int min;
+    private final int max;
+    private final double backoff;
+    private final double latencyTolerance;
+    private final double[] recentNanos;
+    private final double[] usualNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private long lastCutNanos;
+
+    /**
+     * @param keys number of endpoints, whose latencies are tracked apart
+     */
+    ConcurrencyLimiter(boolean adaptive, int min, int initial, int max, double backoff, double latencyTolerance,
+                       int keys) {
+        this.adaptive = adaptive;
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.backoff = backoff;
+        this.latencyTolerance = latencyTolerance;
+        this.recentNanos = new double[keys];
+        this.usualNanos = new double[keys];
+        this.limit = adaptive ? Math.clamp(initial, this.min, this.max) : this.max;
+        this.lastCutNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a slot, waiting up to {@code maxWaitNanos} for one.
+     *
+     * @return whether a slot was taken; if so, {@link #release} must follow
+     */
+    boolean acquire(long maxWaitNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                waiting++;
+                try {
+                    remaining = slotFreed.awaitNanos(remaining);
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees the slot of a call to endpoint {@code key} and adjusts the limit by how it went.
+     *
+     * @param failed whether the call timed out or failed on the service's side
+     */
+    void release(int key, long startedNanos, long endedNanos, boolean failed) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (adaptive) {
+                adjust(key, startedNanos, endedNanos, failed);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(int key, long startedNanos, long endedNanos, boolean failed) {
+        boolean slow = false;
+        if (!failed) {
+            double latency = endedNanos - startedNanos;
+            double recent = recentNanos[key];
+            recent = recent == 0 ? latency : recent + RECENT_WEIGHT * (latency - recent);
+            recentNanos[key] = recent;
+            double usual = usualNanos[key];
+            slow = usual > 0 && recent > latencyTolerance * usual;
+            usualNanos[key] = usual == 0 ? latency : usual + USUAL_WEIGHT * (latency - usual);
+        }
+        if (failed || slow) {
+            if (startedNanos - lastCutNanos >= 0) {
+                limit = Math.max(min, limit * backoff);
+                lastCutNanos = endedNanos;
+            }
+        } else if (inFlight + 1 >= limit / 2) {
+            limit = Math.min(max, limit + 1 / limit);
+        }
+    }
+
+    double limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    int waiting() {
+        return waiting;
+    }
+}
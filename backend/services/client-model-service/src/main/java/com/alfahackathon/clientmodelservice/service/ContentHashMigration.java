@@ -0,0 +1,22 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the {@code content_hash} column delta ingest compares rows against to databases created
+ * without it. The hash is of the CSV row, which cannot be rebuilt from the stored columns, so
+ * clients written before the column existed have none and are rewritten once by the first
+ * refresh that contains them.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentHashMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void migrate() {
+        jdbcTemplate.execute("alter table clients add column if not exists content_hash bigint");
+    }
+}
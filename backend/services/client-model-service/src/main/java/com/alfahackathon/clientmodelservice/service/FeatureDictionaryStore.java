@@ -0,0 +1,85 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.FeatureCategory;
+import com.alfahackathon.clientmodelservice.model.FeatureColumn;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.repository.FeatureCategoryRepository;
+import com.alfahackathon.clientmodelservice.repository.FeatureColumnRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Owns the process-wide {@link FeatureDictionary}, loaded from {@code feature_columns} and
+ * {@code feature_categories} by {@link ClientDataStartup}, and empty until then.
+ * <p>
+ * The tables are the dictionary's {@link FeatureDictionary.Source}: a new entry is inserted as
+ * soon as it is first seen, at the next free code, and every instance writing at the same time
+ * either gets that row's code or retries with the next. Entries are therefore in the database
+ * before any vector refers to them, and a code another instance added is read when first met.
+ */
+@Component
+@RequiredArgsConstructor
+public class FeatureDictionaryStore {
+
+    private record Table(String allocate, String find, String lookup) {
+
+        /** Losing the race for the next code and a value inserted meanwhile both insert nothing. */
+        static Table of(String table, String code, String value) {
+            return new Table(
+                    "insert into " + table + " (" + code + ", " + value + ") "
+                            + "select coalesce(max(" + code + ") + 1, 0), ? from " + table + " "
+                            + "on conflict do nothing returning " + code,
+                    "select " + code + " from " + table + " where " + value + " = ?",
+                    "select " + value + " from " + table + " where " + code + " = ?"
+            );
+        }
+    }
+
+    private static final Table COLUMNS = Table.of("feature_columns", "idx", "name");
+    private static final Table CATEGORIES = Table.of("feature_categories", "code", "value");
+
+    private final FeatureColumnRepository columnRepository;
+    private final FeatureCategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile FeatureDictionary dictionary = FeatureDictionary.empty();
+
+    public void load() {
+        List<String> columns = columnRepository.findAll(Sort.by("idx")).stream()
+                .map(FeatureColumn::getName)
+                .toList();
+        List<String> categories = categoryRepository.findAll(Sort.by("code")).stream()
+                .map(FeatureCategory::getValue)
+                .toList();
+        dictionary = new FeatureDictionary(columns, categories, source(COLUMNS), source(CATEGORIES));
+    }
+
+    public FeatureDictionary dictionary() {
+        return dictionary;
+    }
+
+    private FeatureDictionary.Source source(Table table) {
+        return new FeatureDictionary.Source(value -> allocate(table, value), code -> lookup(table, code));
+    }
+
+    private int allocate(Table table, String value) {
+        while (true) {
+            List<Integer> code = jdbcTemplate.queryForList(table.allocate(), Integer.class, value);
+            if (code.isEmpty()) {
+                code = jdbcTemplate.queryForList(table.find(), Integer.class, value);
+            }
+            if (!code.isEmpty()) {
+                return code.getFirst();
+            }
+        }
+    }
+
+    private String lookup(Table table, int code) {
+        List<String> value = jdbcTemplate.queryForList(table.lookup(), String.class, code);
+        return value.isEmpty() ? null : value.getFirst();
+    }
+}
@@ -0,0 +1,68 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.util.FeaturePayloadWriter;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the queryable {@code features} jsonb column next to {@code feature_vector}: adds it to
+ * databases created without it and fills it chunk by chunk for clients written before it
+ * existed. Ingest writes both columns itself, so on a current database this finds nothing to do.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FeatureJsonbMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeatureDictionaryStore dictionaryStore;
+
+    @Value("${ingest.batch-size:1000}")
+    private int chunkSize;
+
+    public void migrate() {
+        jdbcTemplate.execute("alter table clients add column if not exists features jsonb");
+
+        FeatureDictionary dictionary = dictionaryStore.dictionary();
+        long filled = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>(chunkSize);
+            jdbcTemplate.query("""
+                    select id, feature_vector from clients
+                    where id > ? and features is null and feature_vector is not null
+                    order by id
+                    limit ?
+                    """, rs -> {
+                updates.add(new Object[]{
+                        json(rs.getBytes(2), dictionary),
+                        rs.getLong(1)
+                });
+            }, lastId, chunkSize);
+            if (updates.isEmpty()) {
+                break;
+            }
+
+            jdbcTemplate.batchUpdate("update clients set features = cast(? as jsonb) where id = ?", updates);
+            filled += updates.size();
+            lastId = (Long) updates.getLast()[1];
+            log.info("Filled the jsonb features of {} clients", filled);
+        }
+        if (filled > 0) {
+            log.info("Feature jsonb backfill finished: {} clients", filled);
+        }
+    }
+
+    /** The {@code features} column value for a stored feature vector. */
+    public static String json(byte[] vector, FeatureDictionary dictionary) {
+        return FeaturePayloadWriter.cells(FeatureVectorCodec.decode(vector), dictionary);
+    }
+}
@@ -0,0 +1,75 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off conversion of databases created before {@code feature_vector} existed: rewrites the
+ * legacy JSON {@code features} text column into binary vectors chunk by chunk and drops the
+ * column once it is empty. Does nothing when the column is already gone or is the jsonb copy
+ * {@link FeatureJsonbMigration} maintains.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FeatureVectorMigration {
+
+    private static final TypeReference<Map<String, Object>> FEATURES_TYPE = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeatureDictionaryStore dictionaryStore;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ingest.batch-size:1000}")
+    private int chunkSize;
+
+    public void migrate() {
+        Integer legacy = jdbcTemplate.queryForObject("""
+                select count(*) from information_schema.columns
+                where table_schema = current_schema() and table_name = 'clients' and column_name = 'features'
+                  and data_type = 'text'
+                """, Integer.class);
+        if (legacy == null || legacy == 0) {
+            return;
+        }
+
+        FeatureDictionary dictionary = dictionaryStore.dictionary();
+        long converted = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>(chunkSize);
+            jdbcTemplate.query("""
+                    select id, features from clients
+                    where features is not null
+                    order by id
+                    limit ?
+                    """, rs -> {
+                String json = rs.getString(2);
+                Map<String, Object> features = json.isBlank() ? Map.of() : objectMapper.readValue(json, FEATURES_TYPE);
+                byte[] vector = FeatureVectorCodec.encode(FeatureVector.fromMap(features, dictionary));
+                updates.add(new Object[]{vector, rs.getLong(1)});
+            }, chunkSize);
+            if (updates.isEmpty()) {
+                break;
+            }
+
+            jdbcTemplate.batchUpdate("update clients set feature_vector = ?, features = null where id = ?", updates);
+            converted += updates.size();
+            log.info("Converted {} clients to binary feature vectors", converted);
+        }
+
+        jdbcTemplate.execute("alter table clients drop column features");
+        log.info("Feature vector migration finished: {} clients converted, legacy column dropped", converted);
+    }
+}
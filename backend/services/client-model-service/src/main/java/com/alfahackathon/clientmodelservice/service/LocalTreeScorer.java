@@ -0,0 +1,164 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.config.LocalModelProperties;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble;
+import com.alfahackathon.clientmodelservice.util.LightGbmModelReader;
+import com.alfahackathon.clientmodelservice.util.TreeModelInput;
+import com.alfahackathon.clientmodelservice.util.XgboostModelReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predictions from a tree model exported from the ML service (see {@code ml.local.*}), scored
+ * in this JVM instead of over HTTP. The model's output is turned into a salary and then into
+ * the same response {@code score_response} in {@code ml_service.py} gives. A prediction takes
+ * microseconds and involves no network, bulkhead or circuit breaker; SHAP values still come
+ * from the ML service.
+ * <p>
+ * The model version is {@code <format>-} plus a hash of the model file and the settings that
+ * change its output, so stored scores are redone when any of them changes.
+ */
+@Slf4j
+@Component
+public class LocalTreeScorer {
+
+    /** {@code score_response}: log-salary at which the approval probability is one half. */
+    private static final double THRESHOLD_LOG_SALARY = 10.5;
+    private static final double APPROVE_PROBABILITY = 0.6;
+
+    private final TreeEnsemble model;
+    private final TreeModelInput input;
+    private final String version;
+    private final LocalModelProperties.Target target;
+    private final Timer timer;
+
+    public LocalTreeScorer(LocalModelProperties properties, MeterRegistry registry) {
+        this.target = properties.target();
+        this.timer = Timer.builder("ml.local.predict")
+                .description("In-process tree model predictions, per call")
+                .register(registry);
+        if (!properties.enabled()) {
+            this.model = null;
+            this.input = null;
+            this.version = null;
+            return;
+        }
+        Path path = Path.of(properties.model());
+        LocalModelProperties.Format format = properties.format();
+        if (format == LocalModelProperties.Format.AUTO) {
+            format = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                    ? LocalModelProperties.Format.XGBOOST
+                    : LocalModelProperties.Format.LIGHTGBM;
+        }
+        long started = System.nanoTime();
+        try {
+            this.model = switch (format) {
+                case XGBOOST -> {
+                    try (InputStream in = Files.newInputStream(path)) {
+                        yield XgboostModelReader.read(in, properties.iterations());
+                    }
+                }
+                case LIGHTGBM, AUTO -> {
+                    try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                        yield LightGbmModelReader.read(in, properties.iterations());
+                    }
+                }
+            };
+            this.version = format.name().toLowerCase(Locale.ROOT) + "-" + hash(path, properties);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read the local model " + path, ex);
+        }
+        this.input = new TreeModelInput(model);
+        log.info("Local {} model {} loaded in {} ms: {} trees over {} features", format, version,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), model.treeCount(), model.featureCount());
+    }
+
+    public boolean isEnabled() {
+        return model != null;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    /**
+     * @param schema the ML feature schema payloads are built for now, or {@code null}
+     */
+    public Map<String, Object> predict(FeaturePayload features, MlSchema schema) {
+        long started = System.nanoTime();
+        Map<String, Object> prediction = scoreResponse(salary(model.predict(input.read(features, schema))));
+        timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return prediction;
+    }
+
+    public List<Map<String, Object>> predict(List<FeaturePayload> rows, MlSchema schema) {
+        long started = System.nanoTime();
+        int width = model.featureCount();
+        double[] matrix = new double[rows.size() * width];
+        for (int r = 0; r < rows.size(); r++) {
+            System.arraycopy(input.read(rows.get(r), schema), 0, matrix, r * width, width);
+        }
+        double[] out = new double[rows.size()];
+        model.predict(matrix, out);
+        List<Map<String, Object>> predictions = new ArrayList<>(out.length);
+        for (double raw : out) {
+            predictions.add(scoreResponse(salary(raw)));
+        }
+        timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return predictions;
+    }
+
+    private double salary(double raw) {
+        return target == LocalModelProperties.Target.LOG1P ? Math.expm1(raw) : raw;
+    }
+
+    /** {@code score_response} in {@code ml_service.py}: a logistic curve over the log-salary. */
+    static Map<String, Object> scoreResponse(double salary) {
+        double logSalary = Math.log(Math.max(salary, 1.0));
+        double probability = 1 / (1 + Math.exp(-(logSalary - THRESHOLD_LOG_SALARY) * 2.0));
+        Map<String, Object> res = new HashMap<>();
+        // Python's round(): half to even on the double's exact value
+        res.put("approvalProbability", new BigDecimal(probability).setScale(4, RoundingMode.HALF_EVEN).doubleValue());
+        res.put("decision", probability >= APPROVE_PROBABILITY ? "APPROVE" : "REJECT");
+        return res;
+    }
+
+    private static String hash(Path path, LocalModelProperties properties) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = Files.newInputStream(path)) {
+                byte[] block = new byte[1 << 16];
+                for (int n = in.read(block); n > 0; n = in.read(block)) {
+                    digest.update(block, 0, n);
+                }
+            }
+            digest.update((properties.iterations() + "/" + properties.target()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,41 +1,306 @@
 package com.alfahackathon.clientmodelservice.service;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.alfahackathon.clientmodelservice.config.MlServiceProperties;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import com.alfahackathon.clientmodelservice.service.MlTransport.Endpoint;
+import com.alfahackathon.clientmodelservice.util.FeaturePayloadWriter;
+import com.alfahackathon.clientmodelservice.util.PositionalPayloadWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Calls to the Python ML service. With {@code ml.service.wire-format=positional} the model's
+ * feature schema is fetched from {@code /schema} at startup and again whenever the served model
+ * version changes, and payloads built for it go to the positional endpoints. Without a schema
+ * (an older service, a failed fetch) payloads use the map contract; a positional call the
+ * service turns down with a 4xx is repeated in the map contract and drops the schema until the
+ * next check.
+ * <p>
+ * Per-client predictions and SHAP values come from {@link MlResultCache}; on a miss, concurrent
+ * calls for the same client and payload (a double click, several users on one client) share a
+ * single request, counted in {@code ml.client.deduplicated}.
+ * <p>
+ * With {@code ml.local.model} set, predictions come from that exported tree model through
+ * {@link LocalTreeScorer} instead, and {@link #modelVersion()} is the local model's version;
+ * SHAP values and the feature schema still come from the ML service.
+ */
+@Slf4j
 @Service
 public class MlClient {
 
-    private final RestTemplate restTemplate;
-    private final String predictUrl;
-    private final String shapUrl;
+    private record CachedVersion(String version, long expiresAtNanos) {}
 
-    public MlClient(
-            @Value("${ml.service.url:http://localhost:8000/predict}") String predictUrl,
-            @Value("${ml.service.shap-url:http://localhost:8080/shap}") String shapUrl
-    ) {
-        this.restTemplate = new RestTemplate();
-        this.predictUrl = predictUrl;
-        this.shapUrl = shapUrl;
+    private record FlightKey(long clientId, int payloadHash) {}
+
+    /** The schema in use, {@code null} when there is none, and when to check it against the model again. */
+    private record SchemaState(MlSchema schema, long checkAtNanos) {}
+
+    private final MlTransport transport;
+    private final MlResultCache resultCache;
+    private final LocalTreeScorer localScorer;
+    private final SingleFlight<FlightKey, Map<String, Object>> predictions;
+    private final SingleFlight<FlightKey, Map<String, Object>> shapValues;
+    private final int batchSize;
+    private final PredictCoalescer coalescer;
+    private final long modelVersionTtlNanos;
+
+    private final boolean positional;
+    private final ReentrantLock schemaLock = new ReentrantLock();
+
+    private volatile CachedVersion modelVersion;
+    private volatile SchemaState schemaState = new SchemaState(null, System.nanoTime());
+
+    public MlClient(MlTransport transport, MlResultCache resultCache, LocalTreeScorer localScorer,
+                    MlServiceProperties properties, MeterRegistry registry) {
+        this.transport = transport;
+        this.resultCache = resultCache;
+        this.localScorer = localScorer;
+        this.predictions = new SingleFlight<>(deduplicated(registry, "predict")::increment);
+        this.shapValues = new SingleFlight<>(deduplicated(registry, "shap")::increment);
+        this.batchSize = properties.batchSize();
+        this.modelVersionTtlNanos = properties.modelVersionTtl().toNanos();
+        this.positional = properties.wireFormat() == MlServiceProperties.WireFormat.POSITIONAL;
+        MlServiceProperties.Coalesce coalesce = properties.coalesce();
+        this.coalescer = coalesce.window().isZero()
+                ? null
+                : new PredictCoalescer(this::predictRows, coalesce.window(), coalesce.maxBatch());
+    }
+
+    private static Counter deduplicated(MeterRegistry registry, String endpoint) {
+        return Counter.builder("ml.client.deduplicated")
+                .description("ML calls answered by an identical call already in flight")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSchema() {
+        MlSchema schema = schema();
+        if (positional && schema == null) {
+            log.warn("No ML feature schema available, sending features in the map contract");
+        }
+    }
+
+    /**
+     * The feature schema payloads should be built for, or {@code null} to use the map contract.
+     * Checked against the served model version at most once per {@code ml.service.model-version-ttl};
+     * callers arriving while another thread checks keep using the current schema.
+     */
+    public MlSchema schema() {
+        if (!positional) {
+            return null;
+        }
+        SchemaState state = schemaState;
+        if (System.nanoTime() - state.checkAtNanos() < 0 || !schemaLock.tryLock()) {
+            return state.schema();
+        }
+        try {
+            state = schemaState;
+            if (System.nanoTime() - state.checkAtNanos() < 0) {
+                return state.schema();
+            }
+            MlSchema schema = state.schema();
+            try {
+                String version = servedModelVersion();
+                if (schema == null || !schema.version().equals(version)) {
+                    schema = fetchSchema();
+                    log.info("ML feature schema {}: {} features", schema.version(), schema.size());
+                }
+            } catch (RuntimeException ex) {
+                log.warn("ML feature schema unavailable: {}", ex.getMessage());
+                schema = null;
+            }
+            schemaState = new SchemaState(schema, System.nanoTime() + modelVersionTtlNanos);
+            return schema;
+        } finally {
+            schemaLock.unlock();
+        }
     }
 
     @SuppressWarnings("unchecked")
-    public Map<String, Object> predict(Map<String, Object> features) {
+    private MlSchema fetchSchema() {
+        ResponseEntity<Map> response = transport.get(Endpoint.SCHEMA, Map.class);
+        Map<String, Object> body = response.getBody();
+        if (body == null
+                || !(body.get("version") instanceof String version)
+                || !(body.get("features") instanceof List<?> features)
+                || !(body.get("categorical") instanceof List<?> flags)
+                || flags.size() != features.size()) {
+            throw new IllegalStateException("malformed /schema response");
+        }
+        boolean[] categorical = new boolean[flags.size()];
+        for (int i = 0; i < categorical.length; i++) {
+            categorical[i] = Boolean.TRUE.equals(flags.get(i));
+        }
+        return new MlSchema(version, features.stream().map(String::valueOf).toList(), categorical);
+    }
+
+    /**
+     * A positional call was refused: a stale schema version is checked again on the next use,
+     * any other refusal drops the schema until the next regular check.
+     */
+    private void schemaRejected(Endpoint endpoint, HttpClientErrorException ex) {
+        log.warn("ML {} refused a positional payload ({}), falling back to the map contract",
+                endpoint, ex.getStatusCode());
+        modelVersion = null;
+        schemaState = ex.getStatusCode() == HttpStatus.CONFLICT
+                ? new SchemaState(null, System.nanoTime())
+                : new SchemaState(null, System.nanoTime() + modelVersionTtlNanos);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    public Map<String, Object> predict(long clientId, FeaturePayload features) {
+        if (localScorer.isEnabled()) {
+            return localScorer.predict(features, schemaState.schema());
+        }
+        FlightKey key = new FlightKey(clientId, features.hash());
+        return resultCache.prediction(clientId, features.hash(), () -> predictions.run(key, () -> predict(features)));
+    }
+
+    public Map<String, Object> shap(long clientId, FeaturePayload features) {
+        FlightKey key = new FlightKey(clientId, features.hash());
+        return resultCache.shap(clientId, features.hash(), () -> shapValues.run(key, () -> shap(features)));
+    }
+
+    /**
+     * Scores several clients, sending only cache misses to the ML service in multi-row requests
+     * of at most {@code ml.service.batch-size} rows.
+     */
+    public Map<Long, Map<String, Object>> predictBatch(Map<Long, FeaturePayload> featuresById) {
+        Map<Long, Map<String, Object>> results = new HashMap<>();
+        if (localScorer.isEnabled()) {
+            List<Long> ids = new ArrayList<>(featuresById.keySet());
+            List<Map<String, Object>> scored = localScorer.predict(
+                    ids.stream().map(featuresById::get).toList(), schemaState.schema());
+            for (int i = 0; i < ids.size(); i++) {
+                results.put(ids.get(i), scored.get(i));
+            }
+            return results;
+        }
+        List<Long> missIds = new ArrayList<>();
+        List<FeaturePayload> missRows = new ArrayList<>();
+
+        featuresById.forEach((clientId, features) -> {
+            Map<String, Object> cached = resultCache.cachedPrediction(clientId, features.hash());
+            if (cached != null) {
+                results.put(clientId, cached);
+            } else {
+                missIds.add(clientId);
+                missRows.add(features);
+            }
+        });
+
+        for (int from = 0; from < missRows.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, missRows.size());
+            List<Map<String, Object>> scored = predictRows(missRows.subList(from, to));
+            for (int i = from; i < to; i++) {
+                Long clientId = missIds.get(i);
+                FeaturePayload features = missRows.get(i);
+                results.put(clientId, resultCache.putPrediction(clientId, features.hash(), scored.get(i - from)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Version tag of the model predictions come from: the local model's, else the one the ML
+     * service is serving.
+     */
+    public String modelVersion() {
+        return localScorer.isEnabled() ? localScorer.version() : servedModelVersion();
+    }
+
+    /**
+     * Version tag of the model the ML service is serving, re-read every
+     * {@code ml.service.model-version-ttl}.
+     */
+    @SuppressWarnings("unchecked")
+    private String servedModelVersion() {
+        CachedVersion cached = modelVersion;
+        long now = System.nanoTime();
+        if (cached != null && now - cached.expiresAtNanos() < 0) {
+            return cached.version();
+        }
         try {
-            Map<String, Object> body = new HashMap<>();
-            body.put("features", features);
+            ResponseEntity<Map> response = transport.get(Endpoint.MODEL, Map.class);
+            Object version = response.getBody() == null ? null : response.getBody().get("version");
+            if (!response.getStatusCode().is2xxSuccessful() || version == null) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_GATEWAY,
+                        "ML service returned no model version"
+                );
+            }
+            modelVersion = new CachedVersion(version.toString(), now + modelVersionTtlNanos);
+            return version.toString();
+        } catch (RestClientException ex) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_GATEWAY,
+                    "ML model version call failed",
+                    ex
+            );
+        }
+    }
+
+    public Map<String, Object> predict(FeaturePayload features) {
+        if (localScorer.isEnabled()) {
+            return localScorer.predict(features, schemaState.schema());
+        }
+        if (coalescer != null) {
+            try {
+                return coalescer.submit(features).join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+        return predictOne(features);
+    }
+
+    private Map<String, Object> predictOne(FeaturePayload features) {
+        if (features.isPositional()) {
+            try {
+                return predictOne(Endpoint.PREDICT_VECTOR, PositionalPayloadWriter.single(features));
+            } catch (HttpClientErrorException ex) {
+                schemaRejected(Endpoint.PREDICT_VECTOR, ex);
+            }
+        }
+        return predictOne(Endpoint.PREDICT, FeaturePayloadWriter.single(features.toMap()));
+    }
 
-            ResponseEntity<Map> response =
-                    restTemplate.postForEntity(predictUrl, body, Map.class);
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> predictOne(Endpoint endpoint, byte[] body) {
+        try {
+            ResponseEntity<Map> response = transport.post(endpoint, json(body), Map.class);
 
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
                 throw new ResponseStatusException(
@@ -44,16 +309,11 @@ public class MlClient {
                 );
             }
 
-            Map<String, Object> respBody = response.getBody();
-            Map<String, Object> res = new HashMap<>();
-            res.put("approvalProbability",
-                    asDouble(respBody.getOrDefault("approvalProbability",
-                            respBody.get("probability"))));
-            res.put("decision",
-                    Objects.toString(respBody.getOrDefault("decision",
-                            respBody.get("verdict")), null));
-            return res;
+            return toPrediction(response.getBody());
         } catch (RestClientException ex) {
+            if (ex instanceof HttpClientErrorException && isPositional(endpoint)) {
+                throw ex;
+            }
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
                     "ML service call failed",
@@ -62,14 +322,71 @@ public class MlClient {
         }
     }
 
+    /**
+     * One multi-row call. Rows built for different schemas, as around a model switch, all go in
+     * the map contract.
+     */
+    private List<Map<String, Object>> predictRows(List<FeaturePayload> rows) {
+        String version = rows.getFirst().schemaVersion();
+        boolean sameSchema = rows.stream().allMatch(r -> Objects.equals(r.schemaVersion(), version));
+        if (version != null && sameSchema) {
+            try {
+                return predictRows(Endpoint.BATCH_VECTOR, PositionalPayloadWriter.rows(version, rows), rows.size());
+            } catch (HttpClientErrorException ex) {
+                schemaRejected(Endpoint.BATCH_VECTOR, ex);
+            }
+        }
+        List<FeaturePayload> maps = rows.stream().map(FeaturePayload::toMap).toList();
+        return predictRows(Endpoint.BATCH, FeaturePayloadWriter.rows(maps), rows.size());
+    }
+
     @SuppressWarnings("unchecked")
-    public Map<String, Object> shap(Map<String, Object> features) {
+    private List<Map<String, Object>> predictRows(Endpoint endpoint, byte[] body, int count) {
         try {
-            Map<String, Object> body = new HashMap<>();
-            body.put("features", features);
+            ResponseEntity<Map> response = transport.post(endpoint, json(body), Map.class);
+
+            Object results = response.getBody() == null ? null : response.getBody().get("results");
+            if (!response.getStatusCode().is2xxSuccessful()
+                    || !(results instanceof List<?> list)
+                    || list.size() != count) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_GATEWAY,
+                        "ML batch service returned empty, incomplete or non-2xx response"
+                );
+            }
+
+            List<Map<String, Object>> predictions = new ArrayList<>(count);
+            for (Object item : list) {
+                predictions.add(toPrediction((Map<String, Object>) item));
+            }
+            return predictions;
+        } catch (RestClientException ex) {
+            if (ex instanceof HttpClientErrorException && isPositional(endpoint)) {
+                throw ex;
+            }
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_GATEWAY,
+                    "ML batch service call failed",
+                    ex
+            );
+        }
+    }
+
+    public Map<String, Object> shap(FeaturePayload features) {
+        if (features.isPositional()) {
+            try {
+                return shap(Endpoint.SHAP_VECTOR, PositionalPayloadWriter.single(features));
+            } catch (HttpClientErrorException ex) {
+                schemaRejected(Endpoint.SHAP_VECTOR, ex);
+            }
+        }
+        return shap(Endpoint.SHAP, FeaturePayloadWriter.single(features.toMap()));
+    }
 
-            ResponseEntity<Map> response =
-                    restTemplate.postForEntity(shapUrl, body, Map.class);
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> shap(Endpoint endpoint, byte[] body) {
+        try {
+            ResponseEntity<Map> response = transport.post(endpoint, json(body), Map.class);
 
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
                 throw new ResponseStatusException(
@@ -80,6 +397,9 @@ public class MlClient {
 
             return response.getBody();
         } catch (RestClientException ex) {
+            if (ex instanceof HttpClientErrorException && isPositional(endpoint)) {
+                throw ex;
+            }
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
                     "ML SHAP service call failed",
@@ -88,6 +408,30 @@ public class MlClient {
         }
     }
 
+    /** Positional calls let 4xx responses through, to fall back to the map contract. */
+    private static boolean isPositional(Endpoint endpoint) {
+        return endpoint == Endpoint.PREDICT_VECTOR || endpoint == Endpoint.BATCH_VECTOR
+                || endpoint == Endpoint.SHAP_VECTOR;
+    }
+
+    /** A pre-serialized JSON body, sent as is. */
+    private static HttpEntity<byte[]> json(byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+
+    private Map<String, Object> toPrediction(Map<String, Object> respBody) {
+        Map<String, Object> res = new HashMap<>();
+        res.put("approvalProbability",
+                asDouble(respBody.getOrDefault("approvalProbability",
+                        respBody.get("probability"))));
+        res.put("decision",
+                Objects.toString(respBody.getOrDefault("decision",
+                        respBody.get("verdict")), null));
+        return res;
+    }
+
     private Double asDouble(Object value) {
         if (value == null) return null;
         if (value instanceof Number number) return number.doubleValue();
@@ -0,0 +1,128 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.MlCacheStatsDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of ML results, keyed by client and the hash of the feature payload the result
+ * was computed from, so a client whose payload changed misses even before ingest invalidates
+ * it. The hash is a 32-bit {@code Arrays.hashCode} and guards against ordinary changes only;
+ * invalidation on ingest and refresh is what keeps changed clients from being served.
+ */
+@Component
+public class MlResultCache {
+
+    private record Key(long clientId, int payloadHash) {}
+
+    private final boolean enabled;
+    private final Cache<Key, Map<String, Object>> predictions;
+    private final Cache<Key, Map<String, Object>> shapValues;
+
+    public MlResultCache(
+            @Value("${ml.cache.enabled:true}") boolean enabled,
+            @Value("${ml.cache.max-size:10000}") long maxSize,
+            @Value("${ml.cache.ttl:30m}") Duration ttl,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        this.predictions = build(maxSize, ttl);
+        this.shapValues = build(maxSize, ttl);
+        CaffeineCacheMetrics.monitor(registry, predictions, "ml.predict");
+        CaffeineCacheMetrics.monitor(registry, shapValues, "ml.shap");
+    }
+
+    public Map<String, Object> prediction(long clientId, int payloadHash, Supplier<Map<String, Object>> loader) {
+        return lookup(predictions, clientId, payloadHash, loader);
+    }
+
+    public Map<String, Object> shap(long clientId, int payloadHash, Supplier<Map<String, Object>> loader) {
+        return lookup(shapValues, clientId, payloadHash, loader);
+    }
+
+    public Map<String, Object> cachedPrediction(long clientId, int payloadHash) {
+        if (!enabled) {
+            return null;
+        }
+        return predictions.getIfPresent(new Key(clientId, payloadHash));
+    }
+
+    public Map<String, Object> putPrediction(long clientId, int payloadHash, Map<String, Object> result) {
+        return put(predictions, clientId, payloadHash, result);
+    }
+
+    public void invalidate(long clientId) {
+        predictions.asMap().keySet().removeIf(key -> key.clientId() == clientId);
+        shapValues.asMap().keySet().removeIf(key -> key.clientId() == clientId);
+    }
+
+    /** Scans the held entries once per cache, which stay at most {@code ml.cache.max-size}. */
+    public void invalidateAll(Collection<Long> clientIds) {
+        if (clientIds.isEmpty() || (predictions.estimatedSize() == 0 && shapValues.estimatedSize() == 0)) {
+            return;
+        }
+        Set<Long> ids = Set.copyOf(clientIds);
+        predictions.asMap().keySet().removeIf(key -> ids.contains(key.clientId()));
+        shapValues.asMap().keySet().removeIf(key -> ids.contains(key.clientId()));
+    }
+
+    public Map<String, MlCacheStatsDto> stats() {
+        Map<String, MlCacheStatsDto> stats = new LinkedHashMap<>();
+        stats.put("predict", toDto(predictions));
+        stats.put("shap", toDto(shapValues));
+        return stats;
+    }
+
+    private Map<String, Object> lookup(Cache<Key, Map<String, Object>> cache, long clientId, int payloadHash,
+                                       Supplier<Map<String, Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Map<String, Object> result = cache.getIfPresent(new Key(clientId, payloadHash));
+        if (result != null) {
+            return result;
+        }
+        return put(cache, clientId, payloadHash, loader.get());
+    }
+
+    private Map<String, Object> put(Cache<Key, Map<String, Object>> cache, long clientId, int payloadHash,
+                                    Map<String, Object> result) {
+        Map<String, Object> value = Collections.unmodifiableMap(result);
+        if (enabled) {
+            cache.put(new Key(clientId, payloadHash), value);
+        }
+        return value;
+    }
+
+    private static Cache<Key, Map<String, Object>> build(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    private static MlCacheStatsDto toDto(Cache<Key, Map<String, Object>> cache) {
+        CacheStats s = cache.stats();
+        return new MlCacheStatsDto(
+                cache.estimatedSize(),
+                s.hitCount(),
+                s.missCount(),
+                s.evictionCount(),
+                s.hitRate()
+        );
+    }
+}
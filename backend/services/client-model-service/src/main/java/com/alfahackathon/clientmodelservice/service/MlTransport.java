@@ -0,0 +1,325 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.config.MlServiceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * HTTP transport to the Python ML service: one pooled keep-alive client shared by all
+ * endpoints, each with its own read timeout, behind a bulkhead that caps in-flight calls and a
+ * circuit breaker that fails fast while the service is down. The bulkhead's cap adapts to the
+ * service's latency and failures ({@link ConcurrencyLimiter}); a call finding no slot within
+ * {@code ml.service.bulkhead.max-wait} is refused with {@code 503}. With
+ * {@code ml.service.hedge.delay} set, a call still running after that delay is raced against a
+ * second identical attempt.
+ * <p>
+ * Every attempt is timed into {@code ml.client.requests} (tags {@code endpoint} and
+ * {@code outcome}, with a percentile histogram), request and response bodies are measured into
+ * {@code ml.client.request.size} / {@code ml.client.response.size}, and calls refused before
+ * reaching the service are counted in {@code ml.client.rejected}. The bulkhead shows as gauges
+ * {@code ml.client.limit}, {@code ml.client.in_flight} and {@code ml.client.queued}.
+ */
+@Slf4j
+@Component
+public class MlTransport {
+
+    public enum Endpoint { PREDICT, SHAP, BATCH, MODEL, SCHEMA, PREDICT_VECTOR, SHAP_VECTOR, BATCH_VECTOR }
+
+    enum Outcome { SUCCESS, CLIENT_ERROR, ERROR, TIMEOUT }
+
+    /** Meters of one endpoint, created up front so recording is a plain field access. */
+    private record Meters(
+            Map<Outcome, Timer> requests,
+            DistributionSummary requestSize,
+            DistributionSummary responseSize,
+            Counter circuitOpen,
+            Counter bulkheadFull
+    ) {}
+
+    private final CloseableHttpClient httpClient;
+    private final Map<Endpoint, RestTemplate> templates = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, String> urls = new EnumMap<>(Endpoint.class);
+    private final ConcurrencyLimiter bulkhead;
+    private final long bulkheadWaitNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final Duration hedgeDelay;
+    private final ExecutorService executor;
+    private final MeterRegistry registry;
+    private final Map<Endpoint, Meters> meters = new EnumMap<>(Endpoint.class);
+
+    public MlTransport(MlServiceProperties properties,
+                       @Qualifier("mlExecutor") ExecutorService executor,
+                       MeterRegistry registry) {
+        this.registry = registry;
+        MlServiceProperties.Pool pool = properties.pool();
+        MlServiceProperties.Timeout timeout = properties.timeout();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(pool.maxTotal())
+                        .setMaxConnPerRoute(pool.maxPerRoute())
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(timeout.connect()))
+                                .setTimeToLive(TimeValue.of(pool.timeToLive()))
+                                .build())
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(pool.idleTimeout()))
+                .disableAutomaticRetries()
+                .build();
+
+        register(Endpoint.PREDICT, properties.url(), timeout.predict());
+        register(Endpoint.SHAP, properties.shapUrl(), timeout.shap());
+        register(Endpoint.BATCH, properties.batchUrl(), timeout.batch());
+        register(Endpoint.MODEL, properties.modelUrl(), timeout.predict());
+        register(Endpoint.SCHEMA, properties.schemaUrl(), timeout.predict());
+        register(Endpoint.PREDICT_VECTOR, properties.vectorUrl(), timeout.predict());
+        register(Endpoint.SHAP_VECTOR, properties.vectorShapUrl(), timeout.shap());
+        register(Endpoint.BATCH_VECTOR, properties.vectorBatchUrl(), timeout.batch());
+
+        MlServiceProperties.Bulkhead limits = properties.bulkhead();
+        this.bulkhead = new ConcurrencyLimiter(
+                limits.adaptive(),
+                limits.minInFlight(),
+                limits.initialInFlight(),
+                limits.maxInFlight(),
+                limits.backoff(),
+                limits.latencyTolerance(),
+                Endpoint.values().length
+        );
+        this.bulkheadWaitNanos = limits.maxWait().toNanos();
+        Gauge.builder("ml.client.limit", bulkhead, ConcurrencyLimiter::limit)
+                .description("Concurrent ML calls currently allowed")
+                .register(registry);
+        Gauge.builder("ml.client.in_flight", bulkhead, ConcurrencyLimiter::inFlight)
+                .description("ML calls in flight")
+                .register(registry);
+        Gauge.builder("ml.client.queued", bulkhead, ConcurrencyLimiter::waiting)
+                .description("ML calls waiting for a slot")
+                .register(registry);
+        this.circuitBreaker = new CircuitBreaker(
+                properties.circuit().enabled(),
+                properties.circuit().failureThreshold(),
+                properties.circuit().openDuration()
+        );
+        this.hedgeDelay = properties.hedge().delay();
+        this.executor = executor;
+    }
+
+    private void register(Endpoint endpoint, String url, Duration readTimeout) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(readTimeout);
+        Meters m = createMeters(endpoint);
+        RestTemplate template = new RestTemplate(factory);
+        template.getInterceptors().add((request, body, execution) -> {
+            m.requestSize().record(body.length);
+            ClientHttpResponse response = execution.execute(request, body);
+            long length = response.getHeaders().getContentLength();
+            if (length >= 0) {
+                m.responseSize().record(length);
+            }
+            return response;
+        });
+        templates.put(endpoint, template);
+        urls.put(endpoint, url);
+        meters.put(endpoint, m);
+    }
+
+    private Meters createMeters(Endpoint endpoint) {
+        String tag = endpoint.name().toLowerCase();
+        Map<Outcome, Timer> requests = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            requests.put(outcome, Timer.builder("ml.client.requests")
+                    .description("ML service call latency per attempt")
+                    .tag("endpoint", tag)
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(registry));
+        }
+        return new Meters(
+                requests,
+                DistributionSummary.builder("ml.client.request.size")
+                        .baseUnit("bytes")
+                        .tag("endpoint", tag)
+                        .register(registry),
+                DistributionSummary.builder("ml.client.response.size")
+                        .baseUnit("bytes")
+                        .tag("endpoint", tag)
+                        .register(registry),
+                Counter.builder("ml.client.rejected")
+                        .tag("endpoint", tag)
+                        .tag("reason", "circuit_open")
+                        .register(registry),
+                Counter.builder("ml.client.rejected")
+                        .tag("endpoint", tag)
+                        .tag("reason", "bulkhead_full")
+                        .register(registry)
+        );
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * @throws RestClientException when the call itself fails
+     * @throws ResponseStatusException {@code BAD_GATEWAY} while the circuit is open,
+     *                                 {@code SERVICE_UNAVAILABLE} when the bulkhead is full
+     */
+    public <T> ResponseEntity<T> post(Endpoint endpoint, Object body, Class<T> responseType) {
+        Function<RestTemplate, ResponseEntity<T>> exchange =
+                template -> template.postForEntity(urls.get(endpoint), body, responseType);
+        if (hedgeDelay.isZero()) {
+            return attempt(endpoint, exchange, true);
+        }
+        return hedged(endpoint, exchange);
+    }
+
+    /**
+     * Unhedged GET, for small metadata calls.
+     *
+     * @see #post(Endpoint, Object, Class)
+     */
+    public <T> ResponseEntity<T> get(Endpoint endpoint, Class<T> responseType) {
+        return attempt(endpoint, template -> template.getForEntity(urls.get(endpoint), responseType), true);
+    }
+
+    private <T> ResponseEntity<T> hedged(Endpoint endpoint, Function<RestTemplate, ResponseEntity<T>> exchange) {
+        CompletableFuture<ResponseEntity<T>> primary =
+                CompletableFuture.supplyAsync(() -> attempt(endpoint, exchange, true), executor);
+        try {
+            return primary.get(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException slow) {
+            log.debug("ML {} call slower than {}, sending hedge", endpoint, hedgeDelay);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            primary.cancel(true);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "ML call interrupted", ex);
+        }
+
+        CompletableFuture<ResponseEntity<T>> hedge =
+                CompletableFuture.supplyAsync(() -> attempt(endpoint, exchange, false), executor);
+        try {
+            return firstSuccessful(primary, hedge).join();
+        } catch (CompletionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    private <T> ResponseEntity<T> attempt(Endpoint endpoint, Function<RestTemplate, ResponseEntity<T>> exchange,
+                                          boolean mayWait) {
+        Meters m = meters.get(endpoint);
+        if (!circuitBreaker.tryAcquire()) {
+            m.circuitOpen().increment();
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "ML service circuit is open");
+        }
+        if (!acquireBulkhead(mayWait)) {
+            circuitBreaker.onIgnored();
+            m.bulkheadFull().increment();
+            throw new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, "ML service is at its concurrency limit, retry shortly"
+            );
+        }
+        long started = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            ResponseEntity<T> response = exchange.apply(templates.get(endpoint));
+            circuitBreaker.onSuccess();
+            outcome = Outcome.SUCCESS;
+            return response;
+        } catch (HttpClientErrorException ex) {
+            circuitBreaker.onSuccess();
+            outcome = Outcome.CLIENT_ERROR;
+            throw ex;
+        } catch (RestClientException ex) {
+            circuitBreaker.onFailure();
+            if (ex.getRootCause() instanceof InterruptedIOException) {
+                outcome = Outcome.TIMEOUT;
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            // Failed on this side, e.g. writing the request body: says nothing about the service,
+            // but a half-open trial still has to give its slot back.
+            circuitBreaker.onIgnored();
+            throw ex;
+        } finally {
+            long ended = System.nanoTime();
+            boolean failed = outcome == Outcome.ERROR || outcome == Outcome.TIMEOUT;
+            bulkhead.release(endpoint.ordinal(), started, ended, failed);
+            m.requests().get(outcome).record(ended - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean acquireBulkhead(boolean mayWait) {
+        try {
+            return bulkhead.acquire(mayWait ? bulkheadWaitNanos : 0);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(a, b)) {
+            attempt.whenComplete((value, ex) -> {
+                if (ex == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static RuntimeException unwrap(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "ML service call failed", cause);
+    }
+}
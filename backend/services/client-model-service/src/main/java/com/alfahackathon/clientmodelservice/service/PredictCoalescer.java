@@ -0,0 +1,95 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges single-row predict calls that arrive within a short window into one multi-row request.
+ * The window opens with the first queued call and closes after {@code window} or once
+ * {@code maxBatch} calls are collected; batches are sent concurrently with further collection.
+ * A batch that fails, or answers with a different number of rows, fails every call in it.
+ */
+@Slf4j
+class PredictCoalescer implements AutoCloseable {
+
+    private record Pending(FeaturePayload features, CompletableFuture<Map<String, Object>> result) {}
+
+    private final Function<List<FeaturePayload>, List<Map<String, Object>>> batchCall;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread collector;
+
+    PredictCoalescer(Function<List<FeaturePayload>, List<Map<String, Object>>> batchCall,
+                     Duration window, int maxBatch) {
+        this.batchCall = batchCall;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = maxBatch;
+        this.collector = Thread.ofPlatform().daemon().name("ml-predict-coalescer").start(this::collect);
+    }
+
+    CompletableFuture<Map<String, Object>> submit(FeaturePayload features) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        queue.add(new Pending(features, result));
+        return result;
+    }
+
+    private void collect() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Pending> batch = new ArrayList<>(maxBatch);
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                senders.execute(() -> send(batch));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            List<Map<String, Object>> results = batchCall.apply(batch.stream().map(Pending::features).toList());
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException(
+                        "ML service returned " + results.size() + " results for " + batch.size() + " rows");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (Throwable ex) {
+            log.debug("Coalesced predict of {} rows failed", batch.size(), ex);
+            batch.forEach(p -> p.result().completeExceptionally(ex));
+        }
+    }
+
+    @Override
+    public void close() {
+        collector.interrupt();
+        senders.shutdownNow();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().cancel(false);
+        }
+    }
+}
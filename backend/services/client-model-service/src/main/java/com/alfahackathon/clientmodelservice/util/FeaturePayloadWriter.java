@@ -0,0 +1,142 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes ML request JSON straight from a {@link Client} and its {@link FeatureVector} with a
+ * streaming generator, without building a feature map. The object holds the same members with
+ * the same values as the map the request used to be serialized from: the six typed client
+ * fields, {@code null} when unset, then every feature cell, a cell replacing a typed field of
+ * the same name.
+ */
+public final class FeaturePayloadWriter {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final byte[] SINGLE_PREFIX = "{\"features\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ROWS_PREFIX = "{\"rows\":[".getBytes(StandardCharsets.UTF_8);
+
+    private FeaturePayloadWriter() {
+    }
+
+    public static FeaturePayload write(Client e, FeatureVector vector, FeatureDictionary dictionary) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + vector.size() * 32);
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            gen.writeStartObject();
+            Typed typed = new Typed(gen, vector, dictionary);
+            typed.number("age", e.getAge());
+            typed.string("gender", e.getGender());
+            typed.string("adminarea", e.getAdminarea());
+            typed.decimal("incomeValue", e.getIncomeValue());
+            typed.string("incomeValueCategory", e.getIncomeCategory());
+            typed.string("city_smart_name", e.getCitySmartName());
+
+            writeCells(gen, vector, dictionary);
+            gen.writeEndObject();
+        }
+        return FeaturePayload.of(out.toByteArray());
+    }
+
+    /** The feature cells alone as a JSON object, the content of the {@code features} jsonb column. */
+    public static String cells(FeatureVector vector, FeatureDictionary dictionary) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + vector.size() * 32);
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            gen.writeStartObject();
+            writeCells(gen, vector, dictionary);
+            gen.writeEndObject();
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /** {@code {"features":<payload>}}, the body of a single-row predict or SHAP call. */
+    public static byte[] single(FeaturePayload payload) {
+        byte[] json = payload.json();
+        byte[] body = new byte[SINGLE_PREFIX.length + json.length + 1];
+        System.arraycopy(SINGLE_PREFIX, 0, body, 0, SINGLE_PREFIX.length);
+        System.arraycopy(json, 0, body, SINGLE_PREFIX.length, json.length);
+        body[body.length - 1] = '}';
+        return body;
+    }
+
+    /** {@code {"rows":[<payload>,...]}}, the body of a batch predict call. */
+    public static byte[] rows(List<FeaturePayload> payloads) {
+        int size = ROWS_PREFIX.length + 2 + Math.max(payloads.size() - 1, 0);
+        for (FeaturePayload p : payloads) {
+            size += p.json().length;
+        }
+        byte[] body = new byte[size];
+        System.arraycopy(ROWS_PREFIX, 0, body, 0, ROWS_PREFIX.length);
+        int pos = ROWS_PREFIX.length;
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                body[pos++] = ',';
+            }
+            byte[] json = payloads.get(i).json();
+            System.arraycopy(json, 0, body, pos, json.length);
+            pos += json.length;
+        }
+        body[pos++] = ']';
+        body[pos] = '}';
+        return body;
+    }
+
+    /** Writes each feature cell as a member of the object the generator is in. */
+    public static void writeCells(JsonGenerator gen, FeatureVector vector, FeatureDictionary dictionary) {
+        for (int i = 0; i < vector.size(); i++) {
+            gen.writeName(dictionary.columnName(vector.column(i)));
+            double value = vector.value(i);
+            switch (vector.kind(i)) {
+                case FeatureVector.INT -> gen.writeNumber((long) value);
+                case FeatureVector.DOUBLE -> gen.writeNumber(value);
+                case FeatureVector.CATEGORY -> gen.writeString(dictionary.categoryValue((int) value));
+                case FeatureVector.BIG_INT -> gen.writeNumber(Long.parseLong(dictionary.categoryValue((int) value)));
+                default -> throw new IllegalStateException("Unknown feature kind " + vector.kind(i));
+            }
+        }
+    }
+
+    /** Writes a typed field unless a feature cell of the same name will be written instead. */
+    private record Typed(JsonGenerator gen, FeatureVector vector, FeatureDictionary dictionary) {
+
+        void number(String name, Integer value) {
+            if (start(name)) {
+                if (value == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(value.intValue());
+                }
+            }
+        }
+
+        void decimal(String name, BigDecimal value) {
+            if (start(name)) {
+                gen.writeNumber(value);
+            }
+        }
+
+        void string(String name, String value) {
+            if (start(name)) {
+                gen.writeString(value);
+            }
+        }
+
+        private boolean start(String name) {
+            int column = dictionary.findColumn(name);
+            if (column >= 0 && vector.indexOf(column) >= 0) {
+                return false;
+            }
+            gen.writeName(name);
+            return true;
+        }
+    }
+}
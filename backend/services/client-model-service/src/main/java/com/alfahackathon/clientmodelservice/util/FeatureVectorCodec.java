@@ -0,0 +1,152 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+
+import java.util.Arrays;
+
+/**
+ * Binary layout of a {@link FeatureVector} as stored in {@code clients.feature_vector}:
+ * <pre>
+ * version:u8  count:varint  cell*
+ * cell = header:varint (column delta &lt;&lt; 2 | kind)  payload
+ * payload = INT: zigzag varint | DOUBLE: 8 bytes big-endian | CATEGORY, BIG_INT: varint code
+ * </pre>
+ * Column deltas are relative to the previous cell's column, starting from -1.
+ */
+public final class FeatureVectorCodec {
+
+    private static final byte VERSION = 1;
+
+    private FeatureVectorCodec() {
+    }
+
+    public static byte[] encode(FeatureVector vector) {
+        Writer out = new Writer(2 + vector.size() * 4);
+        out.put(VERSION);
+        out.putVarLong(vector.size());
+        int previous = -1;
+        for (int i = 0; i < vector.size(); i++) {
+            int column = vector.column(i);
+            byte kind = vector.kind(i);
+            out.putVarLong(((long) (column - previous) << 2) | kind);
+            previous = column;
+            double value = vector.value(i);
+            switch (kind) {
+                case FeatureVector.INT -> {
+                    long v = (long) value;
+                    out.putVarLong((v << 1) ^ (v >> 63));
+                }
+                case FeatureVector.DOUBLE -> out.putLong(Double.doubleToRawLongBits(value));
+                default -> out.putVarLong((long) value);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static FeatureVector decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return FeatureVector.empty();
+        }
+        Reader in = new Reader(bytes);
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported feature vector version " + version);
+        }
+        int count = (int) in.getVarLong();
+        int[] columns = new int[count];
+        byte[] kinds = new byte[count];
+        double[] values = new double[count];
+        int column = -1;
+        for (int i = 0; i < count; i++) {
+            long header = in.getVarLong();
+            column += (int) (header >>> 2);
+            byte kind = (byte) (header & 3);
+            columns[i] = column;
+            kinds[i] = kind;
+            values[i] = switch (kind) {
+                case FeatureVector.INT -> {
+                    long zigzag = in.getVarLong();
+                    yield (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                case FeatureVector.DOUBLE -> Double.longBitsToDouble(in.getLong());
+                default -> in.getVarLong();
+            };
+        }
+        return new FeatureVector(columns, kinds, values);
+    }
+
+    private static final class Writer {
+
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        void put(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        void putVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void putLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (v >>> shift);
+            }
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        byte get() {
+            return buf[pos++];
+        }
+
+        long getVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in feature vector");
+        }
+
+        long getLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+    }
+}
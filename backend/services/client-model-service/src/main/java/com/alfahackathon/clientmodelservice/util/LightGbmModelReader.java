@@ -0,0 +1,237 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble.Missing;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble.Objective;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a model saved by LightGBM's {@code Booster.save_model} in its text format (v3, v4)
+ * into a {@link TreeEnsemble}. Supports single-output regression, binary and log-link
+ * objectives, categorical splits, and the {@code pandas_categorical} line a model trained on a
+ * pandas frame carries, which gives each categorical feature's values their codes.
+ * <p>
+ * Numeric splits send values up to and including the threshold left. The decision type of a
+ * split holds whether it is categorical (bit 0), whether missing values go left (bit 1) and what
+ * counts as missing (bits 2-3: nothing, zero, or {@code NaN}).
+ */
+public final class LightGbmModelReader {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LightGbmModelReader() {
+    }
+
+    /**
+     * @param iterations boosting rounds to score with, {@code 0} for all of them; a model saved
+     *                   after early stopping holds only the rounds up to the best one
+     * @throws IllegalArgumentException for a model this reader cannot score
+     */
+    public static TreeEnsemble read(Reader reader, int iterations) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        Map<String, String> header = section(in);
+        if (!"tree".equals(header.get(""))) {
+            throw new IllegalArgumentException("Not a LightGBM text model");
+        }
+        if (Integer.parseInt(header.getOrDefault("num_class", "1")) > 1
+                || Integer.parseInt(header.getOrDefault("num_tree_per_iteration", "1")) > 1) {
+            throw new IllegalArgumentException("LightGBM models with several outputs are not supported");
+        }
+
+        List<String> names = List.of(header.get("feature_names").split(" "));
+        List<Map<String, String>> trees = new ArrayList<>();
+        Map<String, String> parameters = Map.of();
+        String pandasCategorical = null;
+        for (Map<String, String> section = section(in); section != null; section = section(in)) {
+            String first = section.get("");
+            if (section.containsKey("Tree")) {
+                trees.add(section);
+            } else if ("parameters:".equals(first)) {
+                parameters = section;
+            } else if (section.containsKey("pandas_categorical")) {
+                pandasCategorical = section.get("pandas_categorical");
+            }
+        }
+
+        boolean[] categorical = new boolean[names.size()];
+        int[] categoricalFeatures = parseInts(parameters.getOrDefault("[categorical_feature", ""));
+        for (int feature : categoricalFeatures) {
+            categorical[feature] = true;
+        }
+        TreeEnsemble.Builder builder = new TreeEnsemble.Builder(names, categorical)
+                .averaged(header.containsKey("average_output"));
+        objective(header.getOrDefault("objective", "regression"), builder);
+        categories(pandasCategorical, categoricalFeatures, builder);
+
+        for (Map<String, String> tree : trees) {
+            builder.tree(readTree(tree, builder));
+        }
+        int count = iterations > 0 ? Math.min(iterations, builder.treeCount()) : builder.treeCount();
+        return builder.build(count);
+    }
+
+    private static void objective(String objective, TreeEnsemble.Builder builder) {
+        String[] parts = objective.split(" ");
+        switch (parts[0]) {
+            case "regression", "regression_l1", "huber", "fair", "quantile", "mape" -> {
+                if (Arrays.asList(parts).contains("sqrt")) {
+                    throw new IllegalArgumentException("LightGBM regression with reg_sqrt is not supported");
+                }
+            }
+            case "binary", "cross_entropy", "xentropy" -> {
+                builder.objective(Objective.LOGISTIC);
+                for (String part : parts) {
+                    if (part.startsWith("sigmoid:")) {
+                        builder.logisticScale(Double.parseDouble(part.substring("sigmoid:".length())));
+                    }
+                }
+            }
+            case "poisson", "gamma", "tweedie" -> builder.objective(Objective.EXP);
+            default -> throw new IllegalArgumentException("Unsupported LightGBM objective " + objective);
+        }
+    }
+
+    /**
+     * The {@code pandas_categorical} lists belong to the categorical features in column order;
+     * pandas turns each value into a string the way Python's {@code str} does.
+     */
+    private static void categories(String pandasCategorical, int[] categoricalFeatures, TreeEnsemble.Builder builder) {
+        if (pandasCategorical == null || pandasCategorical.equals("null")) {
+            if (categoricalFeatures.length > 0) {
+                throw new IllegalArgumentException("LightGBM categorical features without pandas_categorical are not supported");
+            }
+            return;
+        }
+        JsonNode lists = objectMapper.readTree(pandasCategorical);
+        if (lists.size() != categoricalFeatures.length) {
+            throw new IllegalArgumentException("pandas_categorical has " + lists.size() + " lists for "
+                    + categoricalFeatures.length + " categorical features");
+        }
+        int[] sorted = categoricalFeatures.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            List<String> values = new ArrayList<>();
+            for (JsonNode value : lists.get(i).values()) {
+                values.add(value.isFloatingPointNumber()
+                        ? PositionalPayloadWriter.pythonRepr(value.asDouble())
+                        : value.asString());
+            }
+            builder.categories(sorted[i], values);
+        }
+    }
+
+    private static int readTree(Map<String, String> tree, TreeEnsemble.Builder builder) {
+        if ("1".equals(tree.get("is_linear"))) {
+            throw new IllegalArgumentException("LightGBM linear trees are not supported");
+        }
+        double[] leafValues = parseDoubles(tree.get("leaf_value"));
+        int[] leaves = new int[leafValues.length];
+        for (int i = 0; i < leafValues.length; i++) {
+            leaves[i] = builder.leaf(leafValues[i]);
+        }
+        int splits = Integer.parseInt(tree.get("num_leaves")) - 1;
+        if (splits == 0) {
+            return leaves[0];
+        }
+
+        int[] features = parseInts(tree.get("split_feature"));
+        double[] thresholds = parseDoubles(tree.get("threshold"));
+        int[] decisionTypes = parseInts(tree.get("decision_type"));
+        int[] catBoundaries = parseInts(tree.getOrDefault("cat_boundaries", ""));
+        long[] catThreshold = parseLongs(tree.getOrDefault("cat_threshold", ""));
+
+        int[] nodes = new int[splits];
+        for (int n = 0; n < splits; n++) {
+            int type = decisionTypes[n];
+            boolean defaultLeft = (type & 2) != 0;
+            if ((type & 1) != 0) {
+                int cat = (int) thresholds[n];
+                int[] words = new int[catBoundaries[cat + 1] - catBoundaries[cat]];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] = (int) catThreshold[catBoundaries[cat] + w];
+                }
+                // LightGBM sends a missing category right, whatever the flag says
+                nodes[n] = builder.categoricalSplit(features[n], words, false);
+            } else {
+                Missing missing = switch ((type >> 2) & 3) {
+                    case 1 -> Missing.ZERO;
+                    case 2 -> Missing.NAN;
+                    default -> Missing.NONE;
+                };
+                // x <= t is x < nextUp(t) for every double x
+                nodes[n] = builder.numericSplit(features[n], Math.nextUp(thresholds[n]), defaultLeft, missing);
+            }
+        }
+        int[] lefts = parseInts(tree.get("left_child"));
+        int[] rights = parseInts(tree.get("right_child"));
+        for (int n = 0; n < splits; n++) {
+            builder.children(nodes[n], child(lefts[n], nodes, leaves), child(rights[n], nodes, leaves));
+        }
+        return nodes[0];
+    }
+
+    /** LightGBM numbers leaves {@code ~leaf} among the children, like the builder. */
+    private static int child(int child, int[] nodes, int[] leaves) {
+        return child >= 0 ? nodes[child] : leaves[~child];
+    }
+
+    /**
+     * The {@code key=value} lines up to the next blank line, {@code null} at the end of the file.
+     * A line without {@code =} is kept as is under the empty key when it comes first, and
+     * {@code [key: value]} parameter lines are split at the colon.
+     */
+    private static Map<String, String> section(BufferedReader in) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        Map<String, String> section = new HashMap<>();
+        for (; line != null && !line.isBlank(); line = in.readLine()) {
+            int colon = line.indexOf(':');
+            int eq = line.indexOf('=');
+            if (line.startsWith("[") && colon > 0) {
+                section.put(line.substring(0, colon), line.substring(colon + 1, line.length() - 1).strip());
+            } else if (line.startsWith("pandas_categorical:")) {
+                section.put("pandas_categorical", line.substring("pandas_categorical:".length()).strip());
+            } else if (eq > 0) {
+                section.put(line.substring(0, eq), line.substring(eq + 1));
+            } else if (section.isEmpty()) {
+                section.put("", line.strip());
+            } else {
+                section.put(line.strip(), "");
+            }
+        }
+        return section;
+    }
+
+    private static String[] tokens(String line) {
+        String s = line == null ? "" : line.strip();
+        return s.isEmpty() ? new String[0] : s.split("[ ,]+");
+    }
+
+    private static int[] parseInts(String line) {
+        return Arrays.stream(tokens(line)).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static long[] parseLongs(String line) {
+        return Arrays.stream(tokens(line)).mapToLong(Long::parseLong).toArray();
+    }
+
+    private static double[] parseDoubles(String line) {
+        return Arrays.stream(tokens(line)).mapToDouble(Double::parseDouble).toArray();
+    }
+}
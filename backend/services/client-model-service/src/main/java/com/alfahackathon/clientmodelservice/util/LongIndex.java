@@ -0,0 +1,77 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} keys to non-negative {@code int} slots, with linear
+ * probing over two primitive arrays. Built once and then only read, so it needs no locking.
+ */
+public final class LongIndex {
+
+    private static final int ABSENT = -1;
+
+    private final long[] keys;
+    private final int[] slots;
+    private final int mask;
+    private int size;
+
+    public LongIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, ABSENT);
+        mask = capacity - 1;
+    }
+
+    /**
+     * @throws IllegalStateException when the index is full
+     */
+    public void put(long key, int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("slot must be non-negative: " + slot);
+        }
+        int i = bucket(key);
+        while (slots[i] != ABSENT) {
+            if (keys[i] == key) {
+                slots[i] = slot;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size + 1 > keys.length * 3 / 4) {
+            throw new IllegalStateException("LongIndex capacity " + keys.length + " exceeded");
+        }
+        keys[i] = key;
+        slots[i] = slot;
+        size++;
+    }
+
+    /**
+     * @return the slot stored for {@code key}, or {@code -1} when it is absent
+     */
+    public int get(long key) {
+        int i = bucket(key);
+        int slot;
+        while ((slot = slots[i]) != ABSENT) {
+            if (keys[i] == key) {
+                return slot;
+            }
+            i = (i + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Heap used by the two backing arrays. */
+    public long footprintBytes() {
+        return 2L * 16 + (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int bucket(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
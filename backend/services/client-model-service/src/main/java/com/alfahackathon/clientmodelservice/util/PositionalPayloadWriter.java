@@ -0,0 +1,255 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a client's features as the JSON array the ML service's positional endpoints take: one
+ * value per feature of the {@link MlSchema}, in schema order, coerced exactly as the service's
+ * {@code build_row} coerces the map contract. Categorical features become strings ({@code ""}
+ * when missing or {@code nan}, a trailing {@code .0} dropped), all others numbers ({@code 0.0}
+ * when missing or unparseable). Each value comes from the feature cell of that name, else from
+ * the typed client field of that name, as in the map payload.
+ */
+public final class PositionalPayloadWriter {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String DIGITS = "\\d(?:_?\\d)*";
+    /** What Python's {@code float()} accepts, lower-cased. */
+    private static final Pattern PYTHON_FLOAT = Pattern.compile(
+            "[+-]?(?:(?:" + DIGITS + "(?:\\.(?:" + DIGITS + ")?)?|\\." + DIGITS + ")(?:e[+-]?" + DIGITS + ")?"
+                    + "|inf|infinity|nan)");
+
+    /** The typed client fields, as the values the service sees after parsing the map payload. */
+    enum Typed {
+        AGE("age", e -> e.getAge() == null ? null : (long) e.getAge()),
+        GENDER("gender", Client::getGender),
+        ADMINAREA("adminarea", Client::getAdminarea),
+        INCOME_VALUE("incomeValue", e -> jsonNumber(e.getIncomeValue())),
+        INCOME_CATEGORY("incomeValueCategory", Client::getIncomeCategory),
+        CITY("city_smart_name", Client::getCitySmartName);
+
+        private final String name;
+        private final Function<Client, Object> value;
+
+        Typed(String name, Function<Client, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        static Typed of(String name) {
+            for (Typed t : values()) {
+                if (t.name.equals(name)) {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Where each schema position takes its value from: a dictionary column, a typed field, or
+     * neither. Valid while the dictionary has {@code dictionarySize} columns.
+     */
+    public record Layout(MlSchema schema, int dictionarySize, int[] columns, Typed[] typed) {
+
+        public static Layout of(MlSchema schema, FeatureDictionary dictionary) {
+            int[] columns = new int[schema.size()];
+            Typed[] typed = new Typed[schema.size()];
+            for (int p = 0; p < columns.length; p++) {
+                String name = schema.features().get(p);
+                columns[p] = dictionary.findColumn(name);
+                typed[p] = Typed.of(name);
+            }
+            return new Layout(schema, dictionary.columnCount(), columns, typed);
+        }
+
+        public boolean isCurrent(MlSchema schema, FeatureDictionary dictionary) {
+            return this.schema == schema && dictionarySize == dictionary.columnCount();
+        }
+    }
+
+    private PositionalPayloadWriter() {
+    }
+
+    public static FeaturePayload write(Client e, FeatureVector vector, FeatureDictionary dictionary, Layout layout,
+                                       Supplier<FeaturePayload> mapForm) {
+        boolean[] categorical = layout.schema().categorical();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + categorical.length * 12);
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            gen.writeStartArray();
+            for (int p = 0; p < categorical.length; p++) {
+                int column = layout.columns()[p];
+                int i = column < 0 ? -1 : vector.indexOf(column);
+                if (categorical[p]) {
+                    gen.writeString(i >= 0 ? categoricalCell(vector, i, dictionary) : categorical(typed(e, layout, p)));
+                } else {
+                    number(gen, i >= 0 ? numericCell(vector, i, dictionary) : numeric(typed(e, layout, p)));
+                }
+            }
+            gen.writeEndArray();
+        }
+        return FeaturePayload.positional(out.toByteArray(), layout.schema().version(), mapForm);
+    }
+
+    /** {@code {"version":...,"values":<payload>}}, the body of a positional predict or SHAP call. */
+    public static byte[] single(FeaturePayload payload) {
+        return wrap(payload.schemaVersion(), "values", List.of(payload), false);
+    }
+
+    /** {@code {"version":...,"rows":[<payload>,...]}}, the body of a positional batch call. */
+    public static byte[] rows(String schemaVersion, List<FeaturePayload> payloads) {
+        return wrap(schemaVersion, "rows", payloads, true);
+    }
+
+    private static byte[] wrap(String schemaVersion, String field, List<FeaturePayload> payloads, boolean array) {
+        byte[] prefix = ("{\"version\":" + objectMapper.writeValueAsString(schemaVersion) + ",\"" + field + "\":"
+                + (array ? "[" : "")).getBytes(StandardCharsets.UTF_8);
+        int size = prefix.length + (array ? 2 : 1) + Math.max(payloads.size() - 1, 0);
+        for (FeaturePayload p : payloads) {
+            size += p.json().length;
+        }
+        byte[] body = new byte[size];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        int pos = prefix.length;
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                body[pos++] = ',';
+            }
+            byte[] json = payloads.get(i).json();
+            System.arraycopy(json, 0, body, pos, json.length);
+            pos += json.length;
+        }
+        if (array) {
+            body[pos++] = ']';
+        }
+        body[pos] = '}';
+        return body;
+    }
+
+    private static Object typed(Client e, Layout layout, int p) {
+        Typed typed = layout.typed()[p];
+        return typed == null ? null : typed.value.apply(e);
+    }
+
+    private static String categoricalCell(FeatureVector vector, int i, FeatureDictionary dictionary) {
+        double value = vector.value(i);
+        return switch (vector.kind(i)) {
+            case FeatureVector.INT -> Long.toString((long) value);
+            case FeatureVector.DOUBLE -> categorical(value);
+            case FeatureVector.CATEGORY -> categorical(dictionary.categoryValue((int) value));
+            case FeatureVector.BIG_INT -> dictionary.categoryValue((int) value);
+            default -> throw new IllegalStateException("Unknown feature kind " + vector.kind(i));
+        };
+    }
+
+    private static double numericCell(FeatureVector vector, int i, FeatureDictionary dictionary) {
+        double value = vector.value(i);
+        return switch (vector.kind(i)) {
+            case FeatureVector.INT -> value;
+            case FeatureVector.DOUBLE -> Double.isNaN(value) ? 0.0 : value;
+            case FeatureVector.CATEGORY -> numeric(dictionary.categoryValue((int) value));
+            case FeatureVector.BIG_INT -> Long.parseLong(dictionary.categoryValue((int) value));
+            default -> throw new IllegalStateException("Unknown feature kind " + vector.kind(i));
+        };
+    }
+
+    /** {@code build_row} for a categorical feature: the value as Python's {@code str} gives it. */
+    static String categorical(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String s = value instanceof Double d ? pythonRepr(d) : value.toString();
+        if (s.toLowerCase(Locale.ROOT).equals("nan")) {
+            return "";
+        }
+        return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s;
+    }
+
+    /**
+     * {@code build_row} for a numeric feature: Python's {@code float}, {@code 0.0} when it fails
+     * or for {@code nan}, though a signed {@code -nan} string gets through as NaN there too.
+     */
+    static double numeric(Object value) {
+        if (value == null) {
+            return 0.0;
+        }
+        if (value instanceof String s) {
+            String v = s.replace(',', '.').strip().toLowerCase(Locale.ROOT);
+            if (v.isEmpty() || v.equals("nan") || !PYTHON_FLOAT.matcher(v).matches()) {
+                return 0.0;
+            }
+            if (v.endsWith("nan")) {
+                return Double.NaN;
+            }
+            if (v.endsWith("inf") || v.endsWith("infinity")) {
+                return v.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            return Double.parseDouble(v.replace("_", ""));
+        }
+        double d = ((Number) value).doubleValue();
+        return Double.isNaN(d) ? 0.0 : d;
+    }
+
+    /** Python's {@code repr} of a float: shortest round-trip digits, exponent outside [1e-4, 1e16). */
+    static String pythonRepr(double value) {
+        if (Double.isNaN(value)) {
+            return "nan";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == 0) {
+            return 1 / value < 0 ? "-0.0" : "0.0";
+        }
+        BigDecimal d = new BigDecimal(Double.toString(value)).stripTrailingZeros();
+        String digits = d.unscaledValue().abs().toString();
+        int exponent = digits.length() - 1 - d.scale();
+        String sign = value < 0 ? "-" : "";
+        if (exponent >= -4 && exponent < 16) {
+            String plain = d.abs().toPlainString();
+            return sign + (plain.indexOf('.') < 0 ? plain + ".0" : plain);
+        }
+        String mantissa = digits.length() == 1 ? digits : digits.charAt(0) + "." + digits.substring(1);
+        return sign + mantissa + "e" + (exponent < 0 ? "-" : "+") + String.format("%02d", Math.abs(exponent));
+    }
+
+    /**
+     * A decimal as the service parses it from the map payload: an int when written without a
+     * fraction or exponent, a float otherwise.
+     */
+    private static Object jsonNumber(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        return text.indexOf('.') < 0 && text.indexOf('E') < 0 ? new BigInteger(text) : Double.parseDouble(text);
+    }
+
+    /** Non-finite values as the bare tokens Python's json module reads, not as strings. */
+    private static void number(JsonGenerator gen, double value) {
+        if (Double.isNaN(value)) {
+            gen.writeRawValue("NaN");
+        } else if (Double.isInfinite(value)) {
+            gen.writeRawValue(value > 0 ? "Infinity" : "-Infinity");
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.dto.ClientSort;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pages: the sort it belongs to and the sort key and id of
+ * the last row served, as URL-safe base64. A {@code null} key means the last row sat among the
+ * clients without a value for the sort column. Version 1 tokens (id order only) still decode.
+ */
+public record ScrollCursor(ClientSort sort, boolean descending, String key, long lastId) {
+
+    private static final byte V1 = 1;
+    private static final String V2 = "2";
+    private static final String NULL_KEY = "~";
+
+    public String encode() {
+        String text = String.join(":", V2, sort.name(), descending ? "d" : "a",
+                key == null ? NULL_KEY : key, Long.toString(lastId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode}
+     */
+    public static ScrollCursor decode(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length == 9 && bytes[0] == V1) {
+            return new ScrollCursor(ClientSort.ID, false, null, ByteBuffer.wrap(bytes, 1, 8).getLong());
+        }
+        String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":", -1);
+        if (parts.length != 5 || !V2.equals(parts[0]) || !(parts[2].equals("a") || parts[2].equals("d"))) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        ClientSort sort = ClientSort.valueOf(parts[1]);
+        String key = NULL_KEY.equals(parts[3]) ? null : parts[3];
+        if (key != null) {
+            sort.parseKey(key);
+        }
+        return new ScrollCursor(sort, parts[2].equals("d"), key, Long.parseLong(parts[4]));
+    }
+}
@@ -0,0 +1,123 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.json.JsonReadFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a {@link FeaturePayload} into an input row of a {@link TreeEnsemble}, streaming over
+ * the payload's JSON. Values are coerced as the ML service's {@code build_row} coerces them
+ * (see {@link PositionalPayloadWriter}): absent or unparseable numbers become {@code 0.0}, and
+ * categorical values become strings and then the model's category codes. A positional payload
+ * is read by the schema it was built for, provided that is {@code schema}; any other is read in
+ * its map form.
+ */
+public final class TreeModelInput {
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build();
+
+    /** Model feature of each schema position, {@code -1} for those the model does not use. */
+    private record Positions(MlSchema schema, int[] features) {}
+
+    private final TreeEnsemble model;
+    private final Map<String, Integer> features;
+    private final double[] defaults;
+
+    private volatile Positions positions;
+
+    public TreeModelInput(TreeEnsemble model) {
+        this.model = model;
+        List<String> names = model.featureNames();
+        this.features = new HashMap<>(names.size() * 4 / 3 + 1);
+        this.defaults = new double[names.size()];
+        for (int f = 0; f < names.size(); f++) {
+            features.putIfAbsent(names.get(f), f);
+            defaults[f] = model.isCategorical(f) ? model.categoryCode(f, "") : model.numeric(0.0);
+        }
+    }
+
+    /**
+     * @param schema the schema positional payloads are built for now, or {@code null}
+     */
+    public double[] read(FeaturePayload payload, MlSchema schema) {
+        double[] row = defaults.clone();
+        if (payload.isPositional() && schema != null && schema.version().equals(payload.schemaVersion())) {
+            readPositional(payload.json(), positions(schema), row);
+        } else {
+            readMap(payload.toMap().json(), row);
+        }
+        return row;
+    }
+
+    private int[] positions(MlSchema schema) {
+        Positions current = positions;
+        if (current == null || current.schema() != schema) {
+            int[] byPosition = new int[schema.size()];
+            for (int p = 0; p < byPosition.length; p++) {
+                byPosition[p] = features.getOrDefault(schema.features().get(p), -1);
+            }
+            current = new Positions(schema, byPosition);
+            positions = current;
+        }
+        return current.features();
+    }
+
+    private void readPositional(byte[] json, int[] byPosition, double[] row) {
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            parser.nextToken();
+            int p = 0;
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken(), p++) {
+                int f = p < byPosition.length ? byPosition[p] : -1;
+                if (f >= 0 && token.isScalarValue()) {
+                    row[f] = value(parser, token, f);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readMap(byte[] json, double[] row) {
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                Integer f = features.get(parser.currentName());
+                JsonToken token = parser.nextToken();
+                if (f != null && token.isScalarValue()) {
+                    row[f] = value(parser, token, f);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private double value(JsonParser parser, JsonToken token, int f) {
+        if (model.isCategorical(f)) {
+            Object value = switch (token) {
+                case VALUE_STRING -> parser.getString();
+                case VALUE_NUMBER_INT -> parser.getString();
+                case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+                default -> null;
+            };
+            return model.categoryCode(f, PositionalPayloadWriter.categorical(value));
+        }
+        double value = switch (token) {
+            case VALUE_STRING -> PositionalPayloadWriter.numeric(parser.getString());
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> PositionalPayloadWriter.numeric(parser.getDoubleValue());
+            default -> 0.0;
+        };
+        return model.numeric(value);
+    }
+}
@@ -0,0 +1,178 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble.Objective;
+import tools.jackson.core.json.JsonReadFeature;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a model saved by XGBoost's {@code Booster.save_model} as JSON (1.x to 3.x) into a
+ * {@link TreeEnsemble}. Supports the {@code gbtree} and {@code dart} boosters with single-output
+ * regression, logistic and log-link objectives; numeric splits send values below the split
+ * condition left and categorical ones send the listed categories right, {@code default_left}
+ * deciding for missing values.
+ */
+public final class XgboostModelReader {
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build();
+
+    private XgboostModelReader() {
+    }
+
+    /**
+     * @param iterations boosting rounds to score with; {@code 0} for the {@code best_iteration}
+     *                   attribute early stopping leaves in the model, else all of them
+     * @throws IllegalArgumentException for a model this reader cannot score
+     */
+    public static TreeEnsemble read(InputStream in, int iterations) {
+        JsonNode learner = objectMapper.readTree(in).path("learner");
+        JsonNode params = learner.path("learner_model_param");
+        if (params.path("num_class").asInt(0) > 1 || params.path("num_target").asInt(1) > 1) {
+            throw new IllegalArgumentException("XGBoost models with several outputs are not supported");
+        }
+
+        int featureCount = params.path("num_feature").asInt(0);
+        List<String> names = new ArrayList<>();
+        learner.path("feature_names").values().forEach(n -> names.add(n.asString()));
+        if (names.isEmpty()) {
+            for (int i = 0; i < featureCount; i++) {
+                names.add("f" + i);
+            }
+        }
+        boolean[] categorical = new boolean[names.size()];
+        JsonNode types = learner.path("feature_types");
+        for (int i = 0; i < categorical.length && i < types.size(); i++) {
+            categorical[i] = "c".equals(types.get(i).asString());
+        }
+
+        TreeEnsemble.Builder builder = new TreeEnsemble.Builder(names, categorical).singlePrecision(true);
+        double baseScore = parseBaseScore(params.path("base_score").asString("0.5"));
+        String objective = learner.path("objective").path("name").asString("reg:squarederror");
+        switch (objective) {
+            case "reg:squarederror", "reg:squaredlogerror", "reg:pseudohubererror", "reg:absoluteerror",
+                 "reg:quantileerror", "reg:linear" -> builder.baseMargin(baseScore);
+            case "reg:logistic", "binary:logistic" ->
+                    builder.objective(Objective.LOGISTIC).baseMargin(Math.log(baseScore / (1 - baseScore)));
+            case "binary:logitraw" -> builder.baseMargin(Math.log(baseScore / (1 - baseScore)));
+            case "count:poisson", "reg:gamma", "reg:tweedie" ->
+                    builder.objective(Objective.EXP).baseMargin(Math.log(baseScore));
+            default -> throw new IllegalArgumentException("Unsupported XGBoost objective " + objective);
+        }
+
+        JsonNode booster = learner.path("gradient_booster");
+        String boosterName = booster.path("name").asString("gbtree");
+        JsonNode model;
+        JsonNode weightDrop = null;
+        switch (boosterName) {
+            case "gbtree" -> model = booster.path("model");
+            case "dart" -> {
+                model = booster.path("gbtree").path("model");
+                weightDrop = booster.path("weight_drop");
+            }
+            default -> throw new IllegalArgumentException("Unsupported XGBoost booster " + boosterName);
+        }
+
+        JsonNode trees = model.path("trees");
+        for (int t = 0; t < trees.size(); t++) {
+            double weight = weightDrop == null ? 1 : weightDrop.get(t).asDouble();
+            builder.tree(readTree(trees.get(t), weight, builder));
+        }
+
+        int rounds = iterations > 0 ? iterations : learner.path("attributes").path("best_iteration").asInt(-1) + 1;
+        return builder.build(treesFor(model.path("iteration_indptr"), rounds, builder.treeCount()));
+    }
+
+    /** {@code "5E-1"}, or {@code "[5E-1]"} as XGBoost 3 writes it. */
+    private static double parseBaseScore(String value) {
+        String v = value.strip();
+        if (v.startsWith("[") && v.endsWith("]")) {
+            v = v.substring(1, v.length() - 1).strip();
+        }
+        return (float) Double.parseDouble(v);
+    }
+
+    /** The number of trees in the first {@code rounds} boosting rounds, all of them for {@code rounds <= 0}. */
+    private static int treesFor(JsonNode iterationIndptr, int rounds, int trees) {
+        if (rounds <= 0) {
+            return trees;
+        }
+        if (iterationIndptr.size() > 0) {
+            int last = iterationIndptr.size() - 1;
+            return iterationIndptr.get(Math.min(rounds, last)).asInt();
+        }
+        return Math.min(rounds, trees);
+    }
+
+    private static int readTree(JsonNode tree, double weight, TreeEnsemble.Builder builder) {
+        JsonNode lefts = tree.path("left_children");
+        JsonNode rights = tree.path("right_children");
+        JsonNode features = tree.path("split_indices");
+        JsonNode conditions = tree.path("split_conditions");
+        JsonNode defaultLeft = tree.path("default_left");
+        JsonNode splitTypes = tree.path("split_type");
+
+        int size = lefts.size();
+        int[][] categories = categories(tree, size);
+        int[] refs = new int[size];
+        for (int n = 0; n < size; n++) {
+            if (lefts.get(n).asInt() == -1) {
+                refs[n] = builder.leaf((float) conditions.get(n).asDouble() * weight);
+            } else if (splitTypes.size() > n && splitTypes.get(n).asInt() == 1) {
+                // XGBoost sends the listed categories right; stored with the children swapped,
+                // so missing values go to the other side from the flag as well
+                int[] set = categories[n] == null ? new int[0] : bitset(categories[n]);
+                refs[n] = builder.categoricalSplit(features.get(n).asInt(), set, !defaultLeft.get(n).asBoolean());
+            } else {
+                refs[n] = builder.numericSplit(features.get(n).asInt(), (float) conditions.get(n).asDouble(),
+                        defaultLeft.get(n).asBoolean(), TreeEnsemble.Missing.NAN);
+            }
+        }
+        for (int n = 0; n < size; n++) {
+            if (refs[n] >= 0) {
+                int left = refs[lefts.get(n).asInt()];
+                int right = refs[rights.get(n).asInt()];
+                boolean swapped = splitTypes.size() > n && splitTypes.get(n).asInt() == 1;
+                builder.children(refs[n], swapped ? right : left, swapped ? left : right);
+            }
+        }
+        return refs[0];
+    }
+
+    /** Per node, the categories of its categorical split, or {@code null}. */
+    private static int[][] categories(JsonNode tree, int size) {
+        int[][] byNode = new int[size][];
+        JsonNode values = tree.path("categories");
+        JsonNode nodes = tree.path("categories_nodes");
+        JsonNode segments = tree.path("categories_segments");
+        JsonNode sizes = tree.path("categories_sizes");
+        for (int i = 0; i < nodes.size(); i++) {
+            int start = segments.get(i).asInt();
+            int[] cats = new int[sizes.get(i).asInt()];
+            for (int c = 0; c < cats.length; c++) {
+                cats[c] = values.get(start + c).asInt();
+            }
+            byNode[nodes.get(i).asInt()] = cats;
+        }
+        return byNode;
+    }
+
+    private static int[] bitset(int[] categories) {
+        int max = -1;
+        for (int c : categories) {
+            max = Math.max(max, c);
+        }
+        int[] words = new int[max / 32 + 1];
+        for (int c : categories) {
+            words[c >>> 5] |= 1 << (c & 31);
+        }
+        return words;
+    }
+}
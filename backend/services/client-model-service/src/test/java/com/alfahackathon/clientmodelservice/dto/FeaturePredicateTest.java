@@ -0,0 +1,37 @@
+package com.alfahackathon.clientmodelservice.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeaturePredicateTest {
+
+    @Test
+    void parsesNameOperatorAndValue() {
+        FeaturePredicate p = FeaturePredicate.valueOf("turn_cur_cr_avg_act_v2:GTE:1000.5");
+
+        assertEquals("turn_cur_cr_avg_act_v2", p.name());
+        assertEquals(FeaturePredicate.Op.GTE, p.op());
+        assertEquals(new BigDecimal("1000.5"), p.number());
+    }
+
+    @Test
+    void keepsColonsInTextValues() {
+        FeaturePredicate p = FeaturePredicate.valueOf("segment:eq:a:b");
+
+        assertEquals("a:b", p.value());
+        assertNull(p.number());
+    }
+
+    @Test
+    void rejectsMalformedFilters() {
+        assertThrows(IllegalArgumentException.class, () -> FeaturePredicate.valueOf("feature_0:gt"));
+        assertThrows(IllegalArgumentException.class, () -> FeaturePredicate.valueOf("feature_0:like:1"));
+        assertThrows(IllegalArgumentException.class, () -> FeaturePredicate.valueOf(":eq:1"));
+        assertThrows(IllegalArgumentException.class, () -> FeaturePredicate.valueOf("feature_0:lt:abc"));
+    }
+}
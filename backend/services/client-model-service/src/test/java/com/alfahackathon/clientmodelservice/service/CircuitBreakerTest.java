@@ -0,0 +1,207 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.config.MlServiceProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAtTheThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 3, Duration.ofMinutes(1));
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 2, Duration.ofMinutes(1));
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void letsExactlyOneTrialThroughWhenHalfOpen() {
+        CircuitBreaker breaker = opened();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedTrialOpensAgain() {
+        CircuitBreaker breaker = opened();
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void ignoredTrialFreesTheSlot() {
+        CircuitBreaker breaker = opened();
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onIgnored();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void disabledNeverRejects() {
+        CircuitBreaker breaker = new CircuitBreaker(false, 1, Duration.ofMinutes(1));
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void clientErrorsCountAsSuccessAtTheTransport() throws IOException {
+        AtomicInteger served = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/predict", exchange -> {
+            served.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.createContext("/shap", exchange -> {
+            served.incrementAndGet();
+            exchange.sendResponseHeaders(422, -1);
+            exchange.close();
+        });
+        server.start();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        String base = "http://localhost:" + server.getAddress().getPort();
+        MlTransport transport = new MlTransport(properties(base), executor, new SimpleMeterRegistry());
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertThrows(HttpServerErrorException.class,
+                        () -> transport.post(MlTransport.Endpoint.PREDICT, Map.of(), String.class));
+                assertThrows(HttpClientErrorException.class,
+                        () -> transport.post(MlTransport.Endpoint.SHAP, Map.of(), String.class));
+            }
+            assertEquals(10, served.get());
+
+            for (int i = 0; i < 2; i++) {
+                assertThrows(HttpServerErrorException.class,
+                        () -> transport.post(MlTransport.Endpoint.PREDICT, Map.of(), String.class));
+            }
+            ResponseStatusException open = assertThrows(ResponseStatusException.class,
+                    () -> transport.post(MlTransport.Endpoint.SHAP, Map.of(), String.class));
+            assertEquals(502, open.getStatusCode().value());
+            assertEquals(12, served.get());
+        } finally {
+            transport.close();
+            executor.shutdown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void trialFailingOutsideTheCallFreesTheSlot() throws IOException {
+        AtomicInteger served = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/predict", exchange -> {
+            served.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.start();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        String base = "http://localhost:" + server.getAddress().getPort();
+        MlTransport transport = new MlTransport(properties(base, "0ms"), executor, new SimpleMeterRegistry());
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertThrows(HttpServerErrorException.class,
+                        () -> transport.post(MlTransport.Endpoint.PREDICT, Map.of(), String.class));
+            }
+
+            RuntimeException unwritable = assertThrows(RuntimeException.class,
+                    () -> transport.post(MlTransport.Endpoint.PREDICT, new Unwritable(), String.class));
+            assertFalse(unwritable instanceof RestClientException);
+
+            assertThrows(HttpServerErrorException.class,
+                    () -> transport.post(MlTransport.Endpoint.PREDICT, Map.of(), String.class));
+            assertEquals(3, served.get());
+        } finally {
+            transport.close();
+            executor.shutdown();
+            server.stop(0);
+        }
+    }
+
+    /** A request body that cannot be serialized, so the call fails before it is sent. */
+    static class Unwritable {
+
+        public String getValue() {
+            throw new IllegalStateException("not serializable");
+        }
+    }
+
+    /** Opened with no wait, so the next call is the half-open trial. */
+    private static CircuitBreaker opened() {
+        CircuitBreaker breaker = new CircuitBreaker(true, 1, Duration.ZERO);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        return breaker;
+    }
+
+    private static MlServiceProperties properties(String base) {
+        return properties(base, "1m");
+    }
+
+    private static MlServiceProperties properties(String base, String openDuration) {
+        Map<String, String> values = Map.of(
+                "ml.service.url", base + "/predict",
+                "ml.service.shap-url", base + "/shap",
+                "ml.service.circuit.failure-threshold", "2",
+                "ml.service.circuit.open-duration", openDuration,
+                "ml.service.bulkhead.adaptive", "false"
+        );
+        return new Binder(new MapConfigurationPropertySource(values))
+                .bindOrCreate("ml.service", MlServiceProperties.class);
+    }
+}
@@ -0,0 +1,27 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClientExportServiceTest {
+
+    @Test
+    void csvFieldsAreQuotedOnlyWhenNeeded() {
+        assertEquals("Москва", ClientExportService.csvField("Москва"));
+        assertEquals("a;b", ClientExportService.csvField("a;b"));
+        assertEquals("\"1,2\"", ClientExportService.csvField("1,2"));
+        assertEquals("\"say \"\"hi\"\"\"", ClientExportService.csvField("say \"hi\""));
+        assertEquals("\"two\nlines\"", ClientExportService.csvField("two\nlines"));
+        assertEquals("\"cr\r\"", ClientExportService.csvField("cr\r"));
+        assertEquals("", ClientExportService.csvField(""));
+    }
+
+    @Test
+    void formatIsParsedCaseInsensitively() {
+        assertEquals(ClientExportService.Format.CSV, ClientExportService.Format.parse("CSV"));
+        assertEquals(ClientExportService.Format.NDJSON, ClientExportService.Format.parse("ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> ClientExportService.Format.parse("xml"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientResponseCacheTest {
+
+    private final ClientDataVersion version = new ClientDataVersion();
+    private final ClientResponseCache cache = new ClientResponseCache(version, new ObjectMapper(), true,
+            DataSize.ofMegabytes(1), DataSize.ofBytes(64), new SimpleMeterRegistry());
+
+    @Test
+    void servesCachedBytesUntilTheVersionMoves() {
+        AtomicInteger builds = new AtomicInteger();
+        Map<String, Object> body = Map.of("id", 7);
+
+        ClientResponseCache.Response first = cache.get("/api/client/7", false, false, () -> {
+            builds.incrementAndGet();
+            return body;
+        });
+        ClientResponseCache.Response second = cache.get("/api/client/7", false, false, () -> {
+            builds.incrementAndGet();
+            return body;
+        });
+        assertEquals(1, builds.get());
+        assertArrayEquals("{\"id\":7}".getBytes(), second.body());
+        assertEquals(first.etag(), second.etag());
+        assertEquals(first.etag(), cache.matchingEtag(first.etag(), false));
+
+        version.scoresChanged();
+        assertEquals(first.etag(), cache.matchingEtag(first.etag(), false));
+        assertNull(cache.matchingEtag(first.etag(), true));
+
+        version.contentChanged();
+        assertNull(cache.matchingEtag(first.etag(), false));
+        ClientResponseCache.Response rebuilt = cache.get("/api/client/7", false, false, () -> {
+            builds.incrementAndGet();
+            return body;
+        });
+        assertEquals(2, builds.get());
+        assertNotEquals(first.etag(), rebuilt.etag());
+    }
+
+    @Test
+    void gzipsOnlyBodiesWorthIt() throws IOException {
+        ClientResponseCache.Response small = cache.get("small", false, true, () -> Map.of("id", 1));
+        assertFalse(small.gzipped());
+
+        List<Integer> big = IntStream.range(0, 100).boxed().toList();
+        ClientResponseCache.Response plain = cache.get("big", false, false, () -> big);
+        ClientResponseCache.Response gzipped = cache.get("big", false, true, () -> big);
+        assertTrue(gzipped.gzipped());
+        assertNotEquals(plain.etag(), gzipped.etag());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+            assertArrayEquals(plain.body(), in.readAllBytes());
+        }
+        assertEquals(gzipped.etag(), cache.matchingEtag("\"other\", W/" + gzipped.etag(), false));
+    }
+
+    @Test
+    void readsAcceptEncoding() {
+        assertTrue(ClientResponseCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ClientResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(ClientResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ClientResponseCache.acceptsGzip("identity"));
+        assertFalse(ClientResponseCache.acceptsGzip(null));
+    }
+}
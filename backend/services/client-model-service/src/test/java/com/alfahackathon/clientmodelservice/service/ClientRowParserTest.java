@@ -0,0 +1,131 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.service.ClientRowParser.ColumnType;
+import com.alfahackathon.clientmodelservice.util.FeatureVectorCodec;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ClientRowParserTest {
+
+    private static final String[] HEADER = {
+            "id", "dt", "age", "gender", "adminarea", "incomeValue", "incomeValueCategory",
+            "turn_cur_cr_avg_act_v2", "hdb_bki_total_cnt", "city_smart_name"
+    };
+
+    private static final List<String> CELLS = List.of(
+            "0", "-0", "42", "-17", "007", "3.5", "3,5", "-0,25", " 12 ", "1.", ".5", "-", "+5",
+            "1e5", "abc", "Москва", "NaN", "9223372036854775807", "-9223372036854775808",
+            "9223372036854775808", "-9223372036854775809", "12345678901234567890.5", "1,2,3", "1.2.3"
+    );
+
+    @Test
+    void everyColumnTypeMatchesLegacyRegexClassification() {
+        for (String cell : CELLS) {
+            String val = cell.trim();
+            Object expected = legacyParse(val);
+            for (ColumnType type : ColumnType.values()) {
+                assertEquals(expected, ClientRowParser.parseFeature(type, val), type + " / '" + cell + "'");
+            }
+        }
+    }
+
+    @Test
+    void infersColumnTypesFromSample() {
+        List<String[]> sample = List.of(
+                row("1", "12,5", "3", "Москва"),
+                row("2", "7", "", "Казань")
+        );
+        ClientRowParser parser = ClientRowParser.infer(HEADER, sample, FeatureDictionary.empty());
+
+        assertEquals(ColumnType.DECIMAL, parser.typeOf("turn_cur_cr_avg_act_v2"));
+        assertEquals(ColumnType.INTEGER, parser.typeOf("hdb_bki_total_cnt"));
+        assertEquals(ColumnType.TEXT, parser.typeOf("city_smart_name"));
+    }
+
+    @Test
+    void keepsSkipRulesAndTypedFields() {
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+        ClientRowParser parser = ClientRowParser.infer(HEADER, List.<String[]>of(row("1", "1.5", "2", "x")), dictionary);
+
+        assertNull(parser.parse(new String[]{"1", "2024-01-01"}));
+        assertNull(parser.parse(row(" ", "1.5", "2", "x")));
+
+        Client e = parser.parse(row("5", "1,5", "oops", ""));
+        assertEquals(5L, e.getId());
+        assertEquals(41, e.getAge());
+        assertEquals(new BigDecimal("85000.50"), e.getIncomeValue());
+
+        Map<String, Object> features = FeatureVectorCodec.decode(e.getFeatureVector()).toMap(dictionary);
+        assertEquals(Map.of("turn_cur_cr_avg_act_v2", 1.5, "hdb_bki_total_cnt", "oops"), features);
+    }
+
+    @Test
+    void contentHashFollowsNamedCellsOnly() {
+        List<String[]> sample = List.<String[]>of(row("1", "1.5", "2", "x"));
+        ClientRowParser parser = ClientRowParser.infer(HEADER, sample, FeatureDictionary.empty());
+        long hash = parser.contentHash(row("1", "1.5", "2", "Москва"));
+
+        assertEquals(hash, parser.contentHash(row("2", "1.5", "2", "Москва")));
+        assertEquals(hash, parser.contentHash(row("1", " 1.5 ", "2", "Москва")));
+        assertNotEquals(hash, parser.contentHash(row("1", "1.50", "2", "Москва")));
+        assertNotEquals(hash, parser.contentHash(row("1", "2", "1.5", "Москва")));
+        assertNotEquals(hash, parser.contentHash(row("1", "1.5", "2", "")));
+
+        String[] reordered = HEADER.clone();
+        reordered[7] = HEADER[8];
+        reordered[8] = HEADER[7];
+        ClientRowParser reorderedParser = ClientRowParser.infer(reordered, sample, FeatureDictionary.empty());
+        assertEquals(hash, reorderedParser.contentHash(row("1", "2", "1.5", "Москва")));
+
+        String[] widened = Arrays.copyOf(HEADER, HEADER.length + 1);
+        widened[HEADER.length] = "new_feature";
+        ClientRowParser widenedParser = ClientRowParser.infer(widened, sample, FeatureDictionary.empty());
+        String[] row = Arrays.copyOf(row("1", "1.5", "2", "Москва"), widened.length);
+        row[HEADER.length] = "";
+        assertEquals(hash, widenedParser.contentHash(row));
+    }
+
+    @Test
+    void blockKeepsHashesAlignedWithParsedClients() {
+        ClientRowParser parser = ClientRowParser.infer(HEADER, List.<String[]>of(row("1", "1.5", "2", "x")), FeatureDictionary.empty());
+        String[] first = row("1", "1.5", "2", "x");
+        String[] last = row("3", "2.5", "4", "y");
+
+        ClientRowParser.Block block = parser.parseBlock(List.of(first, row("", "1", "1", "z"), last));
+
+        assertEquals(List.of(1L, 3L), block.clients().stream().map(Client::getId).toList());
+        assertArrayEquals(new long[]{parser.contentHash(first), parser.contentHash(last)}, block.hashes());
+    }
+
+    private static String[] row(String id, String turnover, String count, String city) {
+        return new String[]{id, "2024-01-01", "41,0", "M", "Москва", "85000,50", "high", turnover, count, city};
+    }
+
+    private static Object legacyParse(String val) {
+        String norm = ClientRowParser.normalizeNumber(val);
+        Object valueObj = norm;
+        try {
+            if (norm.matches("^-?\\d+(\\.\\d+)?$")) {
+                if (norm.contains(".")) {
+                    valueObj = Double.parseDouble(norm);
+                } else {
+                    valueObj = Long.parseLong(norm);
+                }
+            }
+        } catch (NumberFormatException ignore) {
+            valueObj = val;
+        }
+        return valueObj;
+    }
+}
@@ -0,0 +1,82 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void fixedLimitRefusesOnceFull() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(false, 1, 1, 2, 0.5, 2.0, 1);
+        assertTrue(limiter.acquire(0));
+        assertTrue(limiter.acquire(0));
+        assertFalse(limiter.acquire(MS));
+
+        long now = System.nanoTime();
+        limiter.release(0, now, now, true);
+        assertEquals(2, limiter.limit());
+        assertTrue(limiter.acquire(0));
+    }
+
+    @Test
+    void growsWhileUsedAndCutsOncePerRoundTrip() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 2, 4, 8, 0.5, 2.0, 1);
+        long t = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            fill(limiter);
+            while (limiter.inFlight() > 0) {
+                limiter.release(0, t, t + 10 * MS, false);
+            }
+            t += 10 * MS;
+        }
+        assertEquals(8, limiter.limit());
+
+        long started = t;
+        fill(limiter);
+        limiter.release(0, started, t + 10 * MS, true);
+        assertEquals(4, limiter.limit());
+        limiter.release(0, started, t + 11 * MS, true);
+        assertEquals(4, limiter.limit());
+
+        limiter.release(0, t + 12 * MS, t + 20 * MS, true);
+        limiter.release(0, t + 21 * MS, t + 30 * MS, true);
+        limiter.release(0, t + 31 * MS, t + 40 * MS, true);
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    void cutsWhenRecentLatencyLeavesTheUsual() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 1, 8, 8, 0.5, 2.0, 2);
+        long t = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.acquire(0));
+            limiter.release(0, t, t + 10 * MS, false);
+            t += 10 * MS;
+        }
+        assertEquals(8, limiter.limit());
+
+        assertTrue(limiter.acquire(0));
+        limiter.release(1, t, t + 500 * MS, false);
+        assertEquals(8, limiter.limit(), "another endpoint's latency is its own");
+
+        for (int i = 0; i < 10 && limiter.limit() == 8; i++) {
+            assertTrue(limiter.acquire(0));
+            limiter.release(0, t, t + 100 * MS, false);
+            t += 100 * MS;
+        }
+        assertEquals(4, limiter.limit());
+    }
+
+    private static void fill(ConcurrencyLimiter limiter) throws InterruptedException {
+        while (limiter.acquire(0)) {
+            // take every slot
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalTreeScorerTest {
+
+    /** Expected values from {@code score_response} in {@code ml_service.py}. */
+    @Test
+    void scoreResponseMatchesTheMlService() {
+        assertScore(0.0, "REJECT", 0.0);
+        assertScore(0.5, "REJECT", 36315.502674246636);
+        assertScore(0.6, "REJECT", 44474.45);
+        assertScore(0.6056, "APPROVE", 45000);
+        assertScore(0.6632, "APPROVE", 50964.73026768946);
+        assertScore(1.0, "APPROVE", 1e7);
+    }
+
+    private static void assertScore(double probability, String decision, double salary) {
+        Map<String, Object> response = LocalTreeScorer.scoreResponse(salary);
+        assertEquals(probability, response.get("approvalProbability"), "salary " + salary);
+        assertEquals(decision, response.get("decision"), "salary " + salary);
+    }
+}
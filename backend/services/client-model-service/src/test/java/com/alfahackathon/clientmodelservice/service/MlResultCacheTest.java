@@ -0,0 +1,48 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.dto.MlCacheStatsDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MlResultCacheTest {
+
+    private final MlResultCache cache = new MlResultCache(true, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void changedPayloadCountsAsMiss() {
+        predict(1, 10);
+        predict(1, 10);
+        predict(1, 11);
+
+        MlCacheStatsDto stats = cache.stats().get("predict");
+        assertEquals(2, loads.get());
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+    }
+
+    @Test
+    void invalidationDropsEveryPayloadOfTheClient() {
+        predict(1, 10);
+        predict(1, 11);
+        predict(2, 10);
+
+        cache.invalidateAll(List.of(1L));
+        predict(1, 10);
+        predict(1, 11);
+        predict(2, 10);
+
+        assertEquals(5, loads.get());
+    }
+
+    private void predict(long clientId, int payloadHash) {
+        cache.prediction(clientId, payloadHash, () -> Map.of("n", loads.incrementAndGet()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PredictCoalescerTest {
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void fullBatchIsSentBeforeTheWindowEnds() throws Exception {
+        try (PredictCoalescer coalescer = new PredictCoalescer(echo(), Duration.ofMinutes(1), 3)) {
+            List<CompletableFuture<Map<String, Object>>> results = submit(coalescer, 7);
+
+            for (int i = 0; i < 6; i++) {
+                results.get(i).get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(Set.of(List.of("0", "1", "2"), List.of("3", "4", "5")), Set.copyOf(batches));
+            assertFalse(results.get(6).isDone());
+        }
+    }
+
+    @Test
+    void windowClosesAPartialBatch() throws Exception {
+        try (PredictCoalescer coalescer = new PredictCoalescer(echo(), Duration.ofMillis(50), 100)) {
+            List<CompletableFuture<Map<String, Object>>> results = submit(coalescer, 2);
+
+            for (CompletableFuture<Map<String, Object>> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(List.of(List.of("0", "1")), batches);
+        }
+    }
+
+    @Test
+    void resultsGoBackToTheirCallers() throws Exception {
+        try (PredictCoalescer coalescer = new PredictCoalescer(echo(), Duration.ofMillis(20), 4)) {
+            List<CompletableFuture<Map<String, Object>>> results = submit(coalescer, 10);
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(Map.of("row", String.valueOf(i)), results.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(10, batches.stream().mapToInt(List::size).sum());
+        }
+    }
+
+    @Test
+    void failedBatchFailsEveryCall() throws Exception {
+        IllegalStateException failure = new IllegalStateException("down");
+        try (PredictCoalescer coalescer = new PredictCoalescer(rows -> {
+            throw failure;
+        }, Duration.ofMillis(50), 3)) {
+            for (CompletableFuture<Map<String, Object>> result : submit(coalescer, 3)) {
+                ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertEquals(failure, ex.getCause());
+            }
+        }
+    }
+
+    @Test
+    void shortResultListFailsEveryCall() throws Exception {
+        Function<List<FeaturePayload>, List<Map<String, Object>>> shortAnswer =
+                rows -> echo().apply(rows).subList(0, rows.size() - 1);
+        try (PredictCoalescer coalescer = new PredictCoalescer(shortAnswer, Duration.ofMinutes(1), 3)) {
+            for (CompletableFuture<Map<String, Object>> result : submit(coalescer, 3)) {
+                ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, ex.getCause());
+            }
+        }
+    }
+
+    /** Answers each row with its own id and records the ids of every batch sent. */
+    private Function<List<FeaturePayload>, List<Map<String, Object>>> echo() {
+        return rows -> {
+            List<String> ids = rows.stream().map(row -> new String(row.json(), StandardCharsets.UTF_8)).toList();
+            batches.add(ids);
+            return ids.stream().<Map<String, Object>>map(id -> Map.of("row", id)).toList();
+        };
+    }
+
+    private static List<CompletableFuture<Map<String, Object>>> submit(PredictCoalescer coalescer, int count) {
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(coalescer.submit(FeaturePayload.of(String.valueOf(i).getBytes(StandardCharsets.UTF_8))));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,90 @@
+package com.alfahackathon.clientmodelservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        AtomicInteger shared = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight<String, String> flight = new SingleFlight<>(shared::incrementAndGet);
+        CountDownLatch release = new CountDownLatch(1);
+
+        AtomicReference<String> leaderResult = new AtomicReference<>();
+        Thread leader = Thread.ofPlatform().start(() -> leaderResult.set(flight.run("k", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "v";
+        })));
+        awaitBlocked(leader);
+
+        AtomicReference<String> followerResult = new AtomicReference<>();
+        Thread follower = Thread.ofPlatform().start(() -> followerResult.set(flight.run("k", () -> {
+            calls.incrementAndGet();
+            return "other";
+        })));
+        awaitBlocked(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+        assertEquals("v", leaderResult.get());
+        assertSame(leaderResult.get(), followerResult.get());
+        assertEquals(1, calls.get());
+        assertEquals(1, shared.get());
+
+        assertEquals("again", flight.run("k", () -> "again"));
+    }
+
+    @Test
+    void followersGetTheLeadersException() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(() -> { });
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("down");
+
+        Thread leader = Thread.ofPlatform().start(() -> assertThrows(IllegalStateException.class,
+                () -> flight.run("k", () -> {
+                    await(release);
+                    throw failure;
+                })));
+        awaitBlocked(leader);
+
+        AtomicReference<Throwable> seen = new AtomicReference<>();
+        Thread follower = Thread.ofPlatform().start(() -> {
+            try {
+                flight.run("k", () -> "unused");
+            } catch (RuntimeException ex) {
+                seen.set(ex);
+            }
+        });
+        awaitBlocked(follower);
+
+        release.countDown();
+        leader.join();
+        follower.join();
+        assertSame(failure, seen.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FeaturePayloadWriterTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String FEATURES_JSON = """
+            {"turn_cur_cr_avg_act_v2": 1.5, "hdb_bki_total_cnt": 3, "city_smart_name": "Москва",
+             "negative": -17, "big": 9007199254740993, "long": 3000000000, "tiny": 1.0E-300,
+             "quoted": "say \\"hi\\"", "flag": "Y"}
+            """;
+
+    @Test
+    void singleBodyMatchesLegacyMapBody() {
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+        Map<String, Object> cells = OBJECT_MAPPER.readValue(FEATURES_JSON, new TypeReference<>() {});
+        FeatureVector vector = FeatureVector.fromMap(cells, dictionary);
+
+        Client full = client(34, "F", "Татарстан", new BigDecimal("123456.78"), "mid", "Казань");
+        Client empty = client(null, null, null, null, null, null);
+        for (Client e : List.of(full, empty)) {
+            FeaturePayload payload = FeaturePayloadWriter.write(e, vector, dictionary);
+
+            assertEquals(tree(Map.of("features", legacyFeatures(e, vector.toMap(dictionary)))),
+                    OBJECT_MAPPER.readTree(FeaturePayloadWriter.single(payload)));
+        }
+    }
+
+    @Test
+    void rowsBodyJoinsPayloads() {
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+        FeatureVector a = FeatureVector.fromMap(Map.of("x", 1), dictionary);
+        FeatureVector b = FeatureVector.fromMap(Map.of("y", "z"), dictionary);
+        Client e = client(20, "M", "Москва", BigDecimal.TEN, "low", "Москва");
+
+        FeaturePayload pa = FeaturePayloadWriter.write(e, a, dictionary);
+        FeaturePayload pb = FeaturePayloadWriter.write(e, b, dictionary);
+
+        assertEquals(tree(Map.of("rows", List.of())), OBJECT_MAPPER.readTree(FeaturePayloadWriter.rows(List.of())));
+        assertEquals(
+                tree(Map.of("rows", List.of(legacyFeatures(e, a.toMap(dictionary)), legacyFeatures(e, b.toMap(dictionary))))),
+                OBJECT_MAPPER.readTree(FeaturePayloadWriter.rows(List.of(pa, pb)))
+        );
+    }
+
+    /** The feature map the ML request used to be serialized from. */
+    private static Map<String, Object> legacyFeatures(Client e, Map<String, Object> extra) {
+        Map<String, Object> features = new HashMap<>();
+        features.put("age", e.getAge());
+        features.put("gender", e.getGender());
+        features.put("adminarea", e.getAdminarea());
+        features.put("incomeValue", e.getIncomeValue());
+        features.put("incomeValueCategory", e.getIncomeCategory());
+        features.put("city_smart_name", e.getCitySmartName());
+        features.putAll(extra);
+        return features;
+    }
+
+    private static JsonNode tree(Object value) {
+        return OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsBytes(value));
+    }
+
+    private static Client client(Integer age, String gender, String adminarea, BigDecimal income,
+                                 String incomeCategory, String city) {
+        Client e = new Client();
+        e.setId(1L);
+        e.setAge(age);
+        e.setGender(gender);
+        e.setAdminarea(adminarea);
+        e.setIncomeValue(income);
+        e.setIncomeCategory(incomeCategory);
+        e.setCitySmartName(city);
+        return e;
+    }
+}
@@ -0,0 +1,56 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureVectorCodecTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String LEGACY_JSON = """
+            {"turn_cur_cr_avg_act_v2": 1.5, "hdb_bki_total_cnt": 3, "city_smart_name": "Москва",
+             "negative": -17, "zero": 0, "big": 9007199254740993, "long": 3000000000,
+             "min": -9223372036854775808, "tiny": 1.0E-300, "text_number": "9223372036854775808",
+             "flag": "Y"}
+            """;
+
+    @Test
+    void roundTripMatchesLegacyJsonParse() {
+        Map<String, Object> legacy = OBJECT_MAPPER.readValue(LEGACY_JSON, new TypeReference<>() {});
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+
+        byte[] bytes = FeatureVectorCodec.encode(FeatureVector.fromMap(legacy, dictionary));
+        Map<String, Object> decoded = FeatureVectorCodec.decode(bytes).toMap(dictionary);
+
+        assertEquals(legacy, decoded);
+        assertTrue(bytes.length < LEGACY_JSON.length() / 2, "encoded size " + bytes.length);
+    }
+
+    @Test
+    void sharedDictionaryReusesCodes() {
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+        FeatureVector a = FeatureVector.fromMap(Map.of("city", "Казань"), dictionary);
+        FeatureVector b = FeatureVector.fromMap(Map.of("city", "Казань", "age_bucket", "30-40"), dictionary);
+
+        assertEquals(2, dictionary.columnCount());
+        assertEquals(a.value(0), b.value(b.indexOf(dictionary.findColumn("city"))));
+        assertEquals(List.of("city", "age_bucket"), dictionary.pendingColumns());
+    }
+
+    @Test
+    void emptyBytesDecodeToEmptyVector() {
+        assertEquals(0, FeatureVectorCodec.decode(null).size());
+        assertEquals(0, FeatureVectorCodec.decode(new byte[0]).size());
+        assertEquals(Map.of(), FeatureVectorCodec.decode(
+                FeatureVectorCodec.encode(FeatureVector.empty())).toMap(FeatureDictionary.empty()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongIndexTest {
+
+    @Test
+    void matchesHashMapForRandomAndEdgeKeys() {
+        Random random = new Random(42);
+        Map<Long, Integer> expected = new HashMap<>();
+        LongIndex index = new LongIndex(10_000);
+
+        long[] edges = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, -(1L << 32)};
+        for (long key : edges) {
+            expected.put(key, expected.size());
+            index.put(key, expected.get(key));
+        }
+        while (expected.size() < 10_000) {
+            long key = random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(50_000) * 1024L;
+            if (!expected.containsKey(key)) {
+                expected.put(key, expected.size());
+                index.put(key, expected.get(key));
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        expected.forEach((key, slot) -> assertEquals(slot, index.get(key), "key " + key));
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            assertEquals(expected.getOrDefault(key, -1), index.get(key));
+        }
+    }
+
+    @Test
+    void overwritesAndRejectsOverflow() {
+        LongIndex index = new LongIndex(2);
+        index.put(7, 1);
+        index.put(7, 3);
+        assertEquals(3, index.get(7));
+        assertEquals(1, index.size());
+
+        for (int i = 0; i < 11; i++) {
+            index.put(100 + i, i);
+        }
+        assertThrows(IllegalStateException.class, () -> index.put(1_000, 0));
+    }
+}
@@ -0,0 +1,80 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.Client;
+import com.alfahackathon.clientmodelservice.model.FeatureDictionary;
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.FeatureVector;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Expected values are what {@code build_row} in ml_service.py produces for the same inputs.
+ */
+class PositionalPayloadWriterTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void coercesCategoricalValuesLikePythonStr() {
+        assertEquals("", PositionalPayloadWriter.categorical(null));
+        assertEquals("", PositionalPayloadWriter.categorical("NaN"));
+        assertEquals("12", PositionalPayloadWriter.categorical("12.0"));
+        assertEquals("12", PositionalPayloadWriter.categorical(12L));
+        assertEquals("12", PositionalPayloadWriter.categorical(12.0));
+        assertEquals("0.5", PositionalPayloadWriter.categorical(0.5));
+        assertEquals("1e-05", PositionalPayloadWriter.categorical(0.00001));
+        assertEquals("1.5e+16", PositionalPayloadWriter.categorical(1.5e16));
+        assertEquals("1234567890123456", PositionalPayloadWriter.categorical(1234567890123456.0));
+    }
+
+    @Test
+    void coercesNumericValuesLikePythonFloat() {
+        assertEquals(0.0, PositionalPayloadWriter.numeric(null));
+        assertEquals(0.0, PositionalPayloadWriter.numeric(" nan "));
+        assertEquals(0.0, PositionalPayloadWriter.numeric("abc"));
+        assertEquals(0.0, PositionalPayloadWriter.numeric("0x10"));
+        assertEquals(0.0, PositionalPayloadWriter.numeric(Double.NaN));
+        assertEquals(1.5, PositionalPayloadWriter.numeric("1,5"));
+        assertEquals(1000.0, PositionalPayloadWriter.numeric("1_000"));
+        assertEquals(0.5, PositionalPayloadWriter.numeric(".5"));
+        assertEquals(Double.POSITIVE_INFINITY, PositionalPayloadWriter.numeric("Infinity"));
+        assertEquals(Double.NaN, PositionalPayloadWriter.numeric("-nan"));
+        assertEquals(7.0, PositionalPayloadWriter.numeric(7L));
+    }
+
+    @Test
+    void writesValuesInSchemaOrderFromCellsThenTypedFields() {
+        FeatureDictionary dictionary = FeatureDictionary.empty();
+        Map<String, Object> cells = new LinkedHashMap<>();
+        cells.put("score", 1.25);
+        cells.put("segment", 3);
+        cells.put("city_smart_name", "Казань");
+        FeatureVector vector = FeatureVector.fromMap(cells, dictionary);
+        Client e = new Client();
+        e.setAge(34);
+        e.setGender("F");
+        e.setCitySmartName("Москва");
+        e.setIncomeValue(new BigDecimal("50000"));
+
+        MlSchema schema = new MlSchema("v1",
+                List.of("segment", "city_smart_name", "age", "gender", "incomeValue", "absent", "absent_cat", "score"),
+                new boolean[]{true, true, false, true, false, false, true, false});
+        FeaturePayload payload = PositionalPayloadWriter.write(e, vector, dictionary,
+                PositionalPayloadWriter.Layout.of(schema, dictionary), () -> null);
+
+        assertEquals(OBJECT_MAPPER.readTree("[\"3\",\"Казань\",34.0,\"F\",50000.0,0.0,\"\",1.25]"),
+                OBJECT_MAPPER.readTree(payload.json()));
+        assertEquals(OBJECT_MAPPER.readTree("{\"version\":\"v1\",\"values\":" + new String(payload.json()) + "}"),
+                OBJECT_MAPPER.readTree(PositionalPayloadWriter.single(payload)));
+        assertEquals(OBJECT_MAPPER.readTree("{\"version\":\"v1\",\"rows\":[" + new String(payload.json()) + "]}"),
+                OBJECT_MAPPER.readTree(PositionalPayloadWriter.rows("v1", List.of(payload))));
+    }
+}
@@ -0,0 +1,45 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.dto.ClientSort;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScrollCursorTest {
+
+    @Test
+    void roundTripsKeysIncludingNull() {
+        for (ScrollCursor cursor : new ScrollCursor[]{
+                new ScrollCursor(ClientSort.ID, false, null, 42),
+                new ScrollCursor(ClientSort.AGE, true, "35", -7),
+                new ScrollCursor(ClientSort.INCOME, false, "85000.50", Long.MAX_VALUE),
+                new ScrollCursor(ClientSort.PROBABILITY, true, null, Long.MIN_VALUE)
+        }) {
+            assertEquals(cursor, ScrollCursor.decode(cursor.encode()));
+        }
+    }
+
+    @Test
+    void decodesIdOnlyVersionOneTokens() {
+        byte[] v1 = ByteBuffer.allocate(9).put((byte) 1).putLong(20).array();
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(v1);
+
+        assertEquals(new ScrollCursor(ClientSort.ID, false, null, 20), ScrollCursor.decode(token));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> ScrollCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> ScrollCursor.decode(encode("2:AGE:a:abc:1")));
+        assertThrows(IllegalArgumentException.class, () -> ScrollCursor.decode(encode("2:NAME:a:x:1")));
+        assertThrows(IllegalArgumentException.class, () -> ScrollCursor.decode(encode("3:ID:a:~:1")));
+    }
+
+    private static String encode(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes());
+    }
+}
@@ -0,0 +1,156 @@
+package com.alfahackathon.clientmodelservice.util;
+
+import com.alfahackathon.clientmodelservice.model.FeaturePayload;
+import com.alfahackathon.clientmodelservice.model.MlSchema;
+import com.alfahackathon.clientmodelservice.model.TreeEnsemble;
+import com.opencsv.CSVReader;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exported models against the predictions made for the rows of the matching
+ * {@code -reference.csv}: the feature values as the ML service's {@code build_row} gets them
+ * (an empty cell is an absent feature) and the raw prediction.
+ * <p>
+ * {@code tree-models/generated/} is written by XGBoost and LightGBM themselves, through
+ * {@code export_tree_models.py --toy}, which the tree-model-parity workflow runs before this
+ * test; without those files the library tests fail. The small models directly under
+ * {@code tree-models/} are written by hand, with predictions worked out from their trees, and
+ * pin down the parts of either format the readers depend on.
+ */
+class TreeModelParityTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String GENERATED = "generated/";
+
+    @Test
+    void xgboostMatchesLibraryPredictions() throws IOException {
+        requireGenerated();
+        assertMatchesReference(xgboost(GENERATED, 0), GENERATED + "xgboost-reference.csv");
+    }
+
+    @Test
+    void lightGbmMatchesLibraryPredictions() throws IOException {
+        requireGenerated();
+        assertMatchesReference(lightGbm(GENERATED), GENERATED + "lightgbm-reference.csv");
+    }
+
+    @Test
+    void xgboostReadsHandWrittenModel() throws IOException {
+        TreeEnsemble model = xgboost(0);
+
+        assertEquals(2, model.treeCount());
+        assertMatchesReference(model, "xgboost-reference.csv");
+    }
+
+    @Test
+    void lightGbmReadsHandWrittenModel() throws IOException {
+        assertMatchesReference(lightGbm(), "lightgbm-reference.csv");
+    }
+
+    @Test
+    void xgboostSendsListedCategoriesRight() throws IOException {
+        TreeEnsemble model = xgboost(0);
+
+        assertEquals(10.4, model.predict(new double[]{25, 40000, 0, 0}), 1e-6);
+        assertEquals(9.7, model.predict(new double[]{25, 40000, 1, 0}), 1e-6);
+        assertEquals(9.7, model.predict(new double[]{25, 40000, Double.NaN, 0}), 1e-6);
+        assertEquals(110.4, xgboost(3).predict(new double[]{25, 40000, 0, 0}), 1e-5);
+    }
+
+    @Test
+    void positionalPayloadsReadAsTheirMapForm() throws IOException {
+        TreeEnsemble model = lightGbm();
+        TreeModelInput input = new TreeModelInput(model);
+        MlSchema schema = new MlSchema("v1", List.of("gender", "unused", "incomeValue", "age"),
+                new boolean[]{true, false, false, false});
+        FeaturePayload map = FeaturePayload.of(objectMapper.writeValueAsBytes(
+                Map.of("age", 30.000000000000004, "incomeValue", 60000, "gender", "M", "unused", 1)));
+        FeaturePayload positional = FeaturePayload.positional(
+                "[\"M\",1.0,60000.0,30.000000000000004]".getBytes(StandardCharsets.UTF_8), "v1", () -> map);
+
+        double[] row = input.read(positional, schema);
+
+        assertArrayEquals(input.read(map, null), row);
+        assertArrayEquals(row, input.read(positional, new MlSchema("v2", schema.features(), schema.categorical())));
+        assertEquals(10.45, model.predict(row), 1e-9);
+    }
+
+    private static void assertMatchesReference(TreeEnsemble model, String reference) throws IOException {
+        TreeModelInput input = new TreeModelInput(model);
+        List<String[]> rows;
+        try (Reader in = new InputStreamReader(resource(reference), StandardCharsets.UTF_8);
+             CSVReader csv = new CSVReader(in)) {
+            rows = csv.readAll();
+        }
+        String[] header = rows.getFirst();
+        int target = header.length - 1;
+        for (String[] row : rows.subList(1, rows.size())) {
+            Map<String, Object> features = new LinkedHashMap<>();
+            for (int c = 0; c < target; c++) {
+                if (!row[c].isEmpty()) {
+                    boolean categorical = model.isCategorical(model.featureNames().indexOf(header[c]));
+                    features.put(header[c], categorical ? row[c] : number(row[c]));
+                }
+            }
+            double[] x = input.read(FeaturePayload.of(objectMapper.writeValueAsBytes(features)), null);
+            assertEquals(Double.parseDouble(row[target]), model.predict(x), 1e-6, String.join(",", row));
+        }
+    }
+
+    /** A cell as the JSON number it would be in a payload, or the text when it is not one. */
+    private static Object number(String cell) {
+        try {
+            return cell.contains(".") ? (Object) Double.parseDouble(cell) : (Object) Long.parseLong(cell);
+        } catch (NumberFormatException ex) {
+            return cell;
+        }
+    }
+
+    private static void requireGenerated() {
+        assertTrue(resourceExists(GENERATED + "xgboost.json") && resourceExists(GENERATED + "lightgbm.txt"),
+                "no library-generated models; in backend/services/ml-service run "
+                        + "python export_tree_models.py --toy ../client-model-service/src/test/resources/tree-models/generated");
+    }
+
+    private static TreeEnsemble xgboost(int iterations) throws IOException {
+        return xgboost("", iterations);
+    }
+
+    private static TreeEnsemble xgboost(String dir, int iterations) throws IOException {
+        try (InputStream in = resource(dir + "xgboost.json")) {
+            return XgboostModelReader.read(in, iterations);
+        }
+    }
+
+    private static TreeEnsemble lightGbm() throws IOException {
+        return lightGbm("");
+    }
+
+    private static TreeEnsemble lightGbm(String dir) throws IOException {
+        try (Reader in = new InputStreamReader(resource(dir + "lightgbm.txt"), StandardCharsets.UTF_8)) {
+            return LightGbmModelReader.read(in, 0);
+        }
+    }
+
+    private static boolean resourceExists(String name) {
+        return TreeModelParityTest.class.getResource("/tree-models/" + name) != null;
+    }
+
+    private static InputStream resource(String name) {
+        return TreeModelParityTest.class.getResourceAsStream("/tree-models/" + name);
+    }
+}
@@ -0,0 +1,82 @@
+package com.alfahackathon.clientmodelservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic CSV rows shaped like the hackathon dataset: the typed client columns followed by
+ * a wide tail of feature columns. A feature column is decimal (comma separator), integer,
+ * categorical or mostly empty, and about a quarter of the cells in it are blank.
+ */
+public final class SyntheticRows {
+
+    private static final String[] REGIONS = {
+            "Москва", "Московская область", "Санкт-Петербург", "Свердловская область", "Татарстан",
+            "Краснодарский край", "Новосибирская область", "Башкортостан"
+    };
+    private static final String[] CITIES = {"Москва", "Санкт-Петербург", "Екатеринбург", "Казань", "Уфа", "Сочи"};
+    private static final String[] CATEGORIES = {"low", "mid", "high", "premium"};
+    private static final String[] LEVELS = {"A", "B", "C", "D", "E", "unknown"};
+
+    private final String[] header;
+    private final char[] kinds;
+    private final SplittableRandom random;
+
+    public SyntheticRows(int featureColumns, long seed) {
+        this.random = new SplittableRandom(seed);
+        List<String> names = new ArrayList<>(List.of(
+                "id", "dt", "age", "gender", "adminarea", "incomeValue", "incomeValueCategory", "city_smart_name"
+        ));
+        kinds = new char[featureColumns];
+        for (int i = 0; i < featureColumns; i++) {
+            int roll = random.nextInt(10);
+            kinds[i] = roll < 5 ? 'd' : roll < 8 ? 'i' : roll < 9 ? 'c' : 'e';
+            names.add("feature_" + i);
+        }
+        header = names.toArray(String[]::new);
+    }
+
+    public String[] header() {
+        return header;
+    }
+
+    public List<String[]> rows(long firstId, int count) {
+        List<String[]> rows = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            rows.add(row(firstId + n));
+        }
+        return rows;
+    }
+
+    public String[] row(long id) {
+        String[] row = new String[header.length];
+        row[0] = Long.toString(id);
+        row[1] = "2024-0" + (1 + random.nextInt(9)) + "-01";
+        row[2] = Integer.toString(18 + random.nextInt(60));
+        row[3] = random.nextBoolean() ? "M" : "F";
+        row[4] = REGIONS[random.nextInt(REGIONS.length)];
+        row[5] = decimal(20_000 + random.nextInt(300_000));
+        row[6] = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        row[7] = CITIES[random.nextInt(CITIES.length)];
+        for (int i = 0; i < kinds.length; i++) {
+            row[8 + i] = cell(kinds[i]);
+        }
+        return row;
+    }
+
+    private String cell(char kind) {
+        if (random.nextInt(4) == 0 || (kind == 'e' && random.nextInt(10) != 0)) {
+            return "";
+        }
+        return switch (kind) {
+            case 'i' -> Integer.toString(random.nextInt(1_000));
+            case 'c' -> LEVELS[random.nextInt(LEVELS.length)];
+            default -> decimal(random.nextInt(100_000));
+        };
+    }
+
+    private String decimal(int whole) {
+        return whole + "," + random.nextInt(100);
+    }
+}
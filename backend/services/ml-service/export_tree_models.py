@@ -0,0 +1,142 @@
+"""Exports the ensemble's tree models for in-process scoring in client-model-service
+(ml.local.model) together with reference predictions its parity test checks them against:
+
+    python export_tree_models.py hackathon_income_test.csv \
+        ../client-model-service/src/test/resources/tree-models --rows 500
+
+Writes xgboost.json (with best_iteration set to the blend's), lightgbm.txt and, for each, a
+-reference.csv holding the first rows of the client CSV as build_row gives them and the model's
+raw prediction (log1p of the salary) computed exactly as /predict computes it.
+
+Without the real models at hand, --toy trains small XGBoost and LightGBM models on synthetic
+clients (a categorical gender among them) and writes the same files for them, adding rows
+that sit exactly on split thresholds and rows with empty, "nan" and unseen values:
+
+    python export_tree_models.py --toy \
+        ../client-model-service/src/test/resources/tree-models/generated
+"""
+import argparse
+import csv
+import os
+
+import lightgbm as lgb
+import numpy as np
+import pandas as pd
+import xgboost as xgb
+
+import ml_service as svc
+
+
+def write_reference(path, rows, predictions):
+    with open(path, "w", newline="") as f:
+        writer = csv.writer(f)
+        writer.writerow(svc.FEATURE_NAMES + ["prediction"])
+        for row, prediction in zip(rows, predictions):
+            writer.writerow([row[name] for name in svc.FEATURE_NAMES] + [repr(prediction)])
+
+
+def toy_clients(rng, n):
+    """Raw CSV cells as client-model-service would send them, gaps and "nan" included."""
+    clients = []
+    for _ in range(n):
+        clients.append({
+            "age": rng.choice(["", "nan", str(rng.integers(18, 70))], p=[0.05, 0.05, 0.9]),
+            "incomeValue": str(round(rng.uniform(10000, 200000), 2)).replace(".", ","),
+            "gender": rng.choice(["F", "M", ""], p=[0.45, 0.45, 0.1]),
+            "feature_1": rng.choice(["", "0", "1", "2", "3"]),
+        })
+    return clients
+
+
+def toy_salary(row):
+    salary = 20000 + 0.3 * row["incomeValue"] + 400 * min(row["age"], 60) + 300 * row["feature_1"]
+    return salary * (1.15 if row["gender"] == "M" else 1.0)
+
+
+def threshold_clients(base, splits):
+    """One client per numeric split, the feature set exactly to the threshold."""
+    clients = []
+    for feature, threshold in splits:
+        if feature in svc.CAT_FEATURES or not np.isfinite(float(threshold)):
+            continue
+        client = dict(base)
+        client[feature] = repr(float(threshold))
+        clients.append(client)
+    return clients
+
+
+def train_toy():
+    svc.FEATURE_NAMES = ["age", "incomeValue", "gender", "feature_1"]
+    svc.CAT_FEATURES = {"gender"}
+    rng = np.random.default_rng(7)
+    rows = [svc.build_row(client) for client in toy_clients(rng, 400)]
+    _, X, _ = svc.prepare_batch(rows)
+    y = np.log1p([toy_salary(row) for row in rows])
+
+    xg = xgb.train(
+        {"tree_method": "hist", "max_depth": 3, "eta": 0.3, "max_cat_to_onehot": 1},
+        xgb.DMatrix(X, label=y, enable_categorical=True),
+        num_boost_round=20,
+    )
+    best = 14
+    lgbm = lgb.train(
+        {"objective": "regression", "num_leaves": 8, "min_data_in_leaf": 5, "verbose": -1},
+        lgb.Dataset(X, label=y, categorical_feature=sorted(svc.CAT_FEATURES)),
+        num_boost_round=20,
+    )
+
+    base = {"age": "40", "incomeValue": "80000", "gender": "F", "feature_1": "1"}
+    xgb_splits = xg.trees_to_dataframe().query("Feature != 'Leaf'")[["Feature", "Split"]]
+    lgbm_splits = lgbm.trees_to_dataframe().dropna(subset=["split_feature"])
+    edges = (
+        threshold_clients(base, xgb_splits.itertuples(index=False, name=None))
+        + threshold_clients(base, lgbm_splits[["split_feature", "threshold"]].itertuples(index=False, name=None))
+        + [dict(base, gender=gender) for gender in ["M", "", "nan", "X"]]
+        + [dict(base, age=age, feature_1=age) for age in ["", "nan", "0"]]
+    )
+    clients = toy_clients(rng, 50) + edges
+    return xg, best, lgbm, clients
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument("clients", nargs="?", help="client CSV, ';'-separated, as client-model-service ingests it")
+    parser.add_argument("out", nargs="?", help="directory for the models and reference predictions")
+    parser.add_argument("--rows", type=int, default=500, help="client rows to predict")
+    parser.add_argument("--toy", metavar="OUT", help="train toy models instead and write them to OUT")
+    args = parser.parse_args()
+
+    if args.toy:
+        xg, best, lgbm, clients = train_toy()
+        out = args.toy
+    elif args.clients and args.out:
+        cb, lgbm_model, xg, _, blend = svc.load_all_models()
+        svc.FEATURE_NAMES = list(cb.feature_names_)
+        svc.CAT_FEATURES = {svc.FEATURE_NAMES[i] for i in cb.get_cat_feature_indices()}
+        best = blend["xgb_best_iteration"]
+        lgbm = lgbm_model.booster_
+        clients = pd.read_csv(args.clients, sep=";", dtype=str, keep_default_na=False, nrows=args.rows)
+        clients = clients.to_dict("records")
+        out = args.out
+    else:
+        parser.error("either clients and out, or --toy OUT")
+
+    os.makedirs(out, exist_ok=True)
+    xg.set_attr(best_iteration=str(best))
+    xg.save_model(os.path.join(out, "xgboost.json"))
+    lgbm.save_model(os.path.join(out, "lightgbm.txt"))
+
+    rows = [svc.build_row(client) for client in clients]
+    xgb_predictions, lgbm_predictions = [], []
+    for row in rows:
+        _, X_numeric, _ = svc.prepare_data(row)
+        dmatrix = xgb.DMatrix(X_numeric, enable_categorical=True)
+        xgb_predictions.append(float(xg.predict(dmatrix, iteration_range=(0, best + 1))[0]))
+        lgbm_predictions.append(float(lgbm.predict(X_numeric)[0]))
+
+    write_reference(os.path.join(out, "xgboost-reference.csv"), rows, xgb_predictions)
+    write_reference(os.path.join(out, "lightgbm-reference.csv"), rows, lgbm_predictions)
+
+
+if __name__ == "__main__":
+    main()
@@ -3,10 +3,12 @@ import pandas as pd
 import joblib
 import xgboost as xgb
 import math
+import hashlib
+import os
 from typing import Dict, Any, List
 from contextlib import asynccontextmanager
 
-from fastapi import FastAPI
+from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel
 from catboost import CatBoostRegressor, Pool, CatBoostClassifier
 from pytorch_tabnet.tab_model import TabNetRegressor
@@ -15,6 +17,26 @@ models = {}
 blend_info = {}
 FEATURE_NAMES = []
 CAT_FEATURES = set()
+MODEL_VERSION = None
+
+MODEL_FILES = [
+    "model_cb_stable.cbm",
+    "model_lgbm_stable.pkl",
+    "model_xgb_stable.json",
+    "model_tabnet_stable.zip.zip",
+    "blend_info.pkl",
+]
+
+def compute_model_version():
+    override = os.environ.get("MODEL_VERSION")
+    if override:
+        return override
+    digest = hashlib.sha256()
+    for name in MODEL_FILES:
+        with open(name, "rb") as f:
+            for block in iter(lambda: f.read(1 << 20), b""):
+                digest.update(block)
+    return digest.hexdigest()[:16]
 
 def load_all_models():
     try:
@@ -38,9 +60,10 @@ def load_all_models():
 
 @asynccontextmanager
 async def lifespan(app: FastAPI):
-    global models, blend_info, FEATURE_NAMES, CAT_FEATURES
+    global models, blend_info, FEATURE_NAMES, CAT_FEATURES, MODEL_VERSION
 
     cb, lgbm, xg, tab, blend = load_all_models()
+    MODEL_VERSION = compute_model_version()
 
     models["cb"] = cb
     models["lgbm"] = lgbm
@@ -60,6 +83,29 @@ app = FastAPI(lifespan=lifespan)
 class PredictRequest(BaseModel):
     features: Dict[str, Any]
 
+class PredictBatchRequest(BaseModel):
+    rows: List[Dict[str, Any]]
+
+# Positional contract: values in FEATURE_NAMES order, already coerced the way build_row
+# would (strings for categorical features, numbers otherwise), for the schema version given.
+class VectorRequest(BaseModel):
+    version: str
+    values: List[Any]
+
+class VectorBatchRequest(BaseModel):
+    version: str
+    rows: List[List[Any]]
+
+def check_vector(version: str, rows: List[List[Any]]):
+    if version != MODEL_VERSION:
+        raise HTTPException(status_code=409, detail=f"schema version {version} is not {MODEL_VERSION}")
+    for values in rows:
+        if len(values) != len(FEATURE_NAMES):
+            raise HTTPException(
+                status_code=409,
+                detail=f"expected {len(FEATURE_NAMES)} values, got {len(values)}"
+            )
+
 def build_row(features: Dict[str, Any]) -> Dict[str, Any]:
     row: Dict[str, Any] = {}
     for name in FEATURE_NAMES:
@@ -135,6 +181,46 @@ def compute_ensemble(X_stable, X_lgbm_st, X_tab):
     blended = pred_matrix @ w
     return float(blended[0])
 
+def prepare_batch(rows: List[Dict[str, Any]]):
+    df = pd.DataFrame(rows, columns=FEATURE_NAMES)
+
+    X_numeric = df.copy()
+    X_tab_df = df.copy()
+
+    for col in FEATURE_NAMES:
+        if col in CAT_FEATURES:
+            X_numeric[col] = X_numeric[col].astype("category")
+            # a single-row frame always encodes its one category as 0
+            X_tab_df[col] = 0
+
+    X_tab = X_tab_df.values.astype(np.float32)
+
+    return df, X_numeric, X_tab
+
+def compute_ensemble_batch(rows: List[Dict[str, Any]]):
+    X_stable, X_lgbm_st, X_tab = prepare_batch(rows)
+    w = np.asarray(blend_info["weights"])
+
+    pool_cb = Pool(X_stable, cat_features=list(CAT_FEATURES))
+    pred_cb = np.atleast_1d(np.expm1(models["cb"].predict(pool_cb)))
+
+    pred_lgbm = np.expm1(models["lgbm"].predict(X_lgbm_st))
+
+    # xgb reads pandas category codes, which depend on which rows share the frame,
+    # so score it one row at a time exactly as /predict does
+    pred_xgb = np.array([
+        np.expm1(models["xgb"].predict(
+            xgb.DMatrix(prepare_data(row)[1], enable_categorical=True),
+            iteration_range=(0, blend_info["xgb_best_iteration"] + 1)
+        ))[0]
+        for row in rows
+    ])
+
+    pred_tab = np.expm1(models["tab"].predict(X_tab).ravel())
+
+    pred_matrix = np.column_stack([pred_cb, pred_lgbm, pred_xgb, pred_tab])
+    return pred_matrix @ w
+
 def salary_to_probability(log_salary):
     threshold = 10.5
     x = (log_salary - threshold) * 2.0
@@ -144,9 +230,28 @@ def salary_to_probability(log_salary):
         prob = 0.0 if x > 0 else 1.0
     return prob
 
+@app.get("/model")
+def model_info():
+    return {"version": MODEL_VERSION}
+
+@app.get("/schema")
+def schema():
+    return {
+        "version": MODEL_VERSION,
+        "features": FEATURE_NAMES,
+        "categorical": [name in CAT_FEATURES for name in FEATURE_NAMES],
+    }
+
 @app.post("/predict")
 def predict(request: PredictRequest):
-    row = build_row(request.features)
+    return predict_row(build_row(request.features))
+
+@app.post("/predict/vector")
+def predict_vector(request: VectorRequest):
+    check_vector(request.version, [request.values])
+    return predict_row(request.values)
+
+def predict_row(row):
     X_stable, X_lgbm_st, X_tab = prepare_data(row)
 
     try:
@@ -156,6 +261,36 @@ def predict(request: PredictRequest):
         raw_log = models["cb"].predict(pool_cb)
         predicted_salary_rub = math.exp(raw_log[0])
 
+    return score_response(predicted_salary_rub)
+
+@app.post("/predict/batch")
+def predict_batch(request: PredictBatchRequest):
+    return predict_rows([build_row(features) for features in request.rows])
+
+@app.post("/predict/vector/batch")
+def predict_vector_batch(request: VectorBatchRequest):
+    check_vector(request.version, request.rows)
+    return predict_rows(request.rows)
+
+def predict_rows(rows):
+    if not rows:
+        return {"results": []}
+
+    try:
+        salaries = [float(s) for s in compute_ensemble_batch(rows)]
+    except:
+        salaries = []
+        for row in rows:
+            X_stable, X_lgbm_st, X_tab = prepare_data(row)
+            try:
+                salaries.append(compute_ensemble(X_stable, X_lgbm_st, X_tab))
+            except:
+                pool_cb = Pool(pd.DataFrame([row], columns=FEATURE_NAMES), cat_features=list(CAT_FEATURES))
+                salaries.append(math.exp(models["cb"].predict(pool_cb)[0]))
+
+    return {"results": [score_response(s) for s in salaries]}
+
+def score_response(predicted_salary_rub):
     safe_salary = max(predicted_salary_rub, 1.0)
     current_log_salary = math.log(safe_salary)
 
@@ -170,7 +305,14 @@ def predict(request: PredictRequest):
 
 @app.post("/shap")
 def shap(request: PredictRequest):
-    row = build_row(request.features)
+    return shap_row(build_row(request.features))
+
+@app.post("/shap/vector")
+def shap_vector(request: VectorRequest):
+    check_vector(request.version, [request.values])
+    return shap_row(request.values)
+
+def shap_row(row):
     df = pd.DataFrame([row], columns=FEATURE_NAMES)
     pool = Pool(df, cat_features=list(CAT_FEATURES))
 
@@ -34,6 +34,9 @@ function App() {
     const [page, setPage] = useState(0)
     const [hasMore, setHasMore] = useState(true)
     const [totalPages, setTotalPages] = useState(1)
+    // cursors.current[i] is the continuation token that loads page i
+    const cursors = useRef([null])
+    const [filters, setFilters] = useState({ region: '', ageMin: '', ageMax: '', sort: 'id', direction: 'asc' })
 
     const historyLoaded = useRef(false)
     const [recent, setRecent] = useState(() => {
@@ -57,7 +60,18 @@ function App() {
             setPatientsLoading(true)
             setPatientsError(null)
             try {
-                const resp = await fetch(`/api/clients?page=${page}&size=${PAGE_SIZE}`)
+                const cursor = cursors.current[page]
+                const params = new URLSearchParams({
+                    size: PAGE_SIZE,
+                    withTotal: 'true',
+                    sort: filters.sort,
+                    direction: filters.direction
+                })
+                if (filters.region.trim()) params.set('region', filters.region.trim())
+                if (filters.ageMin !== '') params.set('ageMin', filters.ageMin)
+                if (filters.ageMax !== '') params.set('ageMax', filters.ageMax)
+                if (cursor) params.set('cursor', cursor)
+                const resp = await fetch(`/api/clients/scroll?${params}`)
                 if (!resp.ok) throw new Error(`Ошибка: ${resp.status}`)
 
                 const data = await resp.json()
@@ -76,11 +90,16 @@ function App() {
                     income: item.income
                 }))
 
-                const serverTotalPages = data.totalPages ?? (mapped.length ? page + 2 : 1)
+                cursors.current = cursors.current.slice(0, page + 1)
+                if (data.next) cursors.current.push(data.next)
+
+                const serverTotalPages = data.totalElements != null
+                    ? Math.max(1, Math.ceil(data.totalElements / PAGE_SIZE))
+                    : page + (data.next ? 2 : 1)
 
                 setPatients(mapped)
                 setTotalPages(serverTotalPages)
-                setHasMore(page < serverTotalPages - 1)
+                setHasMore(Boolean(data.next))
 
             } catch (err) {
                 console.error(err)
@@ -91,7 +110,13 @@ function App() {
             }
         }
         fetchPatients()
-    }, [page])
+    }, [page, filters])
+
+    const updateFilter = (key, value) => {
+        cursors.current = [null]
+        setPage(0)
+        setFilters((prev) => ({ ...prev, [key]: value }))
+    }
 
     const filteredPatients = useMemo(() => {
         const safeQuery = query.trim().toLowerCase()
@@ -151,6 +176,46 @@ function App() {
                                     />
                                 </div>
 
+                                <div className="filter-row">
+                                    <input
+                                        className="filter-input"
+                                        type="text"
+                                        placeholder="Регион"
+                                        value={filters.region}
+                                        onChange={(e) => updateFilter('region', e.target.value)}
+                                    />
+                                    <input
+                                        className="filter-input filter-age"
+                                        type="number"
+                                        placeholder="Возраст от"
+                                        value={filters.ageMin}
+                                        onChange={(e) => updateFilter('ageMin', e.target.value)}
+                                    />
+                                    <input
+                                        className="filter-input filter-age"
+                                        type="number"
+                                        placeholder="до"
+                                        value={filters.ageMax}
+                                        onChange={(e) => updateFilter('ageMax', e.target.value)}
+                                    />
+                                    <select
+                                        className="filter-input"
+                                        value={filters.sort}
+                                        onChange={(e) => updateFilter('sort', e.target.value)}
+                                    >
+                                        <option value="id">По ID</option>
+                                        <option value="age">По возрасту</option>
+                                        <option value="income">По доходу</option>
+                                        <option value="probability">По вероятности одобрения</option>
+                                    </select>
+                                    <button
+                                        className="pager-btn"
+                                        onClick={() => updateFilter('direction', filters.direction === 'asc' ? 'desc' : 'asc')}
+                                    >
+                                        {filters.direction === 'asc' ? '↑' : '↓'}
+                                    </button>
+                                </div>
+
                                 {patientsLoading && <div className="data-status">Загрузка...</div>}
 
                                 {historyOpen && (
@@ -14,18 +14,14 @@ export default function ClientDetails({ client, onBack }) {
             setLoading(true)
             setError(null)
             try {
-                const [predictResp, shapResp] = await Promise.all([
-                    fetch(`/api/client/${client.id}/predict`, { method: 'POST' }),
-                    fetch(`/api/client/${client.id}/shap`, { method: 'POST' })
-                ])
+                const scoreResp = await fetch(`/api/client/${client.id}/score`, { method: 'POST' })
 
-                if (!predictResp.ok) throw new Error('Ошибка получения прогноза')
-                const predictResult = await predictResp.json()
+                if (!scoreResp.ok) throw new Error('Ошибка получения прогноза')
+                const predictResult = await scoreResp.json()
 
                 let shapResult = []
-                if (shapResp.ok) {
-                    const shapRaw = await shapResp.json()
-                    const factors = shapRaw.shapValues || {}
+                if (predictResult.shap) {
+                    const factors = predictResult.shap.shapValues || {}
 
                     shapResult = Object.entries(factors)
                         .map(([key, value]) => ({ key, value: Number(value) || 0 }))